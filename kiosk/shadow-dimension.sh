@@ -0,0 +1,8 @@
+#!/bin/sh
+# Shadow Dimension kiosk launcher, filled in by the kiosk build profile: runs the game on the
+# trimmed runtime, with the class-data-sharing archive of the training run, natives already
+# extracted and resources read from the asset pack.
+cd "$(dirname "$0")" || exit 1
+exec runtime/bin/java -Xshare:auto -XX:SharedArchiveFile=shadow.jsa \
+    -Dorg.lwjgl.librarypath=natives \
+    -cp "${project.build.finalName}.jar:${kiosk.libClasspath}" ShadowDimension "$@"
@@ -0,0 +1,370 @@
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.BufferedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * AssetPack class - all resource files packed into a single archive, read through one memory-mapped
+ * file. The archive starts with an index of every file's name, offset and length, followed by the
+ * files' contents:
+ * <pre>
+ *   int magic, int version, int count,
+ *   count x (short name length, UTF-8 name, long offset, int length),
+ *   contents
+ * </pre>
+ * Once a pack is mounted, resources are read from it, falling back to loose files for those it does
+ * not contain; without a pack, loose files are read as before. bagel only loads images and fonts from
+ * file paths, hence those are extracted to a temporary directory the first time they are loaded.
+ * <p>
+ * Usage (building a pack): AssetPack [resource directory] [pack file]
+ */
+
+public class AssetPack {
+    // default pack file, read by the game if present (as in the kiosk)
+    public static final String DEFAULT_FILE = "res.pack";
+    // pack file written by the build, read by the game otherwise
+    public static final String BUILD_FILE = "target/res.pack";
+    // format
+    private static final int MAGIC = 0x5344504B;
+    private static final int VERSION = 1;
+    // the mounted pack, null if none
+    private static volatile AssetPack mounted = null;
+
+    /**
+     * Properties
+     */
+    // mapped pack file, and {offset, length} of each file by name
+    private final ByteBuffer data;
+    private final Map<String, long[]> index;
+    // extracted files by name, and the directory they are extracted to
+    private final Map<String, String> extracted = new ConcurrentHashMap<>();
+    private Path extractDir = null;
+
+    /**
+     * Asset pack constructor: maps the pack file and reads its index.
+     *
+     * @param  fileName  pack file name
+     * @throws IOException if the file cannot be read or is not a pack
+     */
+    private AssetPack(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION)
+            throw new IOException("Not a version " + VERSION + " asset pack: " + fileName);
+        ByteBuffer header = data.duplicate();
+        header.position(8);
+        int count = header.getInt();
+        Map<String, long[]> entries = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[header.getShort()];
+            header.get(name);
+            long offset = header.getLong();
+            int length = header.getInt();
+            entries.put(new String(name, StandardCharsets.UTF_8), new long[] {offset, length});
+        }
+        index = Collections.unmodifiableMap(entries);
+    }
+
+    /**
+     * Mount a pack file, from which resources are then read; has no effect if the file does
+     * not exist.
+     *
+     * @param  fileName  pack file name
+     * @return           true if the pack has been mounted
+     */
+    public static boolean mount(String fileName) {
+        if (!new File(fileName).exists()) return false;
+        try {
+            mounted = new AssetPack(fileName);
+            System.out.println("Mounted " + fileName + ": " + mounted.index.size() + " files");
+            return true;
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Get whether a pack is mounted.
+     *
+     * @return true if resources are read from a pack
+     */
+    public static boolean isMounted() {
+        return mounted != null;
+    }
+
+    /**
+     * Whether a resource exists, in the mounted pack or as a loose file.
+     *
+     * @param  name  resource path, such as "res/level1.csv"
+     * @return       true if the resource exists
+     */
+    public static boolean exists(String name) {
+        AssetPack pack = mounted;
+        return (pack != null && pack.index.containsKey(name)) || new File(name).exists();
+    }
+
+    /**
+     * Open a resource for reading; a resource in the mounted pack is read straight from the
+     * mapped file, without being copied.
+     *
+     * @param  name  resource path
+     * @return       stream of the resource's content
+     * @throws IOException if the resource cannot be read
+     */
+    public static InputStream open(String name) throws IOException {
+        AssetPack pack = mounted;
+        if (pack == null || !pack.index.containsKey(name)) return new FileInputStream(name);
+        return new SliceInputStream(pack.slice(name));
+    }
+
+    /**
+     * Whether a resource is read from the mounted pack, rather than as a loose file.
+     *
+     * @param  name  resource path
+     * @return       true if the resource is in the mounted pack
+     */
+    public static boolean isPacked(String name) {
+        AssetPack pack = mounted;
+        return pack != null && pack.index.containsKey(name);
+    }
+
+    /**
+     * Get a file path of a resource, for libraries only loading from files: a resource in the
+     * mounted pack is extracted to a temporary file, once.
+     *
+     * @param  name  resource path
+     * @return       path of a file holding the resource
+     */
+    public static String toFile(String name) {
+        AssetPack pack = mounted;
+        if (pack == null || !pack.index.containsKey(name)) return name;
+        return pack.extracted.computeIfAbsent(name, pack::extract);
+    }
+
+    /**
+     * List all resources under a directory, in the mounted pack and as loose files.
+     *
+     * @param  dir  directory, such as "res/fae"
+     * @return      resource paths, sorted
+     */
+    public static List<String> list(String dir) {
+        String prefix = dir.endsWith("/") ? dir : dir + "/";
+        List<String> names = new ArrayList<>();
+        AssetPack pack = mounted;
+        if (pack != null)
+            for (String name : pack.index.keySet()) if (name.startsWith(prefix)) names.add(name);
+        if (new File(dir).isDirectory()) {
+            try (Stream<Path> paths = Files.walk(Paths.get(dir))) {
+                paths.filter(Files::isRegularFile)
+                     .map(path -> path.toString().replace(File.separatorChar, '/'))
+                     .filter(name -> !names.contains(name))
+                     .forEach(names::add);
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Get a read-only view of a resource's content in the mapped file.
+     *
+     * @param  name  resource path
+     * @return       resource's content
+     */
+    private ByteBuffer slice(String name) {
+        long[] entry = index.get(name);
+        ByteBuffer content = data.duplicate();
+        content.position((int) entry[0]).limit((int) (entry[0] + entry[1]));
+        return content.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Extract a resource to the temporary directory, keeping its path. Every directory created
+     * is deleted on exit after its contents, so that the whole tree is removed.
+     *
+     * @param  name  resource path
+     * @return       extracted file path, or the resource path if it cannot be extracted
+     */
+    private String extract(String name) {
+        try {
+            synchronized (this) {
+                if (extractDir == null) {
+                    extractDir = Files.createTempDirectory("shadow-assets");
+                    extractDir.toFile().deleteOnExit();
+                }
+            }
+            Path file = extractDir.resolve(name);
+            Path dir = extractDir;
+            for (Path part : extractDir.relativize(file.getParent())) {
+                // files registered later are deleted first, hence parents are registered before children
+                dir = dir.resolve(part);
+                if (!Files.isDirectory(dir)) Files.createDirectories(dir);
+                dir.toFile().deleteOnExit();
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer content = slice(name);
+                while (content.hasRemaining()) channel.write(content);
+            }
+            file.toFile().deleteOnExit();
+            return file.toString();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            return name;
+        }
+    }
+
+    /**
+     * SliceInputStream class - an input stream over a read-only view of the mapped file.
+     */
+    private static class SliceInputStream extends InputStream {
+        private final ByteBuffer content;
+
+        /**
+         * Slice input stream constructor.
+         *
+         * @param content  resource's content, from its start
+         */
+        private SliceInputStream(ByteBuffer content) {
+            this.content = content;
+        }
+
+        /**
+         * Read a byte.
+         *
+         * @return next byte, or -1 at the end of the resource
+         */
+        @Override
+        public int read() {
+            return content.hasRemaining() ? content.get() & 0xFF : -1;
+        }
+
+        /**
+         * Read bytes into an array.
+         *
+         * @param  bytes   destination array
+         * @param  offset  first index to write
+         * @param  length  maximum number of bytes
+         * @return         number of bytes read, or -1 at the end of the resource
+         */
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if (!content.hasRemaining()) return -1;
+            int count = Math.min(length, content.remaining());
+            content.get(bytes, offset, count);
+            return count;
+        }
+
+        /**
+         * Skip bytes.
+         *
+         * @param  n  maximum number of bytes
+         * @return    number of bytes skipped
+         */
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, content.remaining()));
+            content.position(content.position() + count);
+            return count;
+        }
+
+        /**
+         * Get the number of bytes left.
+         *
+         * @return bytes left in the resource
+         */
+        @Override
+        public int available() {
+            return content.remaining();
+        }
+    }
+
+    /**
+     * Build a pack of all files under a directory. The pack is written to a temporary file,
+     * then moved over the previous pack in one step, so a running game never reads half a pack.
+     *
+     * @param  root      resource directory
+     * @param  fileName  pack file name
+     * @return           number of packed files
+     * @throws IOException if a file cannot be read, or the pack cannot be written
+     */
+    public static int build(String root, String fileName) throws IOException {
+        List<String> names;
+        try (Stream<Path> paths = Files.walk(Paths.get(root))) {
+            names = paths.filter(Files::isRegularFile)
+                         .map(path -> path.toString().replace(File.separatorChar, '/'))
+                         .sorted()
+                         .collect(Collectors.toList());
+        }
+        // index size, to compute the offsets of the contents
+        long offset = 3 * Integer.BYTES;
+        for (String name : names)
+            offset += Short.BYTES + name.getBytes(StandardCharsets.UTF_8).length + Long.BYTES + Integer.BYTES;
+
+        Path target = Paths.get(fileName).toAbsolutePath();
+        if (target.getParent() != null) Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "pack", ".tmp");
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(names.size());
+            for (String name : names) {
+                byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+                long length = Files.size(Paths.get(name));
+                out.writeShort(nameBytes.length);
+                out.write(nameBytes);
+                out.writeLong(offset);
+                out.writeInt((int) length);
+                offset += length;
+            }
+            for (String name : names) Files.copy(Paths.get(name), out);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return names.size();
+    }
+
+    /**
+     * The entry point for building a pack.
+     */
+    public static void main(String[] args) {
+        String root = (args.length > 0) ? args[0] : AssetWatcher.RES_DIR;
+        String fileName = (args.length > 1) ? args[1] : DEFAULT_FILE;
+        try {
+            int count = build(root, fileName);
+            System.out.println("Packed " + count + " files from " + root + " into " + fileName +
+                               " (" + Files.size(Paths.get(fileName)) + " bytes)");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * AssetPreloader class - preloads every image and font under the resource directory at startup.
+ * All files are read, and image sizes parsed, in parallel on worker threads, so that the disk is
+ * only waited on once and off the rendering thread. The rendering thread then only creates the
+ * textures of already-read files, a few per frame, while the title screen is displayed.
+ * <p>
+ * bagel creates textures from file paths only, hence decoding into textures still happens on the
+ * rendering thread; the workers take care of everything that involves the disk.
+ */
+
+public class AssetPreloader {
+    // images uploaded per frame on the rendering thread
+    private static final int UPLOADS_PER_FRAME = 2;
+
+    /**
+     * Properties
+     */
+    // images and fonts to preload, and their reading tasks
+    private final List<String> manifest;
+    private final List<Future<?>> reads = new ArrayList<>();
+    // index of the next manifest entry to upload
+    private int next = 0;
+
+    /**
+     * Asset preloader constructor: builds the manifest of the resource directory and starts
+     * reading all files in parallel.
+     *
+     * @param root  resource directory
+     */
+    public AssetPreloader(String root) {
+        manifest = readManifest(root);
+        ExecutorService workers = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(manifest.size(), Runtime.getRuntime().availableProcessors())), task -> {
+                    Thread thread = new Thread(task, "asset-preloader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        for (String path : manifest) reads.add(workers.submit(() -> prefetch(path)));
+        workers.shutdown();
+    }
+
+    /**
+     * List the images and fonts under a directory, in the asset pack or on disk.
+     *
+     * @param  root  resource directory
+     * @return       paths of the images and fonts, such as "res/fae/faeLeft.png"
+     */
+    public static List<String> readManifest(String root) {
+        return AssetPack.list(root).stream()
+                        .filter(path -> isImage(path) || isFont(path))
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * Whether a file is an image.
+     *
+     * @param  path  file path
+     * @return       true if the file is a PNG image
+     */
+    private static boolean isImage(String path) {
+        return path.toLowerCase().endsWith(".png");
+    }
+
+    /**
+     * Whether a file is a font.
+     *
+     * @param  path  file path
+     * @return       true if the file is a TrueType font
+     */
+    private static boolean isFont(String path) {
+        return path.toLowerCase().endsWith(".ttf");
+    }
+
+    /**
+     * Read a loose file in full, and parse its size if it is an image; runs on a worker thread.
+     * A file in the asset pack is already mapped, hence it is only extracted for bagel, written
+     * straight from the mapping, and its size parsed from the mapping.
+     *
+     * @param path file path
+     */
+    private static void prefetch(String path) {
+        if (AssetPack.isPacked(path)) {
+            AssetPack.toFile(path);
+        }
+        else {
+            try (InputStream in = AssetPack.open(path)) {
+                in.readAllBytes();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (isImage(path)) Sprites.getWidth(path);
+    }
+
+    /**
+     * Create the textures of the next images whose files have been read; used on the rendering
+     * thread once per frame. An image whose file is still being read is waited for on a later frame.
+     *
+     * @return true if all images have been uploaded
+     */
+    public boolean uploadNext() {
+        int uploads = 0;
+        while (next < manifest.size() && uploads < UPLOADS_PER_FRAME) {
+            if (!reads.get(next).isDone()) return false;
+            String path = manifest.get(next++);
+            if (!isImage(path)) continue;
+            Sprites.getImage(path);
+            uploads++;
+        }
+        return isDone();
+    }
+
+    /**
+     * Whether all images have been uploaded.
+     *
+     * @return true if preloading is done
+     */
+    public boolean isDone() {
+        return next >= manifest.size();
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+/**
+ * AssetWatcher class - watches the resource directory and its sub-directories for changed
+ * files on a background thread. Changes are only queued there, and are collected by the game
+ * on its own thread, where images can be reloaded and levels updated.
+ */
+
+public class AssetWatcher {
+    // watched root directory
+    public static final String RES_DIR = "res";
+
+    /**
+     * Properties
+     */
+    // watch service and the directory of each watch key
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    // changed file paths, waiting to be collected
+    private final ConcurrentLinkedQueue<String> changes = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Asset watcher constructor: registers the root directory and all its sub-directories,
+     * then starts watching on a daemon thread.
+     *
+     * @param root  root directory
+     * @throws IOException if the directories cannot be watched
+     */
+    public AssetWatcher(String root) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        try (Stream<Path> paths = Files.walk(Paths.get(root))) {
+            for (Path dir : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                            StandardWatchEventKinds.ENTRY_MODIFY);
+                directories.put(key, dir);
+            }
+        }
+        Thread thread = new Thread(this::watch, "asset-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Watching loop, queueing the path of every created or modified file until closed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = directories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) continue;
+                    Path changed = dir.resolve((Path) event.context());
+                    changes.add(changed.toString().replace(File.separatorChar, '/'));
+                }
+                key.reset();
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e) {
+            // watcher closed
+        }
+    }
+
+    /**
+     * Collect the files changed since the last call; a file changed several times is only
+     * listed once.
+     *
+     * @return changed file paths, such as "res/level1.csv"
+     */
+    public Set<String> poll() {
+        Set<String> changed = new LinkedHashSet<>();
+        String path;
+        while ((path = changes.poll()) != null) changed.add(path);
+        return changed;
+    }
+
+    /**
+     * Stop watching.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,504 @@
+import org.lwjgl.openal.AL;
+import org.lwjgl.openal.AL10;
+import org.lwjgl.openal.ALC;
+import org.lwjgl.openal.ALC10;
+import org.lwjgl.openal.ALCCapabilities;
+import org.lwjgl.openal.SOFTLoopback;
+import org.lwjgl.stb.STBVorbis;
+import org.lwjgl.stb.STBVorbisInfo;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audio class - the game's sound, played through OpenAL. Short effects are preloaded into
+ * OpenAL buffers once, when audio starts, and played from a small pool of sources; an effect
+ * file (res/sfx/name.ogg) is decoded if present, otherwise the effect is synthesized. Music is
+ * streamed from an Ogg Vorbis file in chunks, through 2 buffers queued on its own source: while
+ * one is playing, the other is refilled, so music is never decoded entirely into memory.
+ * <p>
+ * Like Sprites, Audio is a static single point of access, safe to call from any thread: play
+ * only records the requested effect, and a single audio thread makes every OpenAL call after
+ * starting. Until audio is started, or if no device can be opened, playing has no effect, hence
+ * headless tools running levels stay silent. The device is the default output, or on machines
+ * without any, or when selected with -Dshadow.audio=null, an OpenAL Soft loopback device: the
+ * audio thread renders its mix in real time and discards it, keeping only its peak level.
+ * <p>
+ * Usage (testing headless): Audio [music file] [seconds]
+ */
+
+public class Audio {
+    // effects
+    public static final int ATTACK = 0;
+    public static final int HIT = 1;
+    public static final int SINKHOLE = 2;
+    public static final int SHOT = 3;
+    public static final int DEATH = 4;
+    private static final String[] EFFECT_NAMES = {"attack", "hit", "sinkhole", "shot", "death"};
+    private static final String EFFECT_DIR = "res/sfx/";
+    // loopback device (no output), its mix format, and frames rendered at a time (about 23 ms)
+    private static final String LOOPBACK_DEVICE = "Loopback";
+    private static final int LOOPBACK_RATE = 44100;
+    private static final int LOOPBACK_FRAMES = 1024;
+    // effect sources, and gains
+    private static final int EFFECT_SOURCES = 8;
+    private static final float EFFECT_GAIN = 0.6f;
+    private static final float MUSIC_GAIN = 0.4f;
+    // synthesized effects' sample rate
+    private static final int SYNTH_RATE = 22050;
+    // music buffers, and frames decoded into each (about 0.37 s at 44.1 kHz)
+    private static final int MUSIC_BUFFERS = 2;
+    private static final int MUSIC_FRAMES = 16384;
+    // interval at which the audio thread refills music buffers, if not woken by an effect
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    // the running engine, null if audio is not started
+    private static volatile Audio running = null;
+
+    /**
+     * Properties
+     */
+    // OpenAL device and context
+    private final long device, context;
+    private final String deviceName;
+    // loopback device only: mix buffer, frames rendered since the start, and peak level
+    private final short[] mix;
+    private long renderedFrames = 0, renderStart;
+    private volatile int peak = 0;
+    // effect buffers by effect, effect sources, and the next source to use
+    private final int[] effectBuffers = new int[EFFECT_NAMES.length];
+    private final int[] effectSources = new int[EFFECT_SOURCES];
+    private int nextSource = 0;
+    // effects requested since the audio thread last played them, one bit per effect
+    private final AtomicInteger pending = new AtomicInteger();
+    // music: requested file (null for none), file playing, its decoder, and format
+    private volatile String musicRequest = null;
+    private volatile String musicFile = null;
+    private long decoder = 0;
+    private int musicFormat, musicRate, musicChannels;
+    // music source, buffers and decoding buffer
+    private final int musicSource;
+    private final int[] musicBuffers = new int[MUSIC_BUFFERS];
+    private ShortBuffer pcm = null;
+    // statistics: music buffers streamed, and times the music ran dry
+    private volatile long streamed = 0;
+    private volatile int underruns = 0;
+    // audio thread
+    private final Thread thread;
+    private volatile boolean isStopped = false;
+
+    /**
+     * Audio constructor: creates the context on an opened device, then the effects and the sources.
+     *
+     * @param device      opened device
+     * @param deviceName  device's name, for logs
+     * @param isLoopback  whether the device is a loopback device, rendered by the audio thread
+     */
+    private Audio(long device, String deviceName, boolean isLoopback) {
+        this.device = device;
+        this.deviceName = deviceName;
+        ALCCapabilities capabilities = ALC.createCapabilities(device);
+        if (isLoopback) {
+            // a loopback device mixes in the format it is rendered in
+            int[] attributes = {SOFTLoopback.ALC_FORMAT_CHANNELS_SOFT, SOFTLoopback.ALC_STEREO_SOFT,
+                                SOFTLoopback.ALC_FORMAT_TYPE_SOFT, SOFTLoopback.ALC_SHORT_SOFT,
+                                ALC10.ALC_FREQUENCY, LOOPBACK_RATE, 0};
+            context = ALC10.alcCreateContext(device, attributes);
+            mix = new short[LOOPBACK_FRAMES*2];
+        }
+        else {
+            context = ALC10.alcCreateContext(device, (IntBuffer) null);
+            mix = null;
+        }
+        ALC10.alcMakeContextCurrent(context);
+        AL.createCapabilities(capabilities);
+
+        for (int i = 0; i < effectBuffers.length; i++) effectBuffers[i] = loadEffect(i);
+        for (int i = 0; i < effectSources.length; i++) {
+            effectSources[i] = AL10.alGenSources();
+            AL10.alSourcef(effectSources[i], AL10.AL_GAIN, EFFECT_GAIN);
+            AL10.alSourcei(effectSources[i], AL10.AL_SOURCE_RELATIVE, 1);
+        }
+        musicSource = AL10.alGenSources();
+        AL10.alSourcef(musicSource, AL10.AL_GAIN, MUSIC_GAIN);
+        AL10.alSourcei(musicSource, AL10.AL_SOURCE_RELATIVE, 1);
+        for (int i = 0; i < musicBuffers.length; i++) musicBuffers[i] = AL10.alGenBuffers();
+
+        thread = new Thread(this::run, "audio");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Start audio on the device selected by -Dshadow.audio (the default output unless set),
+     * falling back to a loopback device if the default one cannot be opened.
+     *
+     * @return true if audio has been started
+     */
+    public static boolean start() {
+        return start(System.getProperty("shadow.audio", "default"));
+    }
+
+    /**
+     * Start audio on a device; has no effect if audio is already started.
+     *
+     * @param  deviceType  "default" for the default output, falling back to a loopback device,
+     *                     "null" for a loopback device (no output), or "off" for no audio
+     * @return             true if audio has been started
+     */
+    public static synchronized boolean start(String deviceType) {
+        if (running != null) return true;
+        if (deviceType.equals("off")) return false;
+        try {
+            long device = 0;
+            String name = LOOPBACK_DEVICE;
+            if (!deviceType.equals("null")) {
+                device = ALC10.alcOpenDevice((CharSequence) null);
+                if (device != 0) name = ALC10.alcGetString(device, ALC10.ALC_DEVICE_SPECIFIER);
+            }
+            boolean isLoopback = device == 0;
+            if (isLoopback) {
+                device = SOFTLoopback.alcLoopbackOpenDeviceSOFT((CharSequence) null);
+                if (device != 0 && !SOFTLoopback.alcIsRenderFormatSupportedSOFT(device, LOOPBACK_RATE,
+                        SOFTLoopback.ALC_STEREO_SOFT, SOFTLoopback.ALC_SHORT_SOFT)) {
+                    ALC10.alcCloseDevice(device);
+                    device = 0;
+                }
+            }
+            if (device == 0) {
+                System.out.println("No audio device, audio disabled");
+                return false;
+            }
+            Audio audio = new Audio(device, name, isLoopback);
+            running = audio;
+            audio.thread.start();
+            System.out.println("Audio started on " + name);
+            return true;
+        }
+        catch (RuntimeException | LinkageError e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Stop audio, releasing all its resources; has no effect if audio is not started.
+     */
+    public static synchronized void stop() {
+        Audio audio = running;
+        if (audio == null) return;
+        running = null;
+        audio.isStopped = true;
+        LockSupport.unpark(audio.thread);
+        try {
+            audio.thread.join();
+        }
+        catch (InterruptedException e) {
+            e.printStackTrace();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get whether audio is started.
+     *
+     * @return true if effects and music are played
+     */
+    public static boolean isStarted() {
+        return running != null;
+    }
+
+    /**
+     * Play an effect; the same effect requested several times before the audio thread plays it
+     * is only played once. Has no effect if audio is not started.
+     *
+     * @param effect  effect, such as HIT
+     */
+    public static void play(int effect) {
+        Audio audio = running;
+        if (audio == null) return;
+        int bit = 1 << effect;
+        if ((audio.pending.getAndUpdate(bits -> bits | bit) & bit) == 0) LockSupport.unpark(audio.thread);
+    }
+
+    /**
+     * Stream music from an Ogg Vorbis file, looping; has no effect if the file does not exist
+     * or audio is not started. Replaces the music playing, if any.
+     *
+     * @param fileName  music file, or null to stop the music
+     */
+    public static void playMusic(String fileName) {
+        Audio audio = running;
+        if (audio == null || (fileName != null && !AssetPack.exists(fileName))) return;
+        audio.musicRequest = (fileName == null) ? null : AssetPack.toFile(fileName);
+        LockSupport.unpark(audio.thread);
+    }
+
+    /**
+     * Report of the audio engine's state, for logs.
+     *
+     * @return device, and music streaming statistics
+     */
+    public static String report() {
+        Audio audio = running;
+        if (audio == null) return "Audio: off";
+        String report = String.format("Audio: %s, music %s, %d buffers streamed, %d underruns", audio.deviceName,
+                                      (audio.musicFile == null) ? "off" : audio.musicFile, audio.streamed,
+                                      audio.underruns);
+        return (audio.mix == null) ? report : report + ", peak " + audio.peak;
+    }
+
+    /**
+     * Audio thread: plays requested effects and keeps the music's buffers filled, until stopped;
+     * then releases everything.
+     */
+    private void run() {
+        renderStart = System.nanoTime();
+        while (!isStopped) {
+            if (mix != null) render();
+            int effects = pending.getAndSet(0);
+            for (int effect = 0; effects != 0; effect++, effects >>>= 1)
+                if ((effects & 1) != 0) playEffect(effect);
+            String request = musicRequest;
+            if (request == null ? musicFile != null : !request.equals(musicFile)) openMusic(request);
+            if (decoder != 0) streamMusic();
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+        openMusic(null);
+        if (pcm != null) MemoryUtil.memFree(pcm);
+        for (int source : effectSources) AL10.alDeleteSources(source);
+        AL10.alDeleteSources(musicSource);
+        for (int buffer : effectBuffers) AL10.alDeleteBuffers(buffer);
+        for (int buffer : musicBuffers) AL10.alDeleteBuffers(buffer);
+        ALC10.alcMakeContextCurrent(0);
+        ALC10.alcDestroyContext(context);
+        ALC10.alcCloseDevice(device);
+    }
+
+    /**
+     * Render the loopback device's mix up to the current time, as a device would play it, so
+     * that sources advance in real time; the samples are discarded, only their peak is kept.
+     */
+    private void render() {
+        long due = (System.nanoTime() - renderStart) * LOOPBACK_RATE / TimeUnit.SECONDS.toNanos(1);
+        while (renderedFrames < due) {
+            int frames = (int) Math.min(LOOPBACK_FRAMES, due - renderedFrames);
+            SOFTLoopback.alcRenderSamplesSOFT(device, mix, frames);
+            for (int i = 0; i < frames*2; i++) peak = Math.max(peak, Math.abs(mix[i]));
+            renderedFrames += frames;
+        }
+    }
+
+    /**
+     * Play an effect on the next effect source that is not playing; if all are, the least
+     * recently started one is cut.
+     *
+     * @param effect  effect
+     */
+    private void playEffect(int effect) {
+        int source = effectSources[nextSource];
+        for (int i = 0; i < EFFECT_SOURCES; i++) {
+            int candidate = effectSources[(nextSource + i) % EFFECT_SOURCES];
+            if (AL10.alGetSourcei(candidate, AL10.AL_SOURCE_STATE) != AL10.AL_PLAYING) {
+                source = candidate;
+                nextSource = (nextSource + i) % EFFECT_SOURCES;
+                break;
+            }
+        }
+        nextSource = (nextSource + 1) % EFFECT_SOURCES;
+        AL10.alSourceStop(source);
+        AL10.alSourcei(source, AL10.AL_BUFFER, effectBuffers[effect]);
+        AL10.alSourcePlay(source);
+    }
+
+    /**
+     * Open a music file, stopping the music playing, and fill and queue all music buffers.
+     *
+     * @param fileName  music file, or null to only stop the music
+     */
+    private void openMusic(String fileName) {
+        closeDecoder();
+        musicFile = fileName;
+        if (fileName == null) return;
+        decoder = openVorbis(fileName);
+        if (decoder == 0) return;
+        try (STBVorbisInfo info = STBVorbisInfo.malloc()) {
+            STBVorbis.stb_vorbis_get_info(decoder, info);
+            musicChannels = info.channels();
+            musicRate = info.sample_rate();
+        }
+        musicFormat = (musicChannels == 1) ? AL10.AL_FORMAT_MONO16 : AL10.AL_FORMAT_STEREO16;
+        if (pcm == null || pcm.capacity() < MUSIC_FRAMES*musicChannels) {
+            if (pcm != null) MemoryUtil.memFree(pcm);
+            pcm = MemoryUtil.memAllocShort(MUSIC_FRAMES*musicChannels);
+        }
+        for (int buffer : musicBuffers) {
+            if (!fillMusic(buffer)) {
+                closeDecoder();
+                return;
+            }
+            AL10.alSourceQueueBuffers(musicSource, buffer);
+        }
+        AL10.alSourcePlay(musicSource);
+    }
+
+    /**
+     * Stop the music source, unqueueing its buffers, and close the music's decoder; the music
+     * file stays requested, so that an undecodable file is not opened again.
+     */
+    private void closeDecoder() {
+        AL10.alSourceStop(musicSource);
+        AL10.alSourcei(musicSource, AL10.AL_BUFFER, 0);
+        if (decoder != 0) STBVorbis.stb_vorbis_close(decoder);
+        decoder = 0;
+    }
+
+    /**
+     * Refill and queue again the music buffers that have been played, restarting the music
+     * source if it ran dry in between.
+     */
+    private void streamMusic() {
+        int processed = AL10.alGetSourcei(musicSource, AL10.AL_BUFFERS_PROCESSED);
+        for (int i = 0; i < processed; i++) {
+            int buffer = AL10.alSourceUnqueueBuffers(musicSource);
+            if (!fillMusic(buffer)) {
+                closeDecoder();
+                return;
+            }
+            AL10.alSourceQueueBuffers(musicSource, buffer);
+        }
+        if (AL10.alGetSourcei(musicSource, AL10.AL_SOURCE_STATE) != AL10.AL_PLAYING) {
+            underruns++;
+            AL10.alSourcePlay(musicSource);
+        }
+    }
+
+    /**
+     * Decode the next chunk of music into a buffer, looping back to the start at the end.
+     *
+     * @param  buffer  music buffer
+     * @return         false if nothing could be decoded, the file being empty or corrupt
+     */
+    private boolean fillMusic(int buffer) {
+        int frames = 0;
+        boolean isRewound = false;
+        while (frames < MUSIC_FRAMES) {
+            pcm.limit(MUSIC_FRAMES*musicChannels).position(frames*musicChannels);
+            int decoded = STBVorbis.stb_vorbis_get_samples_short_interleaved(decoder, musicChannels, pcm);
+            if (decoded > 0) {
+                frames += decoded;
+                isRewound = false;
+                continue;
+            }
+            // end of the music: looping back to its start, unless nothing follows the start
+            if (isRewound || !STBVorbis.stb_vorbis_seek_start(decoder)) break;
+            isRewound = true;
+        }
+        if (frames == 0) return false;
+        pcm.position(0).limit(frames*musicChannels);
+        AL10.alBufferData(buffer, musicFormat, pcm, musicRate);
+        streamed++;
+        return true;
+    }
+
+    /**
+     * Open an Ogg Vorbis decoder on a file.
+     *
+     * @param  fileName  file name
+     * @return           decoder handle, or 0 if the file cannot be decoded
+     */
+    private static long openVorbis(String fileName) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer error = stack.mallocInt(1);
+            long handle = STBVorbis.stb_vorbis_open_filename(fileName, error, null);
+            if (handle == 0) System.out.println("Unable to decode " + fileName + ": error " + error.get(0));
+            return handle;
+        }
+    }
+
+    /**
+     * Load an effect into a new buffer: decoded entirely from its file if there is one,
+     * otherwise synthesized.
+     *
+     * @param  effect  effect
+     * @return         buffer
+     */
+    private static int loadEffect(int effect) {
+        int buffer = AL10.alGenBuffers();
+        String fileName = EFFECT_DIR + EFFECT_NAMES[effect] + ".ogg";
+        long handle = AssetPack.exists(fileName) ? openVorbis(AssetPack.toFile(fileName)) : 0;
+        if (handle != 0) {
+            try (STBVorbisInfo info = STBVorbisInfo.malloc()) {
+                STBVorbis.stb_vorbis_get_info(handle, info);
+                int channels = info.channels();
+                ShortBuffer samples = MemoryUtil.memAllocShort(STBVorbis.stb_vorbis_stream_length_in_samples(handle)*channels);
+                int frames = STBVorbis.stb_vorbis_get_samples_short_interleaved(handle, channels, samples);
+                samples.limit(frames*channels);
+                AL10.alBufferData(buffer, (channels == 1) ? AL10.AL_FORMAT_MONO16 : AL10.AL_FORMAT_STEREO16,
+                                  samples, info.sample_rate());
+                MemoryUtil.memFree(samples);
+            }
+            finally {
+                STBVorbis.stb_vorbis_close(handle);
+            }
+            return buffer;
+        }
+        short[] synthesized = synthesize(effect);
+        ShortBuffer samples = MemoryUtil.memAllocShort(synthesized.length);
+        samples.put(synthesized).flip();
+        AL10.alBufferData(buffer, AL10.AL_FORMAT_MONO16, samples, SYNTH_RATE);
+        MemoryUtil.memFree(samples);
+        return buffer;
+    }
+
+    /**
+     * Synthesize an effect as mono samples: a tone sliding between 2 frequencies, mixed with
+     * noise, under a decaying envelope.
+     *
+     * @param  effect  effect
+     * @return         16-bit samples at SYNTH_RATE
+     */
+    private static short[] synthesize(int effect) {
+        // per effect: duration (s), start and end frequency (Hz), and share of noise
+        double[][] specs = {{0.15, 900, 300, 0.7}, {0.12, 180, 60, 0.3}, {0.5, 80, 40, 0.8},
+                            {0.08, 1200, 400, 0.1}, {0.6, 400, 80, 0.4}};
+        double[] spec = specs[effect];
+        short[] samples = new short[(int) (spec[0]*SYNTH_RATE)];
+        Random rand = new Random(effect);
+        double phase = 0;
+        for (int i = 0; i < samples.length; i++) {
+            double t = (double) i / samples.length;
+            phase += 2*Math.PI*(spec[1] + (spec[2] - spec[1])*t) / SYNTH_RATE;
+            double envelope = Math.min(1, i / (0.005*SYNTH_RATE)) * Math.pow(1 - t, 2);
+            double value = (1 - spec[3])*Math.sin(phase) + spec[3]*(2*rand.nextDouble() - 1);
+            samples[i] = (short) Math.round(envelope*value*Short.MAX_VALUE*0.8);
+        }
+        return samples;
+    }
+
+    /**
+     * The entry point for testing audio headless: plays every effect, then streams music on
+     * a loopback device, reporting underruns; fails if any, or if nothing was heard.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String music = (args.length > 0) ? args[0] : null;
+        long seconds = (args.length > 1) ? Long.parseLong(args[1]) : 5;
+        if (!start(System.getProperty("shadow.audio", "null"))) System.exit(1);
+        for (int effect = 0; effect < EFFECT_NAMES.length; effect++) {
+            play(effect);
+            Thread.sleep(200);
+        }
+        if (music != null) playMusic(music);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        System.out.println(report());
+        boolean isSilent = running.mix != null && running.peak == 0;
+        int underruns = running.underruns;
+        stop();
+        if (underruns > 0 || isSilent) System.exit(1);
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Balance class - a set of the game's balance parameters: Demon's damage and attack range,
+ * enemies' speed range and sinkholes' damage. Other enemies' damage is scaled along with Demon's,
+ * so that Navec's damage remains twice Demon's. The default set holds the game's own values;
+ * other sets are only used by headless tools, such as the balance simulator, to try alternative
+ * values.
+ */
+
+public class Balance {
+    // archetype whose damage and range are balanced
+    public static final String DEMON_NAME = "Demon";
+    // the game's balance
+    public static final Balance DEFAULT = new Balance(demonStat(true), demonStat(false),
+                                                      Enemy.MIN_SPEED, Enemy.MAX_SPEED, Sinkhole.DAMAGE_POINTS);
+
+    /**
+     * Properties
+     */
+    // Demon's damage and attack range
+    private final double demonDamage, demonRange;
+    // enemies' speed range
+    private final double minSpeed, maxSpeed;
+    // sinkholes' damage
+    private final int sinkDamage;
+    // enemy archetypes adjusted to this balance, by name
+    private final Map<String, EnemyType> types = new ConcurrentHashMap<>();
+
+    /**
+     * Balance constructor.
+     *
+     * @param demonDamage  Demon's damage point
+     * @param demonRange   Demon's attacking range
+     * @param minSpeed     minimum speed of an aggressive enemy
+     * @param maxSpeed     maximum speed of an aggressive enemy
+     * @param sinkDamage   sinkhole's damage point on player
+     */
+    public Balance(double demonDamage, double demonRange, double minSpeed, double maxSpeed, int sinkDamage) {
+        this.demonDamage = demonDamage;
+        this.demonRange = demonRange;
+        this.minSpeed = minSpeed;
+        this.maxSpeed = maxSpeed;
+        this.sinkDamage = sinkDamage;
+    }
+
+    /**
+     * Get Demon's own damage or range, as defined in the enemies' data file.
+     *
+     * @param  isDamage  true for the damage, false for the range
+     * @return           Demon's stat, or 0 if there is no Demon archetype
+     */
+    private static double demonStat(boolean isDamage) {
+        EnemyType demon = EnemyType.get(DEMON_NAME);
+        if (demon == null) return 0;
+        return isDamage ? demon.getDamage() : demon.getRange();
+    }
+
+    /**
+     * Get an enemy archetype adjusted to this balance: Demon takes this balance's damage and
+     * range, while other enemies' damage is scaled by as much as Demon's. Each archetype is only
+     * adjusted once per balance, and is shared by all enemies created with this balance.
+     *
+     * @param  type  enemy's archetype
+     * @return       the adjusted archetype, the same as the given one if unchanged
+     * @see    EnemyType
+     */
+    public EnemyType apply(EnemyType type) {
+        return types.computeIfAbsent(type.getName(), name -> {
+            EnemyType demon = EnemyType.get(DEMON_NAME);
+            if (demon == null) return type;
+            if (name.equals(DEMON_NAME)) return type.withStats(demonDamage, demonRange);
+            double scale = (demon.getDamage() == 0) ? 1 : demonDamage / demon.getDamage();
+            return type.withStats(type.getDamage() * scale, type.getRange());
+        });
+    }
+
+    /**
+     * Get Demon's damage point.
+     *
+     * @return Demon's damage
+     */
+    public double getDemonDamage() {
+        return demonDamage;
+    }
+
+    /**
+     * Get Demon's attacking range.
+     *
+     * @return Demon's range
+     */
+    public double getDemonRange() {
+        return demonRange;
+    }
+
+    /**
+     * Get minimum speed of an aggressive enemy.
+     *
+     * @return minimum speed
+     */
+    public double getMinSpeed() {
+        return minSpeed;
+    }
+
+    /**
+     * Get maximum speed of an aggressive enemy.
+     *
+     * @return maximum speed
+     */
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    /**
+     * Get sinkhole's damage point on player.
+     *
+     * @return sinkhole's damage
+     */
+    public int getSinkDamage() {
+        return sinkDamage;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("damage %.0f, range %.0f, speed %.2f-%.2f, sinkhole %d",
+                             demonDamage, demonRange, minSpeed, maxSpeed, sinkDamage);
+    }
+}
@@ -0,0 +1,198 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * BalanceSimulator class - a headless batch runner playing many independent, seeded runs of a
+ * level for each set of balance parameters, with the player driven by a seeking bot. Runs are
+ * spread over a work-stealing pool using every core, and the same seeds are used for every
+ * parameter set so that sets are compared on identical games. For each set, it reports the win
+ * rate, the mean time to kill Navec (over won runs), the mean damage taken and the death rate.
+ * <p>
+ * Usage: BalanceSimulator [runs per set] [seed] [parameter file]
+ * <p>
+ * Each line of the parameter file is a set: demonDamage,demonRange,minSpeed,maxSpeed,sinkDamage.
+ * Without a file, a grid around the game's own balance is simulated.
+ */
+
+public class BalanceSimulator {
+    // level played, and longest run before giving up, in ticks
+    private static final int LEVEL_NUM = 1;
+    private static final int MAX_TICKS = 60*180;
+    // defaults
+    private static final int DEFAULT_RUNS = 100;
+    // default grid: Demon's damage and range, and enemies' speed scale
+    private static final double[] GRID_DAMAGE_SCALES = {0.5, 1, 1.5};
+    private static final double[] GRID_RANGE_SCALES = {2.0/3, 1, 4.0/3};
+    private static final double[] GRID_SPEED_SCALES = {0.5, 1, 1.5};
+    private static final double[] GRID_SINK_SCALES = {2.0/3, 1, 4.0/3};
+
+    /**
+     * Result class - the outcome of a single run.
+     */
+    private static class Result {
+        // outcome, ticks played and damage taken by the player
+        private final boolean isWon, isKilled;
+        private final int ticks;
+        private final double damageTaken;
+
+        /**
+         * Result constructor.
+         *
+         * @param isWon        whether Navec was killed
+         * @param isKilled     whether the player was killed
+         * @param ticks        ticks played
+         * @param damageTaken  damage taken by the player
+         */
+        private Result(boolean isWon, boolean isKilled, int ticks, double damageTaken) {
+            this.isWon = isWon;
+            this.isKilled = isKilled;
+            this.ticks = ticks;
+            this.damageTaken = damageTaken;
+        }
+    }
+
+    /**
+     * BalanceSimulator is a static-only class.
+     */
+    private BalanceSimulator() {}
+
+    /**
+     * Play a single run of the level until it is won, the player is killed, or time runs out.
+     *
+     * @param  balance  balance parameters
+     * @param  seed     seed of the run's random source
+     * @return          the run's result
+     */
+    private static Result play(Balance balance, long seed) {
+        Random rand = new Random(seed);
+        Player player = new Player();
+        Level level = LevelLoader.load(LEVEL_NUM, new Player[] {player}, balance, rand);
+        PlayerInput[] inputs = {new PlayerInput()};
+
+        // the bot avoids every block on its way towards the nearest enemy
+        FlowField field = Bot.createSeekField(level, player);
+        Bot bot = new Bot(Bot.Pattern.SEEK, new Random(rand.nextLong()));
+        bot.seek(field, level.getEnemies());
+
+        int tick = 0;
+        while (tick < MAX_TICKS && !level.isCompleted() && !player.isKilled()) {
+            field.update(level.getEnemies());
+            bot.act(player, inputs[0]);
+            level.tick(inputs);
+            tick++;
+        }
+        level.dispose();
+        return new Result(level.isCompleted(), player.isKilled(), tick,
+                          player.getMaxHealth() - player.getHealth());
+    }
+
+    /**
+     * Build the default grid of parameter sets around the game's own balance.
+     *
+     * @return parameter sets
+     */
+    private static List<Balance> defaultGrid() {
+        Balance base = Balance.DEFAULT;
+        List<Balance> sets = new ArrayList<>();
+        for (double damage : GRID_DAMAGE_SCALES)
+            for (double range : GRID_RANGE_SCALES)
+                for (double speed : GRID_SPEED_SCALES)
+                    for (double sink : GRID_SINK_SCALES)
+                        sets.add(new Balance(base.getDemonDamage()*damage, base.getDemonRange()*range,
+                                             base.getMinSpeed()*speed, base.getMaxSpeed()*speed,
+                                             (int) Math.round(base.getSinkDamage()*sink)));
+        return sets;
+    }
+
+    /**
+     * Read parameter sets from a file; blank lines and lines starting with '#' are skipped.
+     *
+     * @param  fileName  parameter file name
+     * @return           parameter sets
+     * @throws IOException if the file cannot be read
+     * @throws NumberFormatException if a parameter is not a number
+     */
+    private static List<Balance> readSets(String fileName) throws IOException {
+        List<Balance> sets = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] values = line.split(",");
+                sets.add(new Balance(Double.parseDouble(values[0].trim()), Double.parseDouble(values[1].trim()),
+                                     Double.parseDouble(values[2].trim()), Double.parseDouble(values[3].trim()),
+                                     Integer.parseInt(values[4].trim())));
+            }
+        }
+        return sets;
+    }
+
+    /**
+     * The entry point for the balance simulator.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int runs = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 0;
+        List<Balance> sets;
+        try {
+            sets = (args.length > 2) ? readSets(args[2]) : defaultGrid();
+        }
+        catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return;
+        }
+        Sprites.setHeadless(true);
+        LiveObject.setLogging(false);
+
+        // same seeds for every set
+        long[] seeds = new long[runs];
+        Random seeder = new Random(seed);
+        for (int run = 0; run < runs; run++) seeds[run] = seeder.nextLong();
+
+        ExecutorService pool = Executors.newWorkStealingPool();
+        List<List<Future<Result>>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (Balance balance : sets) {
+            List<Future<Result>> setResults = new ArrayList<>();
+            for (long runSeed : seeds) setResults.add(pool.submit(() -> play(balance, runSeed)));
+            results.add(setResults);
+        }
+
+        System.out.printf("%-52s %7s %9s %8s %7s%n", "Parameters", "Win %", "TTK (s)", "Damage", "Death %");
+        try {
+            for (int i = 0; i < sets.size(); i++) {
+                int wins = 0, deaths = 0;
+                long winTicks = 0;
+                double damage = 0;
+                for (Future<Result> future : results.get(i)) {
+                    Result result = future.get();
+                    if (result.isWon) {
+                        wins++;
+                        winTicks += result.ticks;
+                    }
+                    if (result.isKilled) deaths++;
+                    damage += result.damageTaken;
+                }
+                System.out.printf("%-52s %7.1f %9s %8.1f %7.1f%n", sets.get(i), 100.0*wins/runs,
+                                  (wins > 0) ? String.format("%.1f", winTicks / (double) wins / 60) : "-",
+                                  damage/runs, 100.0*deaths/runs);
+            }
+        }
+        catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d runs in %.1f s (%.0f runs/s)%n", sets.size()*runs, seconds, sets.size()*runs / seconds);
+    }
+}
@@ -0,0 +1,200 @@
+import java.util.Random;
+
+/**
+ * Bot class - a scripted agent driving a player through synthetic input, used by headless
+ * tools in place of a keyboard. Each bot follows one of the movement patterns below.
+ */
+
+public class Bot {
+    // how often a random walker picks a new direction, in frames
+    private static final int WALK_FRAMES = 30;
+    // movement flags in clockwise order, used to turn when following walls
+    private static final int[] MOVES = {PlayerInput.UP, PlayerInput.RIGHT, PlayerInput.DOWN, PlayerInput.LEFT};
+    // distance between centers within which a seeking bot attacks its target
+    private static final double SEEK_ATTACK_RANGE = 60;
+    // frames a blocked seeking bot walks randomly before following the field again
+    private static final int UNSTICK_FRAMES = 10;
+
+    /**
+     * Movement patterns of a bot.
+     */
+    public enum Pattern {
+        // walks in a random direction, changing it every WALK_FRAMES
+        RANDOM_WALK,
+        // walks straight on, turning clockwise whenever it is blocked
+        WALL_HUG,
+        // walks randomly while attacking as often as possible
+        ATTACK_SPAM,
+        // follows a flow field towards the nearest target, attacking once close enough
+        SEEK
+    }
+
+    /**
+     * Properties
+     */
+    // pattern, random source and current move
+    private final Pattern pattern;
+    private final Random rand;
+    private int move;
+    private int moveFrames = 0;
+    // position in the previous frame, to detect being blocked
+    private double xPrev = Double.NaN, yPrev = Double.NaN;
+    // flow field and targets followed by a seeking bot
+    private FlowField field = null;
+    private LiveObject[] targets = new LiveObject[0];
+    private int unstickFrames = 0;
+
+    /**
+     * Bot constructor.
+     *
+     * @param pattern  movement pattern
+     * @param rand     random source, seeded by the caller for reproducible runs
+     */
+    public Bot(Pattern pattern, Random rand) {
+        this.pattern = pattern;
+        this.rand = rand;
+        this.move = MOVES[rand.nextInt(MOVES.length)];
+    }
+
+    /**
+     * Get bot's movement pattern.
+     *
+     * @return pattern
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Create a flow field over a level for seeking bots, avoiding all of its blocks with
+     * enough clearance for the given player.
+     *
+     * @param  level   the level
+     * @param  player  player controlled by the bots, for the clearance
+     * @return         flow field, to be directed towards the targets
+     * @see    FlowField
+     */
+    public static FlowField createSeekField(Level level, Player player) {
+        ObstructingBlock[] obstructions = level.getObstructions();
+        Sinkhole[] sinks = level.getSinkholes();
+        InanimateObject[] blocks = new InanimateObject[obstructions.length + sinks.length];
+        System.arraycopy(obstructions, 0, blocks, 0, obstructions.length);
+        System.arraycopy(sinks, 0, blocks, obstructions.length, sinks.length);
+        int[] corners = level.getCorners();
+        return new FlowField(corners[0], corners[1], corners[2], corners[3],
+                             player.getWidth(), player.getHeight(), blocks);
+    }
+
+    /**
+     * Set the targets a seeking bot goes after, and the flow field directing towards them.
+     * The field is updated by the caller, as it can be shared by several bots.
+     *
+     * @param field    flow field directing towards the targets
+     * @param targets  live objects to go after
+     * @see   FlowField
+     */
+    public void seek(FlowField field, LiveObject[] targets) {
+        this.field = field;
+        this.targets = targets;
+    }
+
+    /**
+     * Decide the bot's input for the next frame based on its player's state.
+     *
+     * @param player  the player controlled by the bot
+     * @param input   input to be set
+     * @see   PlayerInput
+     */
+    public void act(Player player, PlayerInput input) {
+        boolean isBlocked = player.getX() == xPrev && player.getY() == yPrev;
+        xPrev = player.getX();
+        yPrev = player.getY();
+        int bits;
+        switch (pattern) {
+            case WALL_HUG:
+                if (isBlocked) move = MOVES[(indexOf(move) + 1) % MOVES.length];
+                bits = move;
+                break;
+            case ATTACK_SPAM:
+                bits = walk() | ((player.getCoolDown() == 0) ? PlayerInput.ATTACK : 0);
+                break;
+            case SEEK:
+                bits = (field == null) ? walk() : follow(player, isBlocked);
+                break;
+            default:
+                bits = walk();
+        }
+        input.setBits(bits);
+    }
+
+    /**
+     * Seeking: step along the flow field, attacking when a target is within range and the
+     * player has cooled down. A blocked bot takes a random step to get loose.
+     *
+     * @param  player     the player controlled by the bot
+     * @param  isBlocked  whether the player has not moved since the previous frame
+     * @return            input flags
+     */
+    private int follow(Player player, boolean isBlocked) {
+        if (isBlocked && unstickFrames == 0) {
+            unstickFrames = UNSTICK_FRAMES;
+            move = MOVES[rand.nextInt(MOVES.length)];
+        }
+        int bits;
+        char direction = (unstickFrames > 0) ? FlowField.NONE : field.directionAt(player.getXCenter(), player.getYCenter());
+        if (unstickFrames > 0) unstickFrames--;
+        switch (direction) {
+            case 'l':
+                bits = PlayerInput.LEFT;
+                break;
+            case 'r':
+                bits = PlayerInput.RIGHT;
+                break;
+            // the field's 'u' heads towards larger y, i.e. down the screen
+            case 'u':
+                bits = PlayerInput.DOWN;
+                break;
+            case 'd':
+                bits = PlayerInput.UP;
+                break;
+            default:
+                bits = move;
+        }
+        for (LiveObject target : targets) {
+            if (target.isKilled()) continue;
+            double dx = target.getXCenter() - player.getXCenter(), dy = target.getYCenter() - player.getYCenter();
+            if (dx*dx + dy*dy > SEEK_ATTACK_RANGE*SEEK_ATTACK_RANGE) continue;
+            // heading straight at the target once the field has led the bot next to it
+            bits = (Math.abs(dx) > Math.abs(dy)) ? ((dx < 0) ? PlayerInput.LEFT : PlayerInput.RIGHT)
+                                                 : ((dy < 0) ? PlayerInput.UP : PlayerInput.DOWN);
+            if (player.getCoolDown() == 0) bits |= PlayerInput.ATTACK;
+            break;
+        }
+        return bits;
+    }
+
+    /**
+     * Random walk: keep the current move, picking a new random one every WALK_FRAMES.
+     *
+     * @return movement flag
+     */
+    private int walk() {
+        if (++moveFrames >= WALK_FRAMES) {
+            moveFrames = 0;
+            move = MOVES[rand.nextInt(MOVES.length)];
+        }
+        return move;
+    }
+
+    /**
+     * Get the index of a movement flag in clockwise order.
+     *
+     * @param  flag  movement flag
+     * @return       index in MOVES
+     */
+    private static int indexOf(int flag) {
+        for (int i = 0; i < MOVES.length; i++)
+            if (MOVES[i] == flag) return i;
+        return 0;
+    }
+}
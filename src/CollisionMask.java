@@ -0,0 +1,157 @@
+import java.awt.image.BufferedImage;
+
+/**
+ * CollisionMask class - the opaque pixels of a sprite, as one bit per pixel packed into longs,
+ * row by row. Bounding boxes are still tested first; only when they overlap are the masks of
+ * both sprites compared, by shifting the rows of one into the columns of the other and ANDing
+ * them a word at a time, so that sprites never collide on their transparent corners.
+ */
+
+public class CollisionMask {
+    // pixels with an alpha above this are opaque (the invincible sprites are translucent)
+    private static final int ALPHA_THRESHOLD = 0;
+
+    /**
+     * Properties
+     */
+    // size in pixels, and words per row
+    private final int width, height, words;
+    // bit x%64 of word y*words + x/64 is set if pixel (x, y) is opaque
+    private final long[] bits;
+
+    /**
+     * Collision mask constructor, with no opaque pixel.
+     *
+     * @param width   width in pixels
+     * @param height  height in pixels
+     */
+    public CollisionMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.words = (width + Long.SIZE-1) / Long.SIZE;
+        this.bits = new long[words*height];
+    }
+
+    /**
+     * Build the collision mask of an image, from its alpha channel.
+     *
+     * @param  image  sprite's image
+     * @return        collision mask of the image's opaque pixels
+     */
+    public static CollisionMask fromImage(BufferedImage image) {
+        CollisionMask mask = new CollisionMask(image.getWidth(), image.getHeight());
+        int[] row = new int[mask.width];
+        for (int y = 0; y < mask.height; y++) {
+            image.getRGB(0, y, mask.width, 1, row, 0, mask.width);
+            for (int x = 0; x < mask.width; x++)
+                if ((row[x] >>> 24) > ALPHA_THRESHOLD) mask.set(x, y);
+        }
+        return mask;
+    }
+
+    /**
+     * Get the mask's width.
+     *
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the mask's height.
+     *
+     * @return height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Set a pixel as opaque.
+     *
+     * @param x  column
+     * @param y  row
+     */
+    public void set(int x, int y) {
+        bits[y*words + x/Long.SIZE] |= 1L << x;
+    }
+
+    /**
+     * Whether a pixel is opaque.
+     *
+     * @param  x  column
+     * @param  y  row
+     * @return    true if the pixel is opaque
+     */
+    public boolean get(int x, int y) {
+        return (bits[y*words + x/Long.SIZE] & (1L << x)) != 0;
+    }
+
+    /**
+     * Rotate the mask clockwise by a number of quarter turns, as a sprite drawn with that
+     * rotation (about its center).
+     *
+     * @param  quarterTurns  number of quarter turns
+     * @return               rotated mask, or this mask if not rotated
+     */
+    public CollisionMask rotate(int quarterTurns) {
+        int turns = Math.floorMod(quarterTurns, 4);
+        if (turns == 0) return this;
+        boolean isSideways = turns % 2 == 1;
+        CollisionMask rotated = isSideways ? new CollisionMask(height, width) : new CollisionMask(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (!get(x, y)) continue;
+                if (turns == 1) rotated.set(height-1 - y, x);
+                else if (turns == 2) rotated.set(width-1 - x, height-1 - y);
+                else rotated.set(y, width-1 - x);
+            }
+        }
+        return rotated;
+    }
+
+    /**
+     * Get 64 bits of a row, starting at a column; columns outside of the mask are transparent.
+     *
+     * @param  y  row
+     * @param  x  first column, at least -63
+     * @return    bit i is set if pixel (x + i, y) is opaque
+     */
+    private long bitsAt(int y, int x) {
+        int rowStart = y*words;
+        if (x < 0) return bits[rowStart] << -x;
+        int word = x / Long.SIZE, shift = x % Long.SIZE;
+        if (word >= words) return 0;
+        long low = bits[rowStart + word] >>> shift;
+        if (shift == 0 || word+1 >= words) return low;
+        return low | (bits[rowStart + word+1] << (Long.SIZE - shift));
+    }
+
+    /**
+     * Whether 2 masks have an opaque pixel in common, at the given positions; their positions
+     * are rounded to whole pixels relative to each other.
+     *
+     * @param  a   first mask
+     * @param  xA  first mask's x-position
+     * @param  yA  first mask's y-position
+     * @param  b   second mask
+     * @param  xB  second mask's x-position
+     * @param  yB  second mask's y-position
+     * @return     true if the masks overlap
+     */
+    public static boolean intersects(CollisionMask a, double xA, double yA, CollisionMask b, double xB, double yB) {
+        // position of b relative to a, and the columns and rows of a they have in common
+        int dx = (int) Math.round(xB - xA), dy = (int) Math.round(yB - yA);
+        int xStart = Math.max(0, dx), xEnd = Math.min(a.width, dx + b.width);
+        int yStart = Math.max(0, dy), yEnd = Math.min(a.height, dy + b.height);
+        if (xStart >= xEnd || yStart >= yEnd) return false;
+        int wordStart = xStart / Long.SIZE, wordEnd = (xEnd-1) / Long.SIZE;
+        for (int y = yStart; y < yEnd; y++) {
+            int rowStart = y*a.words;
+            for (int word = wordStart; word <= wordEnd; word++)
+                if ((a.bits[rowStart + word] & b.bitsAt(y - dy, word*Long.SIZE - dx)) != 0) return true;
+        }
+        return false;
+    }
+}
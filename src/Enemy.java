@@ -1,61 +1,123 @@
-import bagel.DrawOptions;
 import bagel.Image;
 import bagel.util.Rectangle;
 
 import java.util.Random;
 
 /**
- * Class Enemy representing live obstacles for the player.
- * The class has 2 child classes - Demon and Navec.
+ * Class Enemy representing live obstacles for the player. Every enemy is of an
+ * archetype (such as Demon or Navec) defining its stats and sprites, shared by all
+ * enemies of its kind; an enemy itself only holds its own changing state.
  */
 
-public abstract class Enemy extends LiveObject {
+public class Enemy extends LiveObject {
     // direction and speed constants
     private static final char[] DIRECTIONS = {'l', 'r', 'u', 'd'};
-    private static final double MIN_SPEED = 0.2;
-    private static final double MAX_SPEED = 0.7;
+    public static final double MIN_SPEED = 0.2;
+    public static final double MAX_SPEED = 0.7;
+    // distance within which an aggressive enemy chases the player
+    private static final double CHASE_RANGE = 300;
 
     /**
      * Properties
      */
-    // attack (fire) image, and invincibility state
-    private final Image attackImg;
-    private String invincibleString = "";
-    // attacking range
-    private final double range;
+    // enemy's archetype, and invincibility state
+    private final EnemyType type;
+    private boolean isInvincibleSprite = false;
+    // attack (fire) of the latest frame, drawn if enemy is attacking
+    private boolean isAttacking = false;
+    private double xAttack, yAttack, attackRotation;
     // speed
     private double speed;
     private final double initSpeed;
+    // position the enemy was spawned at, as listed in the level's csv file
+    private double xSpawn, ySpawn;
+    // end of the delay before enemy may fire its next projectile
+    private final TimingWheel.Timer fireTimer = new TimingWheel.Timer(null);
 
     /**
-     * Enemy's constructor. Navec and Demon class will be initialized by calling this as
-     * the parent's constructor. Enemy's constructor will only be passed with constant
-     * properties of these 2 child classes.
+     * Enemy's constructor, with the game's own balance.
      *
-     * @param enemyImg      enemy's displayed image
-     * @param name          enemy's name
-     * @param filename      enemy's naming in files
-     * @param damage        enemy's damage point
-     * @param maxHealth     enemy's maximum health point
-     * @param range         enemy's attacking range
-     * @param isAggressive  whether enemy's aggressive (moving) or not
+     * @param type  enemy's archetype
+     * @see   EnemyType
      */
-    protected Enemy(Image enemyImg, String name, String filename,
-                    double damage, double maxHealth, double range, boolean isAggressive) {
-        // initialize from LiveObject constructor and the range
-        super(enemyImg, name, filename, damage, maxHealth);
-        this.range = range;
-        Random rand = new Random();
+    public Enemy(EnemyType type) {
+        this(type, Balance.DEFAULT, new Random());
+    }
+
+    /**
+     * Enemy's constructor. Enemy's stats are those of its archetype, as adjusted by
+     * the given balance parameters.
+     *
+     * @param type     enemy's archetype
+     * @param balance  balance parameters
+     * @param rand     random source for enemy's state, direction and speed
+     * @see   EnemyType
+     * @see   Balance
+     */
+    public Enemy(EnemyType type, Balance balance, Random rand) {
+        // initialize from LiveObject constructor and the archetype
+        super(type.getSprite(false, true), rand);
+        this.type = balance.apply(type);
 
         // state
-        if (!isAggressive) isAggressive = (rand.nextInt(2) != 0);
-        super.setHealth(maxHealth);
-        attackImg = new Image("res/" + filename + "/" + filename + "Fire.png");
+        double aggression = type.getAggression();
+        boolean isAggressive = aggression >= 1 || (aggression > 0 && rand.nextDouble() < aggression);
+        super.setHealth(type.getMaxHealth());
 
         // randomizing direction
         setDirection(DIRECTIONS[rand.nextInt(DIRECTIONS.length)]);
         // randomizing speed
-        initSpeed = (isAggressive) ? MIN_SPEED + Math.random() * (MAX_SPEED - MIN_SPEED) : 0;
+        double minSpeed = balance.getMinSpeed(), maxSpeed = balance.getMaxSpeed();
+        initSpeed = (isAggressive) ? minSpeed + rand.nextDouble() * (maxSpeed - minSpeed) : 0;
+    }
+
+    /**
+     * Get enemy's archetype.
+     *
+     * @return archetype
+     */
+    public EnemyType getType() {
+        return type;
+    }
+
+    /**
+     * Get enemy's name, that of its archetype.
+     *
+     * @return enemy's name
+     */
+    @Override
+    public String getName() {
+        return type.getName();
+    }
+
+    /**
+     * Get enemy's naming in the files.
+     *
+     * @return enemy's file name
+     */
+    @Override
+    public String getFilename() {
+        return type.getFilename();
+    }
+
+    /**
+     * Get enemy's damage point.
+     *
+     * @return enemy's damage
+     */
+    @Override
+    public double getDamage() {
+        return type.getDamage();
+    }
+
+    /**
+     * Get enemy's maximum health point.
+     *
+     * @return enemy's maximum health
+     */
+    @Override
+    public double getMaxHealth() {
+        return type.getMaxHealth();
     }
 
     /**
@@ -67,6 +129,55 @@ public abstract class Enemy extends LiveObject {
         return speed;
     }
 
+    /**
+     * Get whether enemy never moves, i.e. it is not aggressive.
+     *
+     * @return true if stationary
+     */
+    public boolean isStationary() {
+        return initSpeed == 0;
+    }
+
+    /**
+     * Get the distance from a player (between centers) within which enemy acts on it, by
+     * chasing, attacking or firing; further away, enemy only wanders.
+     *
+     * @return enemy's reach
+     */
+    public double getReach() {
+        return Math.max(isStationary() ? 0 : CHASE_RANGE, Math.max(type.getRange(), type.getFireRange()));
+    }
+
+    /**
+     * Get x-position the enemy was spawned at.
+     *
+     * @return spawn x-position
+     */
+    public double getXSpawn() {
+        return xSpawn;
+    }
+
+    /**
+     * Get y-position the enemy was spawned at.
+     *
+     * @return spawn y-position
+     */
+    public double getYSpawn() {
+        return ySpawn;
+    }
+
+    /**
+     * Set the position the enemy is spawned at, and move the enemy there.
+     *
+     * @param x  spawn x-position
+     * @param y  spawn y-position
+     */
+    protected void setSpawn(double x, double y) {
+        xSpawn = x;
+        ySpawn = y;
+        setPos(x, y);
+    }
+
     /**
      * Get Euclidean distance squared between monster and another object
      * (from the center); used to determine whether player has entered the
@@ -87,8 +198,7 @@ public abstract class Enemy extends LiveObject {
      */
     @Override
     protected void resetImage() {
-        super.setImage(new Image("res/" + super.getFilename() + "/" + super.getFilename()
-                                 + invincibleString + super.getDirectionLR() + ".png"));
+        super.setImage(type.getSprite(isInvincibleSprite, "Right".equals(super.getDirectionLR())));
     }
 
     /**
@@ -108,28 +218,37 @@ public abstract class Enemy extends LiveObject {
     @Override
     protected void beginInvincible() {
         super.beginInvincible();
-        invincibleString = "Invincible";
+        isInvincibleSprite = true;
         resetImage();
     }
 
     /**
-     * Decreasing invincible frames by 1 from monster. If it has reached 0, then
-     * monster's image will display its normal attack state again.
+     * Set the timing wheel enemy's timers are scheduled on, moving any scheduled timer to it.
+     *
+     * @param timers  level's timing wheel
+     * @see   TimingWheel
      */
     @Override
-    protected void invincibleFrameDecrement() {
-        super.invincibleFrameDecrement();
-        if (super.getInvincibleFrame() <= 0) {
-            invincibleString = "";
-            resetImage();
-        }
+    protected void setTimers(TimingWheel timers) {
+        super.setTimers(timers);
+        timers.adopt(fireTimer);
+    }
+
+    /**
+     * Once monster's invincible frames have run out, its image will display its
+     * normal state again.
+     */
+    @Override
+    protected void endInvincible() {
+        isInvincibleSprite = false;
+        resetImage();
     }
 
     /**
      * Check enemy's collision with an inanimate block. If enemy has collided,
      * it will move in the opposite direction.
      *
-     * @param block inanimate object
+     * @param block inanimate object, or null if enemy has exceeded the border
      */
     @Override
     protected void processCollision(InanimateObject block) {
@@ -150,32 +269,50 @@ public abstract class Enemy extends LiveObject {
     }
 
     /**
-     * Method processing enemy's movements. If it has collided with anything, be it
-     * a block or the borders, it will head for the opposite direction.
+     * Steer enemy along the level's flow field if it is aggressive and the player is within
+     * its chase range; otherwise it keeps moving in its current direction.
+     *
+     * @param field   flow field directing towards the player
+     * @param player  the player
+     * @see   FlowField
+     */
+    protected void chase(FlowField field, LiveObject player) {
+        if (initSpeed == 0 || getDistSq(player.getXCenter(), player.getYCenter()) > CHASE_RANGE*CHASE_RANGE)
+            return;
+        char direction = field.directionAt(getXCenter(), getYCenter());
+        if (direction != FlowField.NONE && direction != getDirection()) setDirection(direction);
+    }
+
+    /**
+     * Method processing enemy's movements by a given distance in its current direction.
+     * Level splits a frame's movement into sub-steps with this method, so that collisions
+     * with blocks and borders are checked along the whole path.
+     *
+     * @param distance distance moved, at most enemy's speed
      */
-    protected void processMovement() {
+    protected void processMovement(double distance) {
         double xEnemy = getX(), yEnemy = getY();
         // enemy's movement
         switch (getDirection()) {
             case 'l':
-                xEnemy -= getSpeed();
+                xEnemy -= distance;
                 break;
             case 'r':
-                xEnemy += getSpeed();
+                xEnemy += distance;
                 break;
             case 'd':
-                yEnemy -= getSpeed();
+                yEnemy -= distance;
                 break;
             case 'u':
-                yEnemy += getSpeed();
+                yEnemy += distance;
         }
         setPos(xEnemy, yEnemy);
     }
 
     /**
-     * Method processes attacks by an enemy on the player. It detects when player
+     * Method processes attacks by an enemy on a player. It detects when player
      * has entered the attack range to unleash the attack, and if any damage is
-     * inflicted on player or not.
+     * inflicted on player or not. The attack is recorded to be drawn later on.
      *
      * @param player the player
      */
@@ -184,52 +321,106 @@ public abstract class Enemy extends LiveObject {
         // position of enemy and its attack, as well as of player
         double xEnemy = getX();
         double yEnemy = getY();
-        double xAttack, yAttack;
         double xPlayer = player.getX(), yPlayer = player.getY();
+        String attackPath = type.getAttackPath();
+        double attackWidth = Sprites.getWidth(attackPath), attackHeight = Sprites.getHeight(attackPath);
         // enemy's attack direction
-        double rotationAngle, pi = Math.PI;
-        DrawOptions rotation = new DrawOptions();
+        double pi = Math.PI;
         double distSq = getDistSq(player.getXCenter(), player.getYCenter());
 
-        // player within attack range of enemy
-        if (distSq <= Math.pow(range, 2)) {
-            // top left
-            if (xPlayer <= xEnemy && yPlayer <= yEnemy) {
-                xAttack = xEnemy - attackImg.getWidth();
-                yAttack = yEnemy - attackImg.getHeight();
-                rotationAngle = 0;
-            }
-            // bottom left
-            else if (xPlayer <= xEnemy) {
-                xAttack = xEnemy - attackImg.getWidth();
-                yAttack = yEnemy + getImage().getHeight();
-                rotationAngle = 3 * pi / 2;
-            }
-            // top right
-            else if (yPlayer <= yEnemy) {
-                xAttack = xEnemy + getImage().getWidth();
-                yAttack = yEnemy - attackImg.getHeight();
-                rotationAngle = pi / 2;
-            }
-            // bottom right
-            else {
-                xAttack = xEnemy + getImage().getWidth();
-                yAttack = yEnemy + getImage().getHeight();
-                rotationAngle = pi;
-            }
-            attackImg.drawFromTopLeft(xAttack, yAttack, rotation.setRotation(rotationAngle));
-
-            // attack on player
-            Rectangle attack = new Rectangle(xAttack, yAttack, attackImg.getWidth(), attackImg.getHeight());
-            if (player.getInvincibleFrame() == 0 && attack.intersects(player.getRectangle())) {
-                player.setHealth(player.getHealth() - getDamage());
-                player.beginInvincible();
-                attackLog(player);
-            }
+        // player not within attack range of enemy
+        if (distSq > Math.pow(type.getRange(), 2)) return;
+        // top left
+        if (xPlayer <= xEnemy && yPlayer <= yEnemy) {
+            xAttack = xEnemy - attackWidth;
+            yAttack = yEnemy - attackHeight;
+            attackRotation = 0;
         }
-        // enemy's invincibility frames counting down
-        invincibleFrameDecrement();
-        // draw enemy
-        getImage().drawFromTopLeft(getX(), getY());
+        // bottom left
+        else if (xPlayer <= xEnemy) {
+            xAttack = xEnemy - attackWidth;
+            yAttack = yEnemy + getHeight();
+            attackRotation = 3 * pi / 2;
+        }
+        // top right
+        else if (yPlayer <= yEnemy) {
+            xAttack = xEnemy + getWidth();
+            yAttack = yEnemy - attackHeight;
+            attackRotation = pi / 2;
+        }
+        // bottom right
+        else {
+            xAttack = xEnemy + getWidth();
+            yAttack = yEnemy + getHeight();
+            attackRotation = pi;
+        }
+        isAttacking = true;
+
+        // attack on player, where the attack's sprite is drawn rotated about its center: both its
+        // box and its mask are rotated, their width and height swapped by odd quarter turns
+        int quarterTurns = (int) Math.round(attackRotation / (pi/2));
+        double fireWidth = (quarterTurns % 2 == 0) ? attackWidth : attackHeight;
+        double fireHeight = (quarterTurns % 2 == 0) ? attackHeight : attackWidth;
+        double xFire = xAttack + (attackWidth - fireWidth)/2, yFire = yAttack + (attackHeight - fireHeight)/2;
+        Rectangle attack = new Rectangle(xFire, yFire, fireWidth, fireHeight);
+        CollisionMask fire = Sprites.getMask(attackPath, quarterTurns);
+        if (player.getInvincibleFrame() == 0 && attack.intersects(player.getRectangle()) &&
+            player.overlaps(fire, xFire, yFire)) {
+            player.setHealth(player.getHealth() - getDamage());
+            player.beginInvincible();
+            attackLog(player);
+        }
+    }
+
+    /**
+     * Fire a projectile at a player, towards its center, if enemy's kind fires projectiles,
+     * the player is within its fire range, and enemy has not fired too recently.
+     *
+     * @param player       the player
+     * @param projectiles  level's projectiles
+     * @param index        enemy's index in the level
+     * @see   Projectiles
+     */
+    protected void fire(LiveObject player, Projectiles projectiles, int index) {
+        if (type.getFireFrames() == 0 || fireTimer.isScheduled()) return;
+        double dx = player.getXCenter() - getXCenter(), dy = player.getYCenter() - getYCenter();
+        double distSq = dx*dx + dy*dy;
+        if (distSq == 0 || distSq > Math.pow(type.getFireRange(), 2)) return;
+        double scale = type.getProjectileSpeed() / Math.sqrt(distSq);
+        projectiles.fire(Projectiles.ENEMY, index, getXCenter(), getYCenter(), dx*scale, dy*scale,
+                         type.getProjectileDamage());
+        getTimers().schedule(fireTimer, type.getFireFrames());
+        Audio.play(Audio.SHOT);
+    }
+
+    /**
+     * Whether the enemy has attacked a player in the latest frame.
+     *
+     * @return true if the enemy is attacking
+     */
+    public boolean isAttacking() {
+        return isAttacking;
+    }
+
+    /**
+     * Clear the recorded attack; used at the start of every frame, before enemy's
+     * attacks on all players are processed.
+     */
+    protected void resetAttack() {
+        isAttacking = false;
+    }
+
+    /**
+     * Capture enemy to be drawn at a position, along with its attack (fire) if it has attacked
+     * in the latest frame.
+     *
+     * @param snapshot frame being captured
+     * @param x        drawn x-position
+     * @param y        drawn y-position
+     * @see   RenderSnapshot
+     */
+    public void capture(RenderSnapshot snapshot, double x, double y) {
+        if (isAttacking) snapshot.addSprite(type.getAttackPath(), xAttack, yAttack, attackRotation);
+        snapshot.addSprite(getImagePath(), x, y, 0);
     }
 }
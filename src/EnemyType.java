@@ -0,0 +1,287 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * EnemyType class - an enemy archetype: its name, stats, attack range, aggression, projectiles
+ * and sprites.
+ * Archetypes are defined in the enemies' data file and loaded once; each is an immutable
+ * flyweight shared by all enemies of its kind, which only hold their own changing state. A new
+ * kind of enemy only needs a line in the data file and a sprite directory.
+ */
+
+public class EnemyType {
+    // data file, one archetype per line: name,filename,damage,maxHealth,range,aggression,boss,
+    // then optionally fireRange,fireInterval (ms),projectileSpeed (pixels per frame),projectileDamage
+    public static final String FILE_NAME = "res/enemies.csv";
+    // columns of the data file
+    private static final int REQUIRED_COLUMNS = 7;
+    private static final int PROJECTILE_COLUMNS = 11;
+    // archetypes by name, in file order
+    private static final Map<String, EnemyType> TYPES = readTypes(FILE_NAME);
+    // sprite index of each state
+    private static final int LEFT = 0, RIGHT = 1, INVINCIBLE = 2;
+
+    /**
+     * Properties
+     */
+    // name in csv files, and naming in files
+    private final String name;
+    private final String filename;
+    // stats and attacking range
+    private final double damage, maxHealth, range;
+    // chance of being aggressive (moving), and whether killing it completes the level
+    private final double aggression;
+    private final boolean isBoss;
+    // projectiles: range within which they are fired, frames between 2 shots (0 if never
+    // firing), speed and damage
+    private final double fireRange, projectileSpeed, projectileDamage;
+    private final long fireFrames;
+    // sprites of every state (left/right, normal/invincible), and attack (fire) sprite
+    private final String[] sprites = new String[4];
+    private final String attackPath;
+
+    /**
+     * Enemy type constructor.
+     *
+     * @param name        enemy's name in csv files
+     * @param filename    enemy's naming in files
+     * @param damage      enemy's damage point
+     * @param maxHealth   enemy's maximum health point
+     * @param range       enemy's attacking range
+     * @param aggression  chance of the enemy being aggressive, from 0 (never) to 1 (always)
+     * @param isBoss      whether killing the enemy is a level's default objective
+     */
+    public EnemyType(String name, String filename, double damage, double maxHealth, double range,
+                     double aggression, boolean isBoss) {
+        this(name, filename, damage, maxHealth, range, aggression, isBoss, 0, 0, 0, 0);
+    }
+
+    /**
+     * Enemy type constructor, for an enemy firing projectiles.
+     *
+     * @param name              enemy's name in csv files
+     * @param filename          enemy's naming in files
+     * @param damage            enemy's damage point
+     * @param maxHealth         enemy's maximum health point
+     * @param range             enemy's attacking range
+     * @param aggression        chance of the enemy being aggressive, from 0 (never) to 1 (always)
+     * @param isBoss            whether killing the enemy is a level's default objective
+     * @param fireRange         range within which enemy fires projectiles at the player
+     * @param fireFrames        frames between 2 projectiles, 0 if enemy never fires
+     * @param projectileSpeed   projectiles' speed, per frame
+     * @param projectileDamage  projectiles' damage point
+     */
+    public EnemyType(String name, String filename, double damage, double maxHealth, double range,
+                     double aggression, boolean isBoss, double fireRange, long fireFrames,
+                     double projectileSpeed, double projectileDamage) {
+        this.name = name;
+        this.filename = filename;
+        this.damage = damage;
+        this.maxHealth = maxHealth;
+        this.range = range;
+        this.aggression = aggression;
+        this.isBoss = isBoss;
+        this.fireRange = fireRange;
+        this.fireFrames = fireFrames;
+        this.projectileSpeed = projectileSpeed;
+        this.projectileDamage = projectileDamage;
+        String prefix = "res/" + filename + "/" + filename;
+        sprites[LEFT] = prefix + "Left.png";
+        sprites[RIGHT] = prefix + "Right.png";
+        sprites[INVINCIBLE + LEFT] = prefix + "InvincibleLeft.png";
+        sprites[INVINCIBLE + RIGHT] = prefix + "InvincibleRight.png";
+        attackPath = prefix + "Fire.png";
+    }
+
+    /**
+     * Read all archetypes from the data file; blank lines and lines starting with '#' are
+     * skipped, and an unreadable file results in no archetypes.
+     *
+     * @param  fileName  data file name
+     * @return           archetypes by name
+     */
+    private static Map<String, EnemyType> readTypes(String fileName) {
+        Map<String, EnemyType> types = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(AssetPack.open(fileName), StandardCharsets.UTF_8))) {
+            String line; String[] values;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                values = line.split(",");
+                if (values.length < REQUIRED_COLUMNS) throw new IOException("Missing columns: " + line);
+                boolean isFiring = values.length >= PROJECTILE_COLUMNS;
+                EnemyType type = new EnemyType(values[0].trim(), values[1].trim(),
+                        Double.parseDouble(values[2].trim()), Double.parseDouble(values[3].trim()),
+                        Double.parseDouble(values[4].trim()), Double.parseDouble(values[5].trim()),
+                        Boolean.parseBoolean(values[6].trim()),
+                        isFiring ? Double.parseDouble(values[7].trim()) : 0,
+                        isFiring ? Math.round(Double.parseDouble(values[8].trim())*LiveObject.TO_FRAME) : 0,
+                        isFiring ? Double.parseDouble(values[9].trim()) : 0,
+                        isFiring ? Double.parseDouble(values[10].trim()) : 0);
+                types.put(type.name, type);
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+        return Collections.unmodifiableMap(types);
+    }
+
+    /**
+     * Get the archetype of the given name.
+     *
+     * @param  name  enemy's name in csv files
+     * @return       the archetype, or null if there is none of that name
+     */
+    public static EnemyType get(String name) {
+        return TYPES.get(name);
+    }
+
+    /**
+     * Get all archetypes.
+     *
+     * @return archetypes, in file order
+     */
+    public static Collection<EnemyType> getAll() {
+        return TYPES.values();
+    }
+
+    /**
+     * Get a copy of the archetype with different damage and range, e.g. for balancing.
+     *
+     * @param  damage  damage point
+     * @param  range   attacking range
+     * @return         the archetype, if unchanged, or a copy
+     */
+    public EnemyType withStats(double damage, double range) {
+        if (damage == this.damage && range == this.range) return this;
+        return new EnemyType(name, filename, damage, maxHealth, range, aggression, isBoss,
+                             fireRange, fireFrames, projectileSpeed, projectileDamage);
+    }
+
+    /**
+     * Get enemy's name in csv files.
+     *
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get enemy's naming in files.
+     *
+     * @return file name
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * Get enemy's damage point.
+     *
+     * @return damage
+     */
+    public double getDamage() {
+        return damage;
+    }
+
+    /**
+     * Get enemy's maximum health point.
+     *
+     * @return maximum health
+     */
+    public double getMaxHealth() {
+        return maxHealth;
+    }
+
+    /**
+     * Get enemy's attacking range.
+     *
+     * @return range
+     */
+    public double getRange() {
+        return range;
+    }
+
+    /**
+     * Get chance of the enemy being aggressive (moving).
+     *
+     * @return aggression, from 0 (never) to 1 (always)
+     */
+    public double getAggression() {
+        return aggression;
+    }
+
+    /**
+     * Get whether the enemy is a boss, killing which is the default objective of a level
+     * declaring none.
+     *
+     * @return true if the enemy is a boss
+     */
+    public boolean isBoss() {
+        return isBoss;
+    }
+
+    /**
+     * Get the range within which enemy fires projectiles.
+     *
+     * @return fire range
+     */
+    public double getFireRange() {
+        return fireRange;
+    }
+
+    /**
+     * Get the frames between 2 projectiles fired by enemy.
+     *
+     * @return frames between shots, 0 if enemy never fires
+     */
+    public long getFireFrames() {
+        return fireFrames;
+    }
+
+    /**
+     * Get the speed of enemy's projectiles.
+     *
+     * @return speed, per frame
+     */
+    public double getProjectileSpeed() {
+        return projectileSpeed;
+    }
+
+    /**
+     * Get the damage point of enemy's projectiles.
+     *
+     * @return projectile damage
+     */
+    public double getProjectileDamage() {
+        return projectileDamage;
+    }
+
+    /**
+     * Get enemy's sprite path in a given state.
+     *
+     * @param  isInvincible  whether enemy is invincible
+     * @param  isRight       whether enemy faces right
+     * @return               sprite path
+     */
+    public String getSprite(boolean isInvincible, boolean isRight) {
+        return sprites[(isInvincible ? INVINCIBLE : 0) + (isRight ? RIGHT : LEFT)];
+    }
+
+    /**
+     * Get enemy's attack (fire) sprite path.
+     *
+     * @return sprite path
+     */
+    public String getAttackPath() {
+        return attackPath;
+    }
+}
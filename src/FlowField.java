@@ -0,0 +1,195 @@
+import bagel.util.Rectangle;
+
+/**
+ * FlowField class - a grid laid over the level, where every free cell stores the direction
+ * of the next step along the shortest path towards the nearest player. The field is computed
+ * with a single breadth-first search whenever a player enters a new cell, so that any number
+ * of enemies can read their next step from it in constant time.
+ */
+
+public class FlowField {
+    // size of a grid cell, in pixels
+    public static final int CELL_SIZE = 16;
+    // no direction (blocked, unreachable or target cell)
+    public static final char NONE = 0;
+
+    /**
+     * Properties
+     */
+    // grid origin and dimensions
+    private final double xOrigin, yOrigin;
+    private final int cols, rows;
+    // clearance of the objects following the field
+    private final double clearWidth, clearHeight;
+    // obstruction grid and the direction of each cell
+    private final boolean[] blocked;
+    private final char[] directions;
+    // preallocated breadth-first search queue and visited marks
+    private final int[] queue;
+    private final int[] visited;
+    private int searchId = 0;
+    // cells the field is currently directing towards
+    private int[] targetCells = new int[0];
+    private int targetCount = -1;
+
+    /**
+     * Flow field constructor. A cell is considered blocked if an object of the given clearance
+     * size, centered at the cell's center, would intersect any of the blocks.
+     *
+     * @param xLeft       leftmost x-position of the level
+     * @param yTop        topmost y-position of the level
+     * @param xRight      rightmost x-position of the level
+     * @param yBottom     bottommost y-position of the level
+     * @param clearWidth  width of the largest object following the field
+     * @param clearHeight height of the largest object following the field
+     * @param blocks      blocks obstructing the field
+     * @see   InanimateObject
+     */
+    public FlowField(int xLeft, int yTop, int xRight, int yBottom, double clearWidth, double clearHeight,
+                     InanimateObject[] blocks) {
+        xOrigin = xLeft;
+        yOrigin = yTop;
+        cols = Math.max(1, (int) Math.ceil((xRight - xLeft + clearWidth) / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil((yBottom - yTop + clearHeight) / CELL_SIZE));
+        this.clearWidth = clearWidth;
+        this.clearHeight = clearHeight;
+        blocked = new boolean[cols*rows];
+        directions = new char[cols*rows];
+        queue = new int[cols*rows];
+        visited = new int[cols*rows];
+
+        // rasterizing blocks, inflated by the clearance
+        for (int row = 0; row < rows; row++)
+            for (int col = 0; col < cols; col++)
+                blocked[row*cols + col] = isObstructed(col, row, blocks);
+    }
+
+    /**
+     * Whether an object of the field's clearance size, centered at a cell's center, would
+     * intersect any of the blocks.
+     *
+     * @param  col     cell column
+     * @param  row     cell row
+     * @param  blocks  blocks obstructing the field
+     * @return         true if the cell is blocked
+     */
+    private boolean isObstructed(int col, int row, InanimateObject[] blocks) {
+        double xCenter = xOrigin + (col + 0.5)*CELL_SIZE;
+        double yCenter = yOrigin + (row + 0.5)*CELL_SIZE;
+        Rectangle clearance = new Rectangle(xCenter - clearWidth/2, yCenter - clearHeight/2, clearWidth, clearHeight);
+        for (InanimateObject block : blocks)
+            if (clearance.intersects(block.getRectangle())) return true;
+        return false;
+    }
+
+    /**
+     * Remove a block from the field, e.g. a sinkhole once it has collapsed: the cells it blocked
+     * are checked again against the remaining blocks, and the field is recomputed on the next
+     * update.
+     *
+     * @param removed    block no longer obstructing the field
+     * @param remaining  blocks still obstructing the field
+     * @see   InanimateObject
+     */
+    public void unblock(InanimateObject removed, InanimateObject[] remaining) {
+        Rectangle box = removed.getRectangle();
+        int colStart = Math.max(0, (int) Math.floor((box.left() - clearWidth/2 - xOrigin) / CELL_SIZE));
+        int colEnd = Math.min(cols-1, (int) Math.floor((box.right() + clearWidth/2 - xOrigin) / CELL_SIZE));
+        int rowStart = Math.max(0, (int) Math.floor((box.top() - clearHeight/2 - yOrigin) / CELL_SIZE));
+        int rowEnd = Math.min(rows-1, (int) Math.floor((box.bottom() + clearHeight/2 - yOrigin) / CELL_SIZE));
+        for (int row = rowStart; row <= rowEnd; row++)
+            for (int col = colStart; col <= colEnd; col++)
+                if (blocked[row*cols + col]) blocked[row*cols + col] = isObstructed(col, row, remaining);
+        targetCount = -1;
+    }
+
+    /**
+     * Get index of the cell containing the given position, clamped to the grid.
+     *
+     * @param  x  x-position
+     * @param  y  y-position
+     * @return    cell index
+     */
+    private int cellAt(double x, double y) {
+        int col = Math.min(cols-1, Math.max(0, (int) ((x - xOrigin) / CELL_SIZE)));
+        int row = Math.min(rows-1, Math.max(0, (int) ((y - yOrigin) / CELL_SIZE)));
+        return row*cols + col;
+    }
+
+    /**
+     * Direct the field towards the nearest of the given live objects; killed ones are ignored.
+     * The field is only recomputed when any of them has moved into a different cell since the
+     * last update.
+     *
+     * @param targets  live objects to direct towards
+     * @see   LiveObject
+     */
+    public void update(LiveObject[] targets) {
+        if (targetCells.length < targets.length) targetCells = new int[targets.length];
+        boolean changed = false;
+        int count = 0;
+        for (LiveObject target : targets) {
+            if (target.isKilled()) continue;
+            int cell = cellAt(target.getXCenter(), target.getYCenter());
+            if (targetCells[count] != cell) changed = true;
+            targetCells[count++] = cell;
+        }
+        if (!changed && count == targetCount) return;
+        targetCount = count;
+        search();
+    }
+
+    /**
+     * Breadth-first search from all target cells over the free cells; each reached cell stores
+     * the direction towards the neighbour it was reached from.
+     */
+    private void search() {
+        searchId++;
+        int head = 0, tail = 0;
+        for (int i = 0; i < targetCount; i++) {
+            int target = targetCells[i];
+            if (visited[target] == searchId) continue;
+            queue[tail++] = target;
+            visited[target] = searchId;
+            directions[target] = NONE;
+        }
+
+        while (head < tail) {
+            int cell = queue[head++];
+            int col = cell % cols, row = cell / cols;
+            // each neighbour heads back towards this cell, using the enemy's direction naming
+            if (col > 0)      tail = visit(cell-1, 'r', tail);
+            if (col < cols-1) tail = visit(cell+1, 'l', tail);
+            if (row > 0)      tail = visit(cell-cols, 'u', tail);
+            if (row < rows-1) tail = visit(cell+cols, 'd', tail);
+        }
+    }
+
+    /**
+     * Visit a neighbouring cell during the search, queueing it if it is free and not yet reached.
+     *
+     * @param  cell       neighbouring cell index
+     * @param  direction  direction from the neighbour towards the cell it was reached from
+     * @param  tail       current end of the queue
+     * @return            new end of the queue
+     */
+    private int visit(int cell, char direction, int tail) {
+        if (blocked[cell] || visited[cell] == searchId) return tail;
+        visited[cell] = searchId;
+        directions[cell] = direction;
+        queue[tail] = cell;
+        return tail+1;
+    }
+
+    /**
+     * Get the direction of the next step from the given position towards the target.
+     *
+     * @param  x  x center position of the object following the field
+     * @param  y  y center position of the object following the field
+     * @return    direction 'l', 'r', 'u', 'd', or NONE if there is no step to take
+     */
+    public char directionAt(double x, double y) {
+        int cell = cellAt(x, y);
+        return (visited[cell] == searchId) ? directions[cell] : NONE;
+    }
+}
@@ -1,4 +1,3 @@
-import bagel.Image;
 import bagel.util.Point;
 import bagel.util.Rectangle;
 
@@ -8,8 +7,8 @@ import bagel.util.Rectangle;
  */
 
 public abstract class InanimateObject {
-    // block's image, position, bounding box and name
-    private final Image blockImg;
+    // block's sprite path, position, bounding box and name
+    private final String imagePath;
     private final Point position;
     private final Rectangle blockRectangle;
     private final String name;
@@ -23,9 +22,9 @@ public abstract class InanimateObject {
      * @param yPos     object's y-position
      */
     public InanimateObject(String filename, String name, double xPos, double yPos) {
-        this.blockImg = new Image("res/" + filename + ".png");
+        this.imagePath = "res/" + filename + ".png";
         this.position = new Point(xPos, yPos);
-        this.blockRectangle = new Rectangle(position, blockImg.getWidth(), blockImg.getHeight());
+        this.blockRectangle = new Rectangle(position, getWidth(), getHeight());
         this.name = name;
     }
 
@@ -50,13 +49,40 @@ public abstract class InanimateObject {
     }
 
     /**
-     * Get image of inanimate objects to draw in state updates.
+     * Get block's sprite path.
      *
-     * @return object's display image
-     * @see    Image
+     * @return sprite path
      */
-    public Image getBlockImg() {
-        return blockImg;
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    /**
+     * Get the collision mask of block's sprite.
+     *
+     * @return collision mask, or null if the block collides on its whole bounding block
+     * @see    CollisionMask
+     */
+    public CollisionMask getMask() {
+        return Sprites.getMask(imagePath);
+    }
+
+    /**
+     * Get block's width.
+     *
+     * @return width in pixels
+     */
+    public double getWidth() {
+        return Sprites.getWidth(imagePath);
+    }
+
+    /**
+     * Get block's height.
+     *
+     * @return height in pixels
+     */
+    public double getHeight() {
+        return Sprites.getHeight(imagePath);
     }
 
     /**
@@ -70,8 +96,11 @@ public abstract class InanimateObject {
     }
 
     /**
-     * Abstract method that performs state update of inanimate object. In other
-     * words, it should draw, if not yet disappeared, the object every frame.
+     * Abstract method that captures inanimate object to be drawn. In other
+     * words, it should add the object, if not yet disappeared, to every frame.
+     *
+     * @param snapshot frame being captured
+     * @see   RenderSnapshot
      */
-    public abstract void update();
+    public abstract void capture(RenderSnapshot snapshot);
 }
@@ -0,0 +1,202 @@
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.glfw.GLFWKeyCallback;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * KeyEvents class - the keyboard player's keys, taken from GLFW key events as they are polled
+ * rather than from the keys' state at the start of a frame. Each event updates the held keys at
+ * once, so that the simulation can latch them right before every tick, and the rendering thread
+ * right before drawing the player; a key pressed and released between 2 ticks still counts as
+ * pressed for a tick. Movement events are also queued with their time, to measure the latency
+ * from each event to the first presented frame reflecting it.
+ * <p>
+ * The key callback is chained to the previously installed one, so bagel's Input keeps working.
+ */
+
+public class KeyEvents {
+    // queued movement events kept for latency measurement; older ones are dropped
+    private static final int CAPACITY = 256;
+    // latency histogram: bucket width and number of buckets (longer latencies go in the last)
+    private static final long BUCKET_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final int BUCKETS = 400;
+    // interval between latency reports
+    private static final long REPORT_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final double NANOS_PER_MS = 1e6;
+
+    /**
+     * Properties
+     */
+    // held keys, and keys pressed since the last latch, as player action flags
+    private final AtomicInteger held = new AtomicInteger();
+    private final AtomicInteger pressed = new AtomicInteger();
+    // callback installed before this one
+    private final GLFWKeyCallback previous;
+    // queued movement events: number of events so far, their times by sequence number, and
+    // the events reflected by the latest latch (simulation thread) and drawn frame
+    private volatile long written = 0;
+    private final long[] times = new long[CAPACITY];
+    private volatile long latched = 0;
+    private long drawn = 0, presented = 0;
+    // latency histogram since the last report, and whether reports are printed
+    private final int[] histogram = new int[BUCKETS];
+    private int count = 0;
+    private long total = 0, max = 0, lastReport = System.nanoTime();
+    private final boolean isReporting;
+
+    /**
+     * Key events constructor: installs the key callback on a window; rendering thread only.
+     *
+     * @param window       GLFW window handle
+     * @param isReporting  whether to print the input-to-present latency periodically
+     */
+    public KeyEvents(long window, boolean isReporting) {
+        this.isReporting = isReporting;
+        previous = GLFW.glfwSetKeyCallback(window, this::onKey);
+    }
+
+    /**
+     * Key callback: updates the held and pressed keys, and queues movement events; called
+     * by GLFW on the rendering thread while polling events.
+     *
+     * @param window    GLFW window handle
+     * @param key       GLFW key code
+     * @param scancode  platform scancode
+     * @param action    press, release or repeat
+     * @param mods      modifier bits
+     */
+    private void onKey(long window, int key, int scancode, int action, int mods) {
+        if (previous != null) previous.invoke(window, key, scancode, action, mods);
+        int flag = toAction(key);
+        if (flag == 0 || action == GLFW.GLFW_REPEAT) return;
+        if (action == GLFW.GLFW_PRESS) {
+            held.getAndUpdate(keys -> keys | flag);
+            pressed.getAndUpdate(keys -> keys | flag);
+        }
+        else held.getAndUpdate(keys -> keys & ~flag);
+        if (flag == PlayerInput.ATTACK || flag == PlayerInput.FIRE) return;
+        times[(int) (written % CAPACITY)] = System.nanoTime();
+        written++;
+    }
+
+    /**
+     * Map a GLFW key to the player's action.
+     *
+     * @param  key  GLFW key code
+     * @return      action flag, or 0 if the key is not a player's key
+     */
+    private static int toAction(int key) {
+        switch (key) {
+            case GLFW.GLFW_KEY_LEFT:
+                return PlayerInput.LEFT;
+            case GLFW.GLFW_KEY_RIGHT:
+                return PlayerInput.RIGHT;
+            case GLFW.GLFW_KEY_UP:
+                return PlayerInput.UP;
+            case GLFW.GLFW_KEY_DOWN:
+                return PlayerInput.DOWN;
+            case GLFW.GLFW_KEY_A:
+                return PlayerInput.ATTACK;
+            case GLFW.GLFW_KEY_S:
+                return PlayerInput.FIRE;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Latch the player's actions for a tick: the held keys, plus any key pressed since the
+     * last latch; simulation thread only. Keys stay requested while held, as with polling, and
+     * a key tapped between 2 ticks is still requested by the next one.
+     *
+     * @return action flags
+     */
+    public int latch() {
+        latched = written;
+        return held.get() | pressed.getAndSet(0);
+    }
+
+    /**
+     * Forget keys pressed so far, e.g. on menu screens, before a simulation starts; their
+     * events are left out of the latency measurement. Rendering thread only, while no
+     * simulation is running.
+     */
+    public void clearPressed() {
+        pressed.set(0);
+        latched = drawn = presented = written;
+    }
+
+    /**
+     * Get the keys held right now, for late latching on the rendering thread.
+     *
+     * @return action flags of held keys
+     */
+    public int getHeld() {
+        return held.get();
+    }
+
+    /**
+     * Get the number of movement events latched by the simulation so far.
+     *
+     * @return sequence number following the last latched event
+     */
+    public long getLatched() {
+        return latched;
+    }
+
+    /**
+     * Get the number of movement events received so far.
+     *
+     * @return sequence number following the last event
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Record that a frame reflecting all movement events before the given sequence number has
+     * been drawn; rendering thread only.
+     *
+     * @param reflected  sequence number following the last reflected event
+     */
+    public void frameDrawn(long reflected) {
+        drawn = Math.max(drawn, reflected);
+    }
+
+    /**
+     * Record that the last drawn frame has been presented, measuring the latency of the events
+     * it reflected for the first time; rendering thread only, at the start of the next frame.
+     */
+    public void framePresented() {
+        long now = System.nanoTime();
+        for (long seq = Math.max(presented, written - CAPACITY); seq < drawn; seq++) {
+            long latency = now - times[(int) (seq % CAPACITY)];
+            histogram[(int) Math.min(latency / BUCKET_NANOS, BUCKETS - 1)]++;
+            total += latency;
+            max = Math.max(max, latency);
+            count++;
+        }
+        presented = Math.max(presented, drawn);
+        if (isReporting && now - lastReport >= REPORT_NANOS) report(now);
+    }
+
+    /**
+     * Print the latency measured since the last report, and start a new measurement.
+     *
+     * @param now  current time, in nanoseconds
+     */
+    private void report(long now) {
+        lastReport = now;
+        if (count == 0) return;
+        int target = (int) Math.ceil(count * 0.95), sum = 0, bucket = 0;
+        while (bucket < BUCKETS - 1 && (sum += histogram[bucket]) < target) bucket++;
+        System.out.printf("Input-to-present latency: %d events, mean %.1f ms, p95 %.1f ms, max %.1f ms%n",
+                          count, total / NANOS_PER_MS / count, (bucket + 1) * BUCKET_NANOS / NANOS_PER_MS,
+                          max / NANOS_PER_MS);
+        Arrays.fill(histogram, 0);
+        count = 0;
+        total = max = 0;
+    }
+}
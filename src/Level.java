@@ -1,4 +1,9 @@
-import bagel.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Level class - representing a single level in the game, hence creating a new
@@ -11,45 +16,69 @@ public class Level {
     private static final int MIN_TIMESCALE = -3;
     // player's speed and number of levels
     public static final int NUM_LEVELS = 2;
-    // winning position (for level 0)
-    private static final double X_WIN = 950;
-    private static final double Y_WIN = 670;
+    // fallback for the longest sub-step a live object may travel between collision checks
+    private static final double DEFAULT_MAX_STEP = 10;
+    // simulation level of detail: distance beyond an enemy's reach within which it is still
+    // updated every tick, ticks between updates of moving enemies further away, and ticks
+    // between checks of sleeping (stationary) enemies further away
+    private static final double LOD_MARGIN = 64;
+    private static final int FAR_INTERVAL = 4;
+    private static final int SLEEP_INTERVAL = 8;
     // player's and enemy's health display position
     public static final int X_HEALTH = 20;
     public static final int Y_HEALTH = 25;
     public static final int Y_DIFF_ENEMY_HEALTH = 6;
     // backgrounds
-    private final Image BACKGROUND_LAB = new Image("res/background0.png");
-    private final Image BACKGROUND_UNDER = new Image("res/background1.png");
-    private final Image[] BACKGROUNDS = {BACKGROUND_LAB, BACKGROUND_UNDER};
-    // font size
+    private static final String BACKGROUND_LAB = "res/background0.png";
+    private static final String BACKGROUND_UNDER = "res/background1.png";
+    private static final String[] BACKGROUNDS = {BACKGROUND_LAB, BACKGROUND_UNDER};
+    // font and font size
+    private static final String FONT_FILE = "res/frostbite.ttf";
     private static final int PLAYER_HEALTH_SIZE = 30;
     private static final int ENEMY_HEALTH_SIZE = 15;
 
     /**
      * Properties
      */
-    // level properties (current level number and whether it is completed)
+    // level properties (current level number, and objectives completing it)
     private final int levelNum;
-    private boolean isCompleted = false;
+    private Objectives objectives = new Objectives(Collections.emptyList());
     private int timescale = 0;
-    // player
-    private final Player player;
+    // players, the one controlled by keyboard being the first
+    private final Player[] players;
     // corner coordinates
-    private final int xLeft, yTop, xRight, yBottom;
+    private int xLeft, yTop, xRight, yBottom;
     // enemies
-    private final Enemy[] enemyList;
+    private Enemy[] enemyList;
     // blocks
-    private final Sinkhole[] sinkList;
-    private final ObstructingBlock[] obstructList;
-    // font and coloring
-    private final Font playerHealthBar, enemyHealthBar;
+    private Sinkhole[] sinkList;
+    private ObstructingBlock[] obstructList;
+    // longest distance moved between collision checks (half the thinnest block)
+    private double maxStep;
+    // flow field directing enemies towards the nearest player
+    private FlowField flowField;
+    // tick of each enemy's latest and next update
+    private long[] lastUpdates, nextUpdates;
+    // each enemy's position before its latest update, and ticks of movement the update made,
+    // to draw distant enemies moving smoothly between their updates
+    private double[] xFrom, yFrom;
+    private int[] updateSpans;
+    // timers of the players' and enemies' timed states
+    private final TimingWheel timers = new TimingWheel();
+    // projectiles in flight, and combat effects
+    private final Projectiles projectiles = new Projectiles();
+    private final Particles particles = new Particles();
+    // directions in which the keyboard player was stopped during the last tick (-1, 0 or 1)
+    private int blockedDirX = 0, blockedDirY = 0;
+    // images acquired by the level, released once it is disposed
+    private Set<String> assets = new HashSet<>();
+    private boolean isDisposed = false;
 
     /**
      * Level constructor.
      *
      * @param levelNum      current game level
-     * @param player        player argument
+     * @param players       players in the level, at least one
      * @param xLeft         leftmost x-position
      * @param yTop          topmost y-position
      * @param xRight        rightmost x-position
@@ -62,10 +91,10 @@ public class Level {
      * @see   Sinkhole
      * @see   ObstructingBlock
      */
-    public Level(int levelNum, Player player, int xLeft, int yTop, int xRight, int yBottom,
+    public Level(int levelNum, Player[] players, int xLeft, int yTop, int xRight, int yBottom,
                  Enemy[] enemyList, Sinkhole[] sinkList, ObstructingBlock[] obstructList) {
         this.levelNum = levelNum;
-        this.player = player;
+        this.players = players;
         this.xLeft = xLeft;
         this.yTop = yTop;
         this.xRight = xRight;
@@ -73,17 +102,208 @@ public class Level {
         this.sinkList = sinkList;
         this.enemyList = enemyList;
         this.obstructList = obstructList;
-        playerHealthBar = new Font("res/frostbite.ttf", PLAYER_HEALTH_SIZE);
-        enemyHealthBar = new Font("res/frostbite.ttf", ENEMY_HEALTH_SIZE);
+        this.maxStep = computeMaxStep();
+        this.flowField = createFlowField();
+        scheduleEnemies();
+        projectiles.setLevel(getCorners(), obstructList);
+        for (Player player : players) player.setTimers(timers);
+        for (Enemy enemy : enemyList) enemy.setTimers(timers);
+        acquireAssets();
+        Sprites.acquireFont(FONT_FILE, PLAYER_HEALTH_SIZE);
+        Sprites.acquireFont(FONT_FILE, ENEMY_HEALTH_SIZE);
     }
 
     /**
-     * Get level status - whether it has been completed or not.
+     * Replace the level's content while it is running, e.g. after its CSV file has changed.
+     * Objects kept from the previous content retain their state.
+     *
+     * @param corners       {xLeft, yTop, xRight, yBottom}
+     * @param enemyList     list of enemies
+     * @param sinkList      list of sinkholes
+     * @param obstructList  list of obstructing blocks
+     */
+    public void setContents(int[] corners, Enemy[] enemyList, Sinkhole[] sinkList,
+                            ObstructingBlock[] obstructList) {
+        this.xLeft = corners[0];
+        this.yTop = corners[1];
+        this.xRight = corners[2];
+        this.yBottom = corners[3];
+        this.enemyList = enemyList;
+        this.sinkList = sinkList;
+        this.obstructList = obstructList;
+        this.maxStep = computeMaxStep();
+        this.flowField = createFlowField();
+        scheduleEnemies();
+        projectiles.setLevel(corners, obstructList);
+        for (Enemy enemy : enemyList) enemy.setTimers(timers);
+        acquireAssets();
+    }
+
+    /**
+     * Set the level's objectives, replacing any previous ones along with their progress.
+     *
+     * @param declared  objectives, as declared in the level's layout
+     * @see   Objectives
+     */
+    public void setObjectives(List<LevelLayout.Objective> declared) {
+        objectives.stop(timers);
+        objectives = new Objectives(declared);
+        objectives.start(enemyList, timers);
+        for (Player player : players)
+            if (!player.isKilled()) objectives.moved(player);
+    }
+
+    /**
+     * Get the level's objectives.
+     *
+     * @return objectives
+     * @see    Objectives
+     */
+    public Objectives getObjectives() {
+        return objectives;
+    }
+
+    /**
+     * Release the images and fonts acquired by the level; to be called once the level is
+     * discarded, e.g. when moving on to the next level. Disposing twice has no effect.
+     */
+    public void dispose() {
+        if (isDisposed) return;
+        isDisposed = true;
+        for (String path : assets) Sprites.releaseImage(path);
+        assets = new HashSet<>();
+        Sprites.releaseFont(FONT_FILE, PLAYER_HEALTH_SIZE);
+        Sprites.releaseFont(FONT_FILE, ENEMY_HEALTH_SIZE);
+    }
+
+    /**
+     * Collect all images the level may draw: its background, the blocks' images, and every
+     * sprite of the players and enemies (any direction, attacking or invincible), i.e. every
+     * image in their sprite directories.
+     *
+     * @return image paths
+     */
+    private Set<String> collectAssets() {
+        Set<String> paths = new HashSet<>();
+        paths.add(BACKGROUNDS[levelNum]);
+        for (InanimateObject block : obstructList) paths.add(block.getImagePath());
+        for (InanimateObject block : sinkList) paths.add(block.getImagePath());
+        Set<String> spriteDirs = new HashSet<>();
+        for (LiveObject object : players) spriteDirs.add(spriteDir(object));
+        for (LiveObject object : enemyList) spriteDirs.add(spriteDir(object));
+        for (String dir : spriteDirs) {
+            if (dir == null) continue;
+            for (String sprite : AssetPack.list(dir))
+                if (sprite.toLowerCase().endsWith(".png")) paths.add(sprite);
+        }
+        return paths;
+    }
+
+    /**
+     * Get the directory of a live object's sprites.
+     *
+     * @param  object  player or enemy
+     * @return         sprite directory, such as "res/fae", or null if the sprite has none
+     */
+    private static String spriteDir(LiveObject object) {
+        String path = object.getImagePath();
+        int slash = path.lastIndexOf('/');
+        return (slash < 0) ? null : path.substring(0, slash);
+    }
+
+    /**
+     * Acquire the images of the level's current content, and release those it no longer uses.
+     * New images are acquired first, so that images still in use are never released in between.
+     */
+    private void acquireAssets() {
+        if (isDisposed) return;
+        Set<String> current = collectAssets();
+        for (String path : current)
+            if (!assets.contains(path)) Sprites.acquireImage(path);
+        for (String path : assets)
+            if (!current.contains(path)) Sprites.releaseImage(path);
+        assets = current;
+    }
+
+    /**
+     * Get level status - whether it has been completed or not, i.e. all its objectives are met.
      *
      * @return boolean value whether level has been completed.
      */
     public boolean isCompleted() {
-        return isCompleted;
+        return objectives.isCompleted();
+    }
+
+    /**
+     * Get the level's number.
+     *
+     * @return level number
+     */
+    public int getLevelNum() {
+        return levelNum;
+    }
+
+    /**
+     * Get all players in the level.
+     *
+     * @return players
+     */
+    public Player[] getPlayers() {
+        return players;
+    }
+
+    /**
+     * Get all enemies in the level.
+     *
+     * @return enemies
+     */
+    public Enemy[] getEnemies() {
+        return enemyList;
+    }
+
+    /**
+     * Get all sinkholes in the level.
+     *
+     * @return sinkholes
+     */
+    public Sinkhole[] getSinkholes() {
+        return sinkList;
+    }
+
+    /**
+     * Get all obstructing blocks in the level.
+     *
+     * @return obstructing blocks
+     */
+    public ObstructingBlock[] getObstructions() {
+        return obstructList;
+    }
+
+    /**
+     * Get the level's corner coordinates.
+     *
+     * @return {xLeft, yTop, xRight, yBottom}
+     */
+    public int[] getCorners() {
+        return new int[] {xLeft, yTop, xRight, yBottom};
+    }
+
+    /**
+     * Get the level's timescale.
+     *
+     * @return timescale, between MIN_TIMESCALE and MAX_TIMESCALE
+     */
+    public int getTimescale() {
+        return timescale;
+    }
+
+    /**
+     * Get the number of ticks run so far.
+     *
+     * @return current tick
+     */
+    public long getTick() {
+        return timers.getTick();
     }
 
     /**
@@ -110,117 +330,360 @@ public class Level {
     }
 
     /**
-     * Checking for enemy's collision. Scan through all enemies to see if any has collided
-     * with the specified obstructing block. If yes then enemy will move in opposite direction.
-     * <p>
-     * Similar to playerCollision, this method will also be called in inanimateBlockProcessing.
+     * Compute the longest distance a live object may travel between 2 collision checks.
+     * It is half of the thinnest side among all blocks in the level, so that a moving
+     * object can never skip over a block entirely, no matter how fast it moves.
      *
-     * @param block    obstructing block
-     * @see   InanimateObject
+     * @return maximum sub-step distance
      */
-    protected void enemiesCollision(InanimateObject block) {
+    private double computeMaxStep() {
+        double step = DEFAULT_MAX_STEP;
+        for (InanimateObject block : obstructList)
+            step = Math.min(step, Math.min(block.getWidth(), block.getHeight()) / 2);
+        for (InanimateObject block : sinkList)
+            step = Math.min(step, Math.min(block.getWidth(), block.getHeight()) / 2);
+        return step;
+    }
+
+    /**
+     * Create the level's flow field, obstructed by all blocks with enough clearance for
+     * the largest enemy in the level.
+     *
+     * @return flow field over the level
+     * @see    FlowField
+     */
+    private FlowField createFlowField() {
+        double clearWidth = 0, clearHeight = 0;
         for (Enemy enemy : enemyList) {
-            // if enemy's killed
-            if (enemy.isKilled()) continue;
-            // if enemy collides or exceeds border
-            if (enemy.getRectangle().intersects(block.getRectangle()) ||
-                exceedBorder(enemy)) {
-                enemy.processCollision(block);
+            clearWidth = Math.max(clearWidth, enemy.getWidth());
+            clearHeight = Math.max(clearHeight, enemy.getHeight());
+        }
+        return new FlowField(xLeft, yTop, xRight, yBottom, clearWidth, clearHeight, getActiveBlocks());
+    }
+
+    /**
+     * Get the blocks currently obstructing movement: all obstructing blocks, and the sinkholes
+     * that have not collapsed yet.
+     *
+     * @return active blocks
+     * @see    InanimateObject
+     */
+    private InanimateObject[] getActiveBlocks() {
+        ArrayList<InanimateObject> blocks = new ArrayList<>(Arrays.asList(obstructList));
+        for (Sinkhole sink : sinkList)
+            if (sink.isActive()) blocks.add(sink);
+        return blocks.toArray(new InanimateObject[0]);
+    }
+
+    /**
+     * Schedule every enemy's first update within the next few ticks, spread so that only a
+     * fraction of the distant enemies is updated on any tick; each is then updated at its
+     * level of detail.
+     */
+    private void scheduleEnemies() {
+        long tick = timers.getTick();
+        lastUpdates = new long[enemyList.length];
+        nextUpdates = new long[enemyList.length];
+        xFrom = new double[enemyList.length];
+        yFrom = new double[enemyList.length];
+        updateSpans = new int[enemyList.length];
+        Arrays.fill(lastUpdates, tick - 1);
+        Arrays.fill(updateSpans, 1);
+        for (int i = 0; i < enemyList.length; i++) {
+            nextUpdates[i] = tick + i % FAR_INTERVAL;
+            xFrom[i] = enemyList[i].getX();
+            yFrom[i] = enemyList[i].getY();
+        }
+    }
+
+    /**
+     * Get the share of an enemy's latest update to draw: an update moving a distant enemy by
+     * several ticks is drawn over as many ticks, from its position before the update, so that
+     * it moves smoothly rather than in jumps (drawn up to an update late).
+     *
+     * @param  i  enemy index
+     * @return    share of the movement from the position before the update, between 0 and 1
+     */
+    private double drawnShare(int i) {
+        return Math.min(1, (double) (timers.getTick() - lastUpdates[i]) / updateSpans[i]);
+    }
+
+    /**
+     * Number of sub-steps a movement of the given distance has to be split into, so that
+     * each sub-step is no longer than the level's maximum step.
+     *
+     * @param  distance  distance travelled in the current frame
+     * @return           number of sub-steps (at least 1)
+     */
+    private int subSteps(double distance) {
+        return Math.max(1, (int) Math.ceil(distance / maxStep));
+    }
+
+    /**
+     * Find the first active block that the live object is currently colliding with.
+     *
+     * @param  object  Player / Enemy
+     * @return         the colliding block, or null if there is none
+     * @see    InanimateObject
+     */
+    private InanimateObject findCollision(LiveObject object) {
+        for (ObstructingBlock obstructBlock : obstructList)
+            if (object.collides(obstructBlock)) return obstructBlock;
+        for (Sinkhole sink : sinkList)
+            if (sink.isActive() && object.collides(sink)) return sink;
+        return null;
+    }
+
+    /**
+     * Processing player's movement. Player's input is read for the intended position, and the
+     * path to it is then swept in sub-steps, checking for border and block collisions at each
+     * one. The sweep stops at the first sub-step where the player has been moved back.
+     *
+     * @param player  the player
+     * @param input   player's requested actions
+     * @see   PlayerInput
+     */
+    protected void movePlayer(Player player, PlayerInput input) {
+        double xStart = player.getX(), yStart = player.getY();
+        player.update(input);
+        double dx = player.getX() - xStart, dy = player.getY() - yStart;
+        int steps = subSteps(Math.max(Math.abs(dx), Math.abs(dy)));
+        double x = xStart, y = yStart;
+
+        for (int i = 1; i <= steps; i++) {
+            player.setPrevPos(x, y);
+            x = xStart + dx*i/steps;
+            y = yStart + dy*i/steps;
+            player.setPos(x, y);
+            exceedBorder(player);
+            for (ObstructingBlock obstructBlock : obstructList)
+                player.processCollision(obstructBlock);
+            for (Sinkhole sink : sinkList) {
+                if (!sink.isActive()) continue;
+                player.processCollision(sink);
+                // the sinkhole collapses once stepped on
+                if (sink.isActive()) continue;
+                particles.emit(Particles.SINKHOLE, sink.getPosition().x, sink.getPosition().y,
+                               sink.getWidth(), sink.getHeight());
+                Audio.play(Audio.SINKHOLE);
+                flowField.unblock(sink, getActiveBlocks());
             }
+            // player has been stopped by the border or a block
+            if (player.getX() != x || player.getY() != y) break;
         }
+        if (player.getX() != xStart || player.getY() != yStart) objectives.moved(player);
     }
 
     /**
-     * Drawing and updating inanimate blocks, and checking if any live object has collided
-     * with any of the inanimate blocks. Specifically, Player if collides will be moved
-     * back to their previous position.
+     * Processing enemy's movement. Similar to the player, the movement is swept in sub-steps;
+     * upon colliding with a block or exceeding the border, enemy is moved back to its latest
+     * valid position and will head for the opposite direction.
+     *
+     * @param enemy  the enemy
+     * @param ticks  ticks elapsed since enemy last moved, whose movement is made at once
+     * @see   Enemy
      */
-    public void processInanimateBlocks() {
-        // obstruction blocks
-        for (ObstructingBlock obstructBlock : obstructList) {
-            player.processCollision(obstructBlock);
-            enemiesCollision(obstructBlock);
-            obstructBlock.update();
+    protected void moveEnemy(Enemy enemy, long ticks) {
+        double distance = enemy.getSpeed() * ticks;
+        int steps = subSteps(distance);
+        double step = distance / steps;
+        for (int i = 0; i < steps; i++) {
+            double xPrev = enemy.getX(), yPrev = enemy.getY();
+            enemy.processMovement(step);
+            InanimateObject block = findCollision(enemy);
+            if (block != null) {
+                enemy.setPos(xPrev, yPrev);
+                enemy.processCollision(block);
+                break;
+            }
+            if (exceedBorder(enemy)) {
+                enemy.processCollision(null);
+                break;
+            }
         }
-        // sinkholes
-        for (Sinkhole sink : sinkList) {
-            if (!sink.isActive()) continue;
-            player.processCollision(sink);
-            enemiesCollision(sink);
-            sink.update();
+    }
+
+    /**
+     * Find the live player nearest to an enemy.
+     *
+     * @param  enemy  the enemy
+     * @return        nearest player that is not killed, or null if there is none
+     */
+    private Player nearestPlayer(Enemy enemy) {
+        Player nearest = null;
+        double nearestDistSq = Double.MAX_VALUE;
+        for (Player player : players) {
+            if (player.isKilled()) continue;
+            double distSq = enemy.getDistSq(player.getXCenter(), player.getYCenter());
+            if (distSq < nearestDistSq) {
+                nearest = player;
+                nearestDistSq = distSq;
+            }
         }
+        return nearest;
     }
 
     /**
      * Enemy processing: processes anything directly related to enemy in game.
-     * Enemy's movements, attacks and status will be processed in this method.
+     * Enemy's movements, attacks (including firing at the nearest player) and status will be
+     * processed in this method.
+     * <p>
+     * Enemies are processed at a level of detail depending on their distance to the nearest
+     * player. Within their reach (plus a margin), they are fully processed every tick. Further
+     * away, they cannot act on any player: moving enemies only wander, moved every few ticks by
+     * the distance covered since their last update, and stationary enemies sleep, only checked
+     * every few ticks for a player coming near. The work of a tick therefore mostly depends on
+     * the number of enemies near the players. Wandering enemies are drawn moving smoothly between
+     * their updates.
      * <p>
-     * Method called in update method as a direct enemy processing method.
+     * Method called in tick method as a direct enemy processing method.
      */
     protected void processEnemies() {
-        for (Enemy enemy : enemyList) {
-            if (enemy.isKilled()) {
-                // if Navec is killed then we've won
-                if (enemy instanceof Navec)
-                    isCompleted = true;
+        // the flow field is only recomputed once a player has moved into another cell
+        flowField.update(players);
+        long tick = timers.getTick();
+        for (int i = 0; i < enemyList.length; i++) {
+            Enemy enemy = enemyList[i];
+            if (enemy.isKilled()) continue;
+            if (tick < nextUpdates[i]) continue;
+            long elapsed = tick - lastUpdates[i];
+            lastUpdates[i] = tick;
+            xFrom[i] = enemy.getX();
+            yFrom[i] = enemy.getY();
+            updateSpans[i] = 1;
+            Player nearest = nearestPlayer(enemy);
+            double near = enemy.getReach() + LOD_MARGIN;
+            if (nearest == null || enemy.getDistSq(nearest.getXCenter(), nearest.getYCenter()) > near*near) {
+                // distant enemy: wandering every few ticks, or sleeping if stationary
+                enemy.resetAttack();
+                if (enemy.isStationary()) {
+                    nextUpdates[i] = tick + SLEEP_INTERVAL;
+                    continue;
+                }
+                enemy.setSpeed(timescale);
+                moveEnemy(enemy, elapsed);
+                updateSpans[i] = (int) elapsed;
+                nextUpdates[i] = tick + FAR_INTERVAL;
                 continue;
             }
-            // enemy's speed set to timescale + movement
-            enemy.setSpeed(timescale);
-            enemy.processMovement();
-            // checking for enemy's attack on player and vice versa
-            enemy.processAttack(player);
-            player.processAttack(enemy);
-            // display enemy's health bar
-            enemy.healthColor(enemyHealthBar, enemy.getX(), enemy.getY() - Y_DIFF_ENEMY_HEALTH);
+            nextUpdates[i] = tick + 1;
+            // enemy's speed set to timescale, steering towards nearest player + movement
+            if (!enemy.isStationary()) {
+                enemy.setSpeed(timescale);
+                enemy.chase(flowField, nearest);
+                moveEnemy(enemy, elapsed);
+            }
+            // checking for enemy's attack on players and vice versa
+            enemy.resetAttack();
+            for (Player player : players) {
+                if (player.isKilled()) continue;
+                double playerHealth = player.getHealth(), enemyHealth = enemy.getHealth();
+                enemy.processAttack(player);
+                player.processAttack(enemy);
+                if (player.getHealth() < playerHealth) {
+                    particles.emit(Particles.HIT, player.getXCenter(), player.getYCenter(), 0, 0);
+                    Audio.play(Audio.HIT);
+                }
+                if (enemy.getHealth() < enemyHealth && enemy.isKilled()) {
+                    particles.emit(Particles.DEATH, enemy.getX(), enemy.getY(), enemy.getWidth(), enemy.getHeight());
+                    Audio.play(Audio.DEATH);
+                    objectives.killed(enemy);
+                }
+                else if (enemy.getHealth() < enemyHealth) {
+                    particles.emit(Particles.HIT, enemy.getXCenter(), enemy.getYCenter(), 0, 0);
+                    Audio.play(Audio.HIT);
+                }
+            }
+            if (nearest != null && !nearest.isKilled() && !enemy.isKilled()) enemy.fire(nearest, projectiles, i);
         }
-        // player's invincibility frames counting down
-        player.invincibleFrameDecrement();
     }
 
     /**
-     * Method setting timescale based on input, and recording timescale
-     * change to logs.
+     * Method changing timescale by the given number of steps, within its bounds, and
+     * recording timescale change to logs.
      *
-     * @param input keyboard input
-     * @see   Input
+     * @param steps number of steps, positive to speed up and negative to slow down
      */
-    protected void setTimescale(Input input) {
-        if (input.wasPressed(Keys.L) && timescale < MAX_TIMESCALE) {
+    public void changeTimescale(int steps) {
+        for (; steps > 0 && timescale < MAX_TIMESCALE; steps--) {
             timescale++;
             System.out.println("Sped up, Speed: " + timescale);
         }
-        else if (input.wasPressed(Keys.K) && timescale > MIN_TIMESCALE) {
+        for (; steps < 0 && timescale > MIN_TIMESCALE; steps++) {
             timescale--;
             System.out.println("Slowed down, Speed: " + timescale);
         }
     }
 
     /**
-     * Performs a state update. As mentioned, the method will be executed 60 times
-     * in 1 second, due to being called in the ShadowDimension's update method.
+     * Performs a state update of the level without drawing anything, so that it can also
+     * run headless. Every player that is not killed acts on its own input. Timed states
+     * only cost anything on the tick they expire, through the level's timing wheel.
      *
-     * @param input keyboard input
-     * @see   Input
+     * @param inputs requested actions, indexed the same as the players
+     * @see   PlayerInput
      */
-    protected void update(Input input) {
-        // in-game: displaying game background and processing movement
-        BACKGROUNDS[levelNum].draw(Window.getWidth() / 2.0, Window.getHeight() / 2.0);
-        player.setPrevPos(player.getX(), player.getY());
+    public void tick(PlayerInput[] inputs) {
+        // players' input processing and swept collision
+        double xStart = players[0].getX(), yStart = players[0].getY();
+        for (int i = 0; i < players.length; i++) {
+            if (players[i].isKilled()) continue;
+            movePlayer(players[i], inputs[i]);
+            players[i].fire(inputs[i], projectiles, i);
+        }
+        // the keyboard player is not extrapolated in the directions it was stopped in
+        int dirX = PlayerInput.dirX(inputs[0].getBits()), dirY = PlayerInput.dirY(inputs[0].getBits());
+        blockedDirX = (players[0].getX() == xStart) ? dirX : 0;
+        blockedDirY = (players[0].getY() == yStart) ? dirY : 0;
 
-        // timescale input
-        setTimescale(input);
-        // player's input processing, then check for collision
-        player.update(input);
-        exceedBorder(player);
-        processInanimateBlocks();
-        // draw player at finalized position and their health bar
-        player.getImage().drawFromTopLeft(player.getX(), player.getY());
-        player.healthColor(playerHealthBar, X_HEALTH, Y_HEALTH);
-
-        // if not level 0, update enemy's position - check winning condition
-        if (levelNum != 0) processEnemies();
-        // if player's at level 0 - check level 0's winning condition
-        else if (player.getX() >= X_WIN && player.getY() >= Y_WIN) isCompleted = true;
+        // enemies' movement and combat, objectives being met as enemies are killed
+        processEnemies();
+        projectiles.update(players, enemyList, particles, objectives);
+
+        // ending the timed states (attacks, invincibility) expiring by the next tick
+        timers.advance();
+        particles.update();
+    }
+
+    /**
+     * Captures the level to be drawn: its background, blocks, players and enemies along with
+     * their health bars, and projectiles and the particles of combat effects. Only the health bar
+     * of the player controlled by keyboard is displayed at the top corner. The snapshot can then
+     * be drawn on another thread while the level runs.
+     *
+     * @param snapshot frame being captured
+     * @see   RenderSnapshot
+     */
+    public void capture(RenderSnapshot snapshot) {
+        snapshot.clear(BACKGROUNDS[levelNum], isCompleted(), players[0].isKilled());
+        for (ObstructingBlock obstructBlock : obstructList)
+            obstructBlock.capture(snapshot);
+        for (Sinkhole sink : sinkList)
+            sink.capture(snapshot);
+        objectives.capture(snapshot);
+        // players at finalized position and the health bar; the keyboard player's sprite may be
+        // moved along the latest held keys when drawn
+        for (int i = 0; i < players.length; i++) {
+            if (players[i].isKilled()) continue;
+            snapshot.addSprite(players[i].getImagePath(), players[i].getX(), players[i].getY(), 0);
+            if (i == 0) snapshot.latchLast(players[i].getSpeed(), blockedDirX, blockedDirY);
+        }
+        snapshot.addLabel(players[0].getHealthDisplay(), X_HEALTH, Y_HEALTH, PLAYER_HEALTH_SIZE);
+
+        // enemies and their health bars, distant ones between their latest 2 updates
+        if (levelNum != 0) {
+            for (int i = 0; i < enemyList.length; i++) {
+                Enemy enemy = enemyList[i];
+                if (enemy.isKilled()) continue;
+                double share = drawnShare(i);
+                double x = xFrom[i] + (enemy.getX() - xFrom[i])*share;
+                double y = yFrom[i] + (enemy.getY() - yFrom[i])*share;
+                enemy.capture(snapshot, x, y);
+                snapshot.addLabel(enemy.getHealthDisplay(), x, y - Y_DIFF_ENEMY_HEALTH, ENEMY_HEALTH_SIZE);
+            }
+        }
+        // projectiles and combat effects over everything else
+        projectiles.capture(snapshot);
+        particles.capture(snapshot);
     }
 }
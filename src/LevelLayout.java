@@ -0,0 +1,405 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * LevelLayout class - the content of a level's CSV file as plain data: the level's corners,
+ * the player's starting position, an entry for every block and enemy, and the objectives
+ * completing the level. It is read without creating any game object, so layouts can be
+ * compared (for hot reloading) or validated.
+ * <p>
+ * Objectives are declared by lines of their own, all of which must be met:
+ * <ul>
+ *   <li>{@code Reach,x,y,width,height}: a player's position is within the region;</li>
+ *   <li>{@code Kill,name}: every enemy of the named kind is killed;</li>
+ *   <li>{@code Survive,seconds}: the level has been played for that long;</li>
+ *   <li>{@code Collect,x,y}: a player has picked up the item there.</li>
+ * </ul>
+ * A layout declaring no objective has the default one of killing its bosses, if any.
+ */
+
+public class LevelLayout {
+    // block names in csv files
+    public static final String TOP_LEFT = "TopLeft";
+    public static final String BOTTOM_RIGHT = "BottomRight";
+
+    /**
+     * Entry class - a single block or enemy in the layout, identified by its name and position.
+     */
+    public static class Entry {
+        // name in the csv file, and position
+        private final String name;
+        private final int x, y;
+
+        /**
+         * Entry constructor.
+         *
+         * @param name  object's name in the csv file
+         * @param x     x-position
+         * @param y     y-position
+         */
+        public Entry(String name, int x, int y) {
+            this.name = name;
+            this.x = x;
+            this.y = y;
+        }
+
+        /**
+         * Get object's name in the csv file.
+         *
+         * @return name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get object's x-position.
+         *
+         * @return x-position
+         */
+        public int getX() {
+            return x;
+        }
+
+        /**
+         * Get object's y-position.
+         *
+         * @return y-position
+         */
+        public int getY() {
+            return y;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Entry)) return false;
+            Entry entry = (Entry) other;
+            return name.equals(entry.name) && x == entry.x && y == entry.y;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, x, y);
+        }
+
+        @Override
+        public String toString() {
+            return name + "," + x + "," + y;
+        }
+    }
+
+    /**
+     * Objective class - a single objective of the level, as declared in its CSV file.
+     */
+    public static class Objective {
+        // objective kinds in csv files
+        public static final String REACH = "Reach";
+        public static final String KILL = "Kill";
+        public static final String SURVIVE = "Survive";
+        public static final String COLLECT = "Collect";
+
+        // kind, enemy kind to kill, region to reach or item's position, and seconds to survive
+        private final String kind;
+        private final String target;
+        private final int x, y, width, height;
+        private final int seconds;
+
+        /**
+         * Objective constructor.
+         *
+         * @param kind     objective kind, such as REACH
+         * @param target   enemy kind to kill, or null
+         * @param x        region's or item's x-position
+         * @param y        region's or item's y-position
+         * @param width    region's width
+         * @param height   region's height
+         * @param seconds  seconds to survive
+         */
+        private Objective(String kind, String target, int x, int y, int width, int height, int seconds) {
+            this.kind = kind;
+            this.target = target;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.seconds = seconds;
+        }
+
+        /**
+         * Create an objective of reaching a region.
+         *
+         * @param  x       region's x-position
+         * @param  y       region's y-position
+         * @param  width   region's width
+         * @param  height  region's height
+         * @return         the objective
+         */
+        public static Objective reach(int x, int y, int width, int height) {
+            return new Objective(REACH, null, x, y, width, height, 0);
+        }
+
+        /**
+         * Create an objective of killing every enemy of a kind.
+         *
+         * @param  target  enemy kind's name
+         * @return         the objective
+         */
+        public static Objective kill(String target) {
+            return new Objective(KILL, target, 0, 0, 0, 0, 0);
+        }
+
+        /**
+         * Create an objective of surviving for a duration.
+         *
+         * @param  seconds  seconds to survive
+         * @return          the objective
+         */
+        public static Objective survive(int seconds) {
+            return new Objective(SURVIVE, null, 0, 0, 0, 0, seconds);
+        }
+
+        /**
+         * Create an objective of collecting an item.
+         *
+         * @param  x  item's x-position
+         * @param  y  item's y-position
+         * @return    the objective
+         */
+        public static Objective collect(int x, int y) {
+            return new Objective(COLLECT, null, x, y, 0, 0, 0);
+        }
+
+        /**
+         * Whether a name in a csv file is an objective kind.
+         *
+         * @param  name  first column of a line
+         * @return       true if the line declares an objective
+         */
+        public static boolean isObjective(String name) {
+            return name.equals(REACH) || name.equals(KILL) || name.equals(SURVIVE) || name.equals(COLLECT);
+        }
+
+        /**
+         * Parse an objective's line.
+         *
+         * @param  columns  the line's columns, the first being an objective kind
+         * @return          the objective
+         * @throws IllegalArgumentException if a column is missing or is not a number
+         */
+        public static Objective parse(String[] columns) {
+            String kind = columns[0];
+            int expected = kind.equals(REACH) ? 5 : kind.equals(COLLECT) ? 3 : 2;
+            if (columns.length < expected)
+                throw new IllegalArgumentException("Expected " + expected + " columns: " + String.join(",", columns));
+            switch (kind) {
+                case REACH:
+                    return reach(Integer.parseInt(columns[1].trim()), Integer.parseInt(columns[2].trim()),
+                                 Integer.parseInt(columns[3].trim()), Integer.parseInt(columns[4].trim()));
+                case KILL:
+                    return kill(columns[1].trim());
+                case SURVIVE:
+                    return survive(Integer.parseInt(columns[1].trim()));
+                default:
+                    return collect(Integer.parseInt(columns[1].trim()), Integer.parseInt(columns[2].trim()));
+            }
+        }
+
+        /**
+         * Get objective's kind.
+         *
+         * @return kind, such as REACH
+         */
+        public String getKind() {
+            return kind;
+        }
+
+        /**
+         * Get the enemy kind to kill.
+         *
+         * @return enemy kind's name, or null if not a KILL objective
+         */
+        public String getTarget() {
+            return target;
+        }
+
+        /**
+         * Get region's or item's x-position.
+         *
+         * @return x-position
+         */
+        public int getX() {
+            return x;
+        }
+
+        /**
+         * Get region's or item's y-position.
+         *
+         * @return y-position
+         */
+        public int getY() {
+            return y;
+        }
+
+        /**
+         * Get region's width.
+         *
+         * @return width
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * Get region's height.
+         *
+         * @return height
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Get the seconds to survive.
+         *
+         * @return seconds
+         */
+        public int getSeconds() {
+            return seconds;
+        }
+
+        @Override
+        public String toString() {
+            switch (kind) {
+                case REACH:
+                    return kind + "," + x + "," + y + "," + width + "," + height;
+                case KILL:
+                    return kind + "," + target;
+                case SURVIVE:
+                    return kind + "," + seconds;
+                default:
+                    return kind + "," + x + "," + y;
+            }
+        }
+    }
+
+    /**
+     * Properties
+     */
+    // corner coordinates and player's starting position
+    private int xLeft = 0, yTop = 0, xRight = 100, yBottom = 100;
+    private int xStart = 0, yStart = 0;
+    // blocks and enemies, in file order
+    private final ArrayList<Entry> entries = new ArrayList<>();
+    // objectives, in file order
+    private final ArrayList<Objective> objectives = new ArrayList<>();
+
+    /**
+     * Read a level's layout from its CSV file.
+     *
+     * @param  fileName  CSV file name
+     * @return           the layout
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a position is not a number, or an objective is
+     *         incomplete
+     */
+    public static LevelLayout read(String fileName) throws IOException {
+        LevelLayout layout = new LevelLayout();
+        try (BufferedReader csvReader = new BufferedReader(
+                new InputStreamReader(AssetPack.open(fileName), StandardCharsets.UTF_8))) {
+            String line; String[] tempArr;
+            int xPos, yPos;
+            // reading each line of csv file
+            while ((line = csvReader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                tempArr = line.split(",");
+                if (Objective.isObjective(tempArr[0])) {
+                    layout.objectives.add(Objective.parse(tempArr));
+                    continue;
+                }
+                xPos = Integer.parseInt(tempArr[1].trim());
+                yPos = Integer.parseInt(tempArr[2].trim());
+                switch (tempArr[0]) {
+                    // data on top left position
+                    case TOP_LEFT:
+                        layout.xLeft = xPos;
+                        layout.yTop = yPos;
+                        break;
+                    // data on bottom right position
+                    case BOTTOM_RIGHT:
+                        layout.xRight = xPos;
+                        layout.yBottom = yPos;
+                        break;
+                    // data on player's position
+                    case Player.PLAYER:
+                        layout.xStart = xPos;
+                        layout.yStart = yPos;
+                        break;
+                    // data on blocks and enemies
+                    default:
+                        layout.entries.add(new Entry(tempArr[0], xPos, yPos));
+                }
+            }
+        }
+        // default objective: killing the bosses
+        if (layout.objectives.isEmpty()) {
+            Set<String> bosses = new LinkedHashSet<>();
+            for (Entry entry : layout.entries) {
+                EnemyType type = EnemyType.get(entry.getName());
+                if (type != null && type.isBoss()) bosses.add(entry.getName());
+            }
+            for (String boss : bosses) layout.objectives.add(Objective.kill(boss));
+        }
+        return layout;
+    }
+
+    /**
+     * Get the level's corner coordinates.
+     *
+     * @return {xLeft, yTop, xRight, yBottom}
+     */
+    public int[] getCorners() {
+        return new int[] {xLeft, yTop, xRight, yBottom};
+    }
+
+    /**
+     * Get player's starting x-position.
+     *
+     * @return starting x-position
+     */
+    public int getXStart() {
+        return xStart;
+    }
+
+    /**
+     * Get player's starting y-position.
+     *
+     * @return starting y-position
+     */
+    public int getYStart() {
+        return yStart;
+    }
+
+    /**
+     * Get all blocks and enemies in the layout.
+     *
+     * @return entries, in file order
+     */
+    public ArrayList<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Get all objectives of the layout.
+     *
+     * @return objectives, in file order
+     */
+    public ArrayList<Objective> getObjectives() {
+        return objectives;
+    }
+}
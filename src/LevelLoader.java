@@ -0,0 +1,226 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * LevelLoader class - reads a level's CSV file and initializes the Level with its blocks,
+ * enemies and players. It does not draw or load any image, hence levels can be loaded by
+ * the game as well as by headless tools such as the level server. A running level can also
+ * be reloaded incrementally, applying only the changes made to its CSV file.
+ */
+
+public class LevelLoader {
+
+    /**
+     * LevelLoader is a static-only class.
+     */
+    private LevelLoader() {}
+
+    /**
+     * Get the CSV file name of a level.
+     *
+     * @param  levelNum  level number
+     * @return           CSV file name
+     */
+    public static String getFileName(int levelNum) {
+        return "res/level" + levelNum + ".csv";
+    }
+
+    /**
+     * Read a level's layout; an unreadable file results in an empty layout.
+     *
+     * @param  levelNum  level number
+     * @return           the layout
+     * @see    LevelLayout
+     */
+    private static LevelLayout readLayout(int levelNum) {
+        try {
+            return LevelLayout.read(getFileName(levelNum));
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            return new LevelLayout();
+        }
+    }
+
+    /**
+     * Scanning through CSV file for initial positions and other information on the level,
+     * such as corner x,y-positions, and its objectives. All players are reset to full health
+     * and placed at the player's starting position.
+     *
+     * @param  levelNum  level number
+     * @param  players   players in the level, at least one
+     * @return           the initialized level
+     * @see    Level
+     */
+    public static Level load(int levelNum, Player[] players) {
+        return load(levelNum, players, Balance.DEFAULT, new Random());
+    }
+
+    /**
+     * Load a level with the given balance parameters, creating its enemies from the given
+     * random source so that headless runs can be reproduced.
+     *
+     * @param  levelNum  level number
+     * @param  players   players in the level, at least one
+     * @param  balance   balance parameters
+     * @param  rand      random source
+     * @return           the initialized level
+     * @see    Balance
+     */
+    public static Level load(int levelNum, Player[] players, Balance balance, Random rand) {
+        LevelLayout layout = readLayout(levelNum);
+        for (Player player : players) {
+            player.setDefaultHealth();
+            player.setPos(layout.getXStart(), layout.getYStart());
+        }
+        // enemy list
+        ArrayList<Enemy> enemyList = new ArrayList<>();
+        // block lists
+        ArrayList<Sinkhole> sinkList = new ArrayList<>();
+        ArrayList<ObstructingBlock> obstructList = new ArrayList<>();
+        for (LevelLayout.Entry entry : layout.getEntries())
+            addObject(levelNum, entry, balance, rand, enemyList, sinkList, obstructList);
+
+        // initialize the level
+        int[] corners = layout.getCorners();
+        Level level = new Level(levelNum, players, corners[0], corners[1], corners[2], corners[3],
+                                enemyList.toArray(new Enemy[0]), sinkList.toArray(new Sinkhole[0]),
+                                obstructList.toArray(new ObstructingBlock[0]));
+        level.setObjectives(layout.getObjectives());
+        return level;
+    }
+
+    /**
+     * Create the object of a layout entry, and add it to its list.
+     *
+     * @param levelNum      level number
+     * @param entry         layout entry
+     * @param balance       balance parameters
+     * @param rand          random source
+     * @param enemyList     list of enemies
+     * @param sinkList      list of sinkholes
+     * @param obstructList  list of obstructing blocks
+     */
+    private static void addObject(int levelNum, LevelLayout.Entry entry, Balance balance, Random rand,
+                                  ArrayList<Enemy> enemyList, ArrayList<Sinkhole> sinkList,
+                                  ArrayList<ObstructingBlock> obstructList) {
+        int xPos = entry.getX(), yPos = entry.getY();
+        switch (entry.getName()) {
+            // data on obstructing blocks
+            case ObstructingBlock.WALL_NAME:
+            case ObstructingBlock.TREE_NAME:
+                obstructList.add(new ObstructingBlock(ObstructingBlock.OBSTRUCTION_FILE_NAMES[levelNum],
+                                 ObstructingBlock.OBSTRUCTION_NAMES[levelNum], xPos, yPos));
+                break;
+            // data on blocks -> counting
+            case Sinkhole.SINK_NAME:
+                sinkList.add(new Sinkhole(xPos, yPos, balance.getSinkDamage()));
+                break;
+            // data on enemy's position (any archetype): initialize and add to enemy list
+            default:
+                EnemyType type = EnemyType.get(entry.getName());
+                if (type == null) break;
+                Enemy enemy = new Enemy(type, balance, rand);
+                enemy.setSpawn(xPos, yPos);
+                enemyList.add(enemy);
+        }
+    }
+
+    /**
+     * Take an object's entry out of the remaining entry counts.
+     *
+     * @param  remaining  count of each entry not yet matched to an existing object
+     * @param  entry      the object's entry
+     * @return            true if the entry is still in the layout (the object is kept)
+     */
+    private static boolean match(Map<LevelLayout.Entry, Integer> remaining, LevelLayout.Entry entry) {
+        Integer count = remaining.get(entry);
+        if (count == null) return false;
+        if (count == 1) remaining.remove(entry);
+        else remaining.put(entry, count-1);
+        return true;
+    }
+
+    /**
+     * Reload a running level from its CSV file, applying only what has changed: blocks and
+     * enemies still listed are kept along with their state, those no longer listed are removed
+     * and new ones are added. An enemy whose line has been edited to a new position is moved
+     * there, keeping its health. Players are not affected, and the level is left untouched if
+     * the file cannot be read. Objectives are declared again, restarting their progress, except
+     * for the enemies already killed.
+     *
+     * @param level the running level
+     * @see   Level
+     */
+    public static void reload(Level level) {
+        int levelNum = level.getLevelNum();
+        LevelLayout layout;
+        try {
+            layout = LevelLayout.read(getFileName(levelNum));
+        }
+        catch (Exception e) {
+            // file may be half-written by an editor; the next change will reload it
+            System.out.println("Unable to reload " + getFileName(levelNum) + ": " + e);
+            return;
+        }
+        Map<LevelLayout.Entry, Integer> remaining = new HashMap<>();
+        for (LevelLayout.Entry entry : layout.getEntries()) remaining.merge(entry, 1, Integer::sum);
+
+        // keeping objects still in the layout
+        ArrayList<Enemy> enemyList = new ArrayList<>();
+        ArrayList<Enemy> removedEnemies = new ArrayList<>();
+        ArrayList<Sinkhole> sinkList = new ArrayList<>();
+        ArrayList<ObstructingBlock> obstructList = new ArrayList<>();
+        int removed = 0, added = 0, moved = 0;
+        for (ObstructingBlock block : level.getObstructions()) {
+            LevelLayout.Entry entry = new LevelLayout.Entry(block.getName(),
+                    (int) block.getPosition().x, (int) block.getPosition().y);
+            if (match(remaining, entry)) obstructList.add(block);
+            else removed++;
+        }
+        for (Sinkhole sink : level.getSinkholes()) {
+            LevelLayout.Entry entry = new LevelLayout.Entry(sink.getName(),
+                    (int) sink.getPosition().x, (int) sink.getPosition().y);
+            if (match(remaining, entry)) sinkList.add(sink);
+            else removed++;
+        }
+        for (Enemy enemy : level.getEnemies()) {
+            LevelLayout.Entry entry = new LevelLayout.Entry(enemy.getName(),
+                    (int) enemy.getXSpawn(), (int) enemy.getYSpawn());
+            if (match(remaining, entry)) enemyList.add(enemy);
+            else removedEnemies.add(enemy);
+        }
+
+        // new entries: moving a removed enemy of the same kind, otherwise adding a new object
+        for (Map.Entry<LevelLayout.Entry, Integer> newEntry : remaining.entrySet()) {
+            LevelLayout.Entry entry = newEntry.getKey();
+            for (int i = 0; i < newEntry.getValue(); i++) {
+                Enemy movedEnemy = null;
+                for (Enemy enemy : removedEnemies) {
+                    if (enemy.getName().equals(entry.getName())) {
+                        movedEnemy = enemy;
+                        break;
+                    }
+                }
+                if (movedEnemy != null) {
+                    removedEnemies.remove(movedEnemy);
+                    movedEnemy.setSpawn(entry.getX(), entry.getY());
+                    enemyList.add(movedEnemy);
+                    moved++;
+                    continue;
+                }
+                addObject(levelNum, entry, Balance.DEFAULT, new Random(), enemyList, sinkList, obstructList);
+                added++;
+            }
+        }
+        removed += removedEnemies.size();
+
+        level.setContents(layout.getCorners(), enemyList.toArray(new Enemy[0]),
+                          sinkList.toArray(new Sinkhole[0]), obstructList.toArray(new ObstructingBlock[0]));
+        level.setObjectives(layout.getObjectives());
+        System.out.println("Reloaded " + getFileName(levelNum) + ": " + added + " added, " +
+                           removed + " removed, " + moved + " moved");
+    }
+}
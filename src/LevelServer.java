@@ -0,0 +1,352 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LevelServer class - runs the authoritative tick loop of a level, headless. Every client
+ * connected over local TCP controls one player: it sends its requested actions (PlayerInput
+ * flags) along with the latest tick it has received, and receives the level's state after
+ * every tick, delta-encoded against that acknowledged tick. All inputs received between 2 ticks
+ * are batched and applied in a single Level tick.
+ */
+
+public class LevelServer {
+    // default port and tick rate
+    public static final int DEFAULT_PORT = 7777;
+    public static final int TICKS_PER_SECOND = 60;
+    private static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    // client message: input flags (byte) and acknowledged tick (int)
+    public static final int INPUT_BYTES = 1 + Integer.BYTES;
+    private static final int INBOX_BYTES = INPUT_BYTES*64;
+
+    /**
+     * Properties
+     */
+    // level and its players, with the inputs batched for the next tick
+    private final Level level;
+    private final Player[] players;
+    private final PlayerInput[] inputs;
+    private final int[] movementBits;
+    private final int[] attackBits;
+    // connections, each with its acknowledged tick
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final SocketChannel[] clients;
+    private final ByteBuffer[] inboxes;
+    private final ByteBuffer[] outboxes;
+    private final int[] ackTicks;
+    // snapshots of the latest ticks, as baselines for the delta encoding
+    private final Snapshot[] history = new Snapshot[SnapshotCodec.HISTORY];
+    private final ByteBuffer fullBuffer;
+    private int tick = 0;
+    // bytes sent, and bytes the same states would take without a baseline
+    private long bytesSent = 0, fullBytes = 0;
+
+    /**
+     * Level server constructor: loads the level headless and binds the server to localhost.
+     *
+     * @param port        port to listen on, or 0 for any free port
+     * @param levelNum    level to run
+     * @param numPlayers  number of clients (players) the level is played by
+     * @throws IOException if the server cannot be bound
+     */
+    public LevelServer(int port, int levelNum, int numPlayers) throws IOException {
+        Sprites.setHeadless(true);
+        players = new Player[numPlayers];
+        inputs = new PlayerInput[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            players[i] = new Player();
+            inputs[i] = new PlayerInput();
+        }
+        movementBits = new int[numPlayers];
+        attackBits = new int[numPlayers];
+        level = LevelLoader.load(levelNum, players);
+
+        for (int i = 0; i < history.length; i++) history[i] = new Snapshot(level);
+        int stateBytes = Integer.BYTES + SnapshotCodec.maxEncodedBytes(history[0].getNumObjects(),
+                                                                       history[0].getNumSinkholes());
+        fullBuffer = ByteBuffer.allocate(stateBytes);
+        clients = new SocketChannel[numPlayers];
+        inboxes = new ByteBuffer[numPlayers];
+        outboxes = new ByteBuffer[numPlayers];
+        ackTicks = new int[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            inboxes[i] = ByteBuffer.allocate(INBOX_BYTES);
+            outboxes[i] = ByteBuffer.allocate(stateBytes).flip();
+            ackTicks[i] = -1;
+        }
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        selector = Selector.open();
+    }
+
+    /**
+     * Get the port the server listens on.
+     *
+     * @return local port
+     * @throws IOException if the server is closed
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Get the level run by the server.
+     *
+     * @return level
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Get number of bytes sent to all clients so far.
+     *
+     * @return bytes sent
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Get number of bytes the same states would have taken if sent to every client without
+     * a baseline; used to measure the gain of delta encoding.
+     *
+     * @return bytes of the states encoded in full
+     */
+    public long getFullBytes() {
+        return fullBytes;
+    }
+
+    /**
+     * Wait until every player has a connected client. Each client is first sent the index
+     * of the player it controls.
+     *
+     * @throws IOException if a connection fails
+     */
+    public void acceptPlayers() throws IOException {
+        for (int i = 0; i < clients.length; i++) {
+            SocketChannel client = serverChannel.accept();
+            client.socket().setTcpNoDelay(true);
+            ByteBuffer welcome = ByteBuffer.allocate(Integer.BYTES).putInt(i).flip();
+            while (welcome.hasRemaining()) client.write(welcome);
+            client.configureBlocking(false);
+            client.register(selector, SelectionKey.OP_READ, i);
+            clients[i] = client;
+        }
+        System.out.println("Level " + level.getLevelNum() + " started with " + clients.length + " players");
+    }
+
+    /**
+     * Read all inputs received since the last tick. The latest movement and acknowledged tick
+     * of every client are kept, while an attack requested at any point in between is kept until
+     * the next tick.
+     *
+     * @throws IOException if reading fails
+     */
+    private void readInputs() throws IOException {
+        selector.selectNow();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            int index = (Integer) key.attachment();
+            int read;
+            try {
+                read = readInbox(index);
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+                read = -1;
+            }
+            // client disconnected: its player stands still
+            if (read < 0) {
+                key.cancel();
+                drop(index);
+            }
+        }
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i].setBits(movementBits[i] | attackBits[i]);
+            attackBits[i] = 0;
+        }
+    }
+
+    /**
+     * Read all messages received from a client.
+     *
+     * @param  index  client index
+     * @return        result of the last read, negative once the client has disconnected
+     * @throws IOException if reading fails
+     */
+    private int readInbox(int index) throws IOException {
+        ByteBuffer inbox = inboxes[index];
+        int read;
+        while ((read = clients[index].read(inbox)) > 0) {
+            inbox.flip();
+            while (inbox.remaining() >= INPUT_BYTES) {
+                int bits = inbox.get();
+                movementBits[index] = bits & ~PlayerInput.ATTACK;
+                attackBits[index] |= bits & PlayerInput.ATTACK;
+                ackTicks[index] = Math.max(ackTicks[index], inbox.getInt());
+            }
+            inbox.compact();
+        }
+        return read;
+    }
+
+    /**
+     * Drop a client whose connection has closed or failed; its player stands still, and the
+     * other clients are unaffected.
+     *
+     * @param index  client index
+     */
+    private void drop(int index) {
+        try {
+            clients[index].close();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+        movementBits[index] = 0;
+        System.out.println("Player " + index + " disconnected");
+    }
+
+    /**
+     * Send the latest state to every client, delta-encoded against the latest tick it has
+     * acknowledged, or in full if that tick is no longer in the history. A client whose previous
+     * state has not been fully written yet keeps flushing it, and simply skips the newer state.
+     * A client that cannot be written to is dropped.
+     */
+    private void broadcastState() {
+        Snapshot current = history[tick % history.length];
+        fullBuffer.clear();
+        SnapshotCodec.encode(current, null, fullBuffer);
+        for (int i = 0; i < clients.length; i++) {
+            if (clients[i] == null || !clients[i].isOpen()) continue;
+            ByteBuffer outbox = outboxes[i];
+            if (!outbox.hasRemaining()) {
+                outbox.clear();
+                outbox.position(Integer.BYTES);
+                SnapshotCodec.encode(current, Snapshot.find(history, ackTicks[i]), outbox);
+                outbox.putInt(0, outbox.position() - Integer.BYTES);
+                outbox.flip();
+                fullBytes += Integer.BYTES + fullBuffer.position();
+            }
+            try {
+                bytesSent += clients[i].write(outbox);
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+                drop(i);
+            }
+        }
+    }
+
+    /**
+     * Performs a single authoritative tick: batching inputs, updating the level and
+     * broadcasting its state.
+     *
+     * @return time taken by the tick, in nanoseconds
+     * @throws IOException if the connections cannot be polled
+     */
+    public long tick() throws IOException {
+        long start = System.nanoTime();
+        readInputs();
+        level.tick(inputs);
+        tick++;
+        history[tick % history.length].capture(level, tick);
+        broadcastState();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Whether the level is over: completed, or every player has been killed.
+     *
+     * @return true if there is nothing left to run
+     */
+    public boolean isOver() {
+        if (level.isCompleted()) return true;
+        for (Player player : players)
+            if (!player.isKilled()) return false;
+        return true;
+    }
+
+    /**
+     * Run the tick loop at a fixed rate for a number of ticks, stopping early once the level
+     * is over.
+     *
+     * @param  ticks  maximum number of ticks to run
+     * @return        time taken by each tick run, in nanoseconds
+     * @throws IOException if the connections cannot be polled
+     */
+    public long[] run(int ticks) throws IOException {
+        long[] tickNanos = new long[ticks];
+        long deadline = System.nanoTime();
+        int i = 0;
+        while (i < ticks && !isOver()) {
+            tickNanos[i++] = tick();
+            deadline += TICK_NANOS;
+            long wait = deadline - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+        }
+        return Arrays.copyOf(tickNanos, i);
+    }
+
+    /**
+     * Close the server and all its connections.
+     *
+     * @throws IOException if closing fails
+     */
+    public void close() throws IOException {
+        for (SocketChannel client : clients)
+            if (client != null) client.close();
+        selector.close();
+        serverChannel.close();
+    }
+
+    /**
+     * Get a percentile of the tick times.
+     *
+     * @param  tickNanos   time taken by each tick, in nanoseconds
+     * @param  percentile  percentile between 0 and 100
+     * @return             the percentile, in nanoseconds
+     */
+    public static long percentile(long[] tickNanos, double percentile) {
+        long[] sorted = tickNanos.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.min(sorted.length-1, Math.max(0, index))];
+    }
+
+    /**
+     * The entry point for the server: [port] [level number] [number of players].
+     * Tick times are logged every minute, until the level is completed or every player
+     * has been killed.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int levelNum = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+        int numPlayers = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+        LevelServer server = new LevelServer(port, levelNum, numPlayers);
+        System.out.println("Waiting for " + numPlayers + " players on port " + server.getPort());
+        server.acceptPlayers();
+        while (!server.isOver()) {
+            long[] tickNanos = server.run(TICKS_PER_SECOND*60);
+            if (tickNanos.length == 0) break;
+            System.out.printf("Tick time: mean %.3f ms, p99 %.3f ms%n",
+                              Arrays.stream(tickNanos).average().orElse(0) / 1e6,
+                              percentile(tickNanos, 99) / 1e6);
+        }
+        System.out.println(server.getLevel().isCompleted() ? "Level completed" : "All players killed");
+        server.close();
+    }
+}
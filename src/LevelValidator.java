@@ -0,0 +1,456 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * LevelValidator class - a headless batch checker of level CSV files, validating many files in
+ * parallel over a work-stealing pool. Each level is checked without creating any game object:
+ * <ul>
+ *   <li>errors: missing or inverted corners, unknown names, the player or an enemy starting
+ *   out of bounds or inside an obstruction, no objective, an objective killing an unknown
+ *   enemy, and no path from the player's start to an objective;</li>
+ *   <li>warnings: blocks out of bounds, sinkholes overlapping an obstruction, duplicated lines,
+ *   and objectives met at once (with no enemy to kill or no time to survive).</li>
+ * </ul>
+ * Reachability is checked by rasterizing the obstructions, inflated by the player's size, over a
+ * grid of the player's possible positions, then searching breadth-first from the start. Every
+ * objective met by moving must be reachable: its region, its item, or one of its enemies to
+ * kill at their spawn. Sinkholes are considered passable, as they only damage the player.
+ * <p>
+ * Usage: LevelValidator [-q] file or directory...
+ * <p>
+ * Directories are searched for CSV files; with -q, only levels with issues are listed. The exit
+ * status is non-zero if any level has an error.
+ */
+
+public class LevelValidator {
+    // grid cell size, in pixels (2 steps of the player)
+    private static final int CELL_SIZE = 4;
+    // player's sprite, as drawn when a level starts
+    private static final String PLAYER_SPRITE = "res/" + Player.PLAYER_FILE_NAME + "/" + Player.PLAYER_FILE_NAME + "Right.png";
+    // level number in a level's file name
+    private static final Pattern LEVEL_NUM = Pattern.compile("level(\\d+)\\.csv$");
+
+    /**
+     * Report class - the issues found in a single level.
+     */
+    private static class Report {
+        // level file, errors and warnings, and shortest path length (-1 if not searched)
+        private final String fileName;
+        private final List<String> errors = new ArrayList<>();
+        private final List<String> warnings = new ArrayList<>();
+        private int pathLength = -1;
+
+        /**
+         * Report constructor.
+         *
+         * @param fileName  level file name
+         */
+        private Report(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    /**
+     * Box class - an object's bounding box, with its name and line for reporting.
+     */
+    private static class Box {
+        // entry, and bounds
+        private final LevelLayout.Entry entry;
+        private final double x, y, width, height;
+
+        /**
+         * Box constructor.
+         *
+         * @param entry   layout entry
+         * @param sprite  sprite path, whose size is the box's size
+         */
+        private Box(LevelLayout.Entry entry, String sprite) {
+            this.entry = entry;
+            this.x = entry.getX();
+            this.y = entry.getY();
+            this.width = Sprites.getWidth(sprite);
+            this.height = Sprites.getHeight(sprite);
+        }
+
+        /**
+         * Box constructor, of the given size.
+         *
+         * @param entry   layout entry
+         * @param width   box's width
+         * @param height  box's height
+         */
+        private Box(LevelLayout.Entry entry, double width, double height) {
+            this.entry = entry;
+            this.x = entry.getX();
+            this.y = entry.getY();
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Whether this box overlaps a box of the given size at the given position.
+         *
+         * @param  x       other box's x-position
+         * @param  y       other box's y-position
+         * @param  width   other box's width
+         * @param  height  other box's height
+         * @return         true if they overlap
+         */
+        private boolean overlaps(double x, double y, double width, double height) {
+            return x < this.x + this.width && x + width > this.x && y < this.y + this.height && y + height > this.y;
+        }
+
+        /**
+         * Whether this box overlaps another.
+         *
+         * @param  other  other box
+         * @return        true if they overlap
+         */
+        private boolean overlaps(Box other) {
+            return overlaps(other.x, other.y, other.width, other.height);
+        }
+    }
+
+    /**
+     * LevelValidator is a static-only class.
+     */
+    private LevelValidator() {}
+
+    /**
+     * Validate a single level file.
+     *
+     * @param  fileName  level file name
+     * @return           the issues found
+     */
+    private static Report validate(String fileName) {
+        Report report = new Report(fileName);
+        LevelLayout layout;
+        try {
+            layout = LevelLayout.read(fileName);
+        }
+        catch (IOException | RuntimeException e) {
+            report.errors.add("unreadable: " + e);
+            return report;
+        }
+        int[] corners = layout.getCorners();
+        int xLeft = corners[0], yTop = corners[1], xRight = corners[2], yBottom = corners[3];
+        if (xRight <= xLeft || yBottom <= yTop) {
+            report.errors.add("corners " + LevelLayout.TOP_LEFT + " " + xLeft + "," + yTop + " and " +
+                              LevelLayout.BOTTOM_RIGHT + " " + xRight + "," + yBottom + " are missing or inverted");
+            return report;
+        }
+        int levelNum = levelNum(fileName);
+
+        // sorting entries into obstructions, sinkholes and enemies
+        List<Box> obstructions = new ArrayList<>(), sinkholes = new ArrayList<>(), enemies = new ArrayList<>();
+        Set<String> lines = new HashSet<>();
+        for (LevelLayout.Entry entry : layout.getEntries()) {
+            if (!lines.add(entry.toString())) report.warnings.add("duplicated line " + entry);
+            String name = entry.getName();
+            EnemyType type = EnemyType.get(name);
+            Box box;
+            if (name.equals(ObstructingBlock.WALL_NAME) || name.equals(ObstructingBlock.TREE_NAME)) {
+                box = new Box(entry, "res/" + obstructionFile(levelNum, name) + ".png");
+                obstructions.add(box);
+            }
+            else if (name.equals(Sinkhole.SINK_NAME)) {
+                box = new Box(entry, "res/sinkhole.png");
+                sinkholes.add(box);
+            }
+            else if (type != null) {
+                box = new Box(entry, type.getSprite(false, true));
+                enemies.add(box);
+            }
+            else {
+                report.errors.add("unknown name in line " + entry);
+                continue;
+            }
+            if (box.x < xLeft || box.x > xRight || box.y < yTop || box.y > yBottom) {
+                if (type != null) report.errors.add(entry + " is out of bounds");
+                else report.warnings.add(entry + " is out of bounds");
+            }
+        }
+
+        // overlaps with obstructions
+        Box player = new Box(new LevelLayout.Entry(Player.PLAYER, layout.getXStart(), layout.getYStart()), PLAYER_SPRITE);
+        if (player.x < xLeft || player.x > xRight || player.y < yTop || player.y > yBottom)
+            report.errors.add(player.entry + " starts out of bounds");
+        for (Box obstruction : obstructions) {
+            if (obstruction.overlaps(player)) report.errors.add(player.entry + " starts inside " + obstruction.entry);
+            for (Box enemy : enemies)
+                if (obstruction.overlaps(enemy)) report.errors.add(enemy.entry + " starts inside " + obstruction.entry);
+            for (Box sinkhole : sinkholes)
+                if (obstruction.overlaps(sinkhole)) report.warnings.add(sinkhole.entry + " overlaps " + obstruction.entry);
+        }
+
+        // reachability of the objectives met by moving: regions to reach, items to collect and
+        // enemies to kill (at their spawn), the path length being that to the farthest one
+        if (layout.getObjectives().isEmpty()) report.errors.add("no objective, the level cannot be completed");
+        int cols = (xRight - xLeft) / CELL_SIZE + 1, rows = (yBottom - yTop) / CELL_SIZE + 1;
+        int[] distance = searchPaths(cols, rows, xLeft, yTop, player, obstructions);
+        for (LevelLayout.Objective objective : layout.getObjectives()) {
+            boolean[] goal = new boolean[cols*rows];
+            switch (objective.getKind()) {
+                case LevelLayout.Objective.REACH:
+                    markRegion(goal, cols, rows, xLeft, yTop, objective);
+                    break;
+                case LevelLayout.Objective.COLLECT:
+                    LevelLayout.Entry entry = new LevelLayout.Entry(objective.getKind(), objective.getX(), objective.getY());
+                    Box item = new Box(entry, Objectives.ITEM_SIZE, Objectives.ITEM_SIZE);
+                    mark(goal, cols, rows, xLeft, yTop, item, player);
+                    break;
+                case LevelLayout.Objective.KILL:
+                    if (EnemyType.get(objective.getTarget()) == null) {
+                        report.errors.add("unknown enemy in objective " + objective);
+                        continue;
+                    }
+                    for (Box enemy : enemies)
+                        if (enemy.entry.getName().equals(objective.getTarget())) mark(goal, cols, rows, xLeft, yTop, enemy, player);
+                    break;
+                default:
+                    if (objective.getSeconds() <= 0) report.warnings.add("objective " + objective + " is met at once");
+                    continue;
+            }
+            int length = pathLength(distance, goal);
+            if (length >= 0) report.pathLength = Math.max(report.pathLength, length);
+            else if (objective.getKind().equals(LevelLayout.Objective.KILL) && !contains(goal))
+                report.warnings.add("objective " + objective + " has no enemy to kill, and is met at once");
+            else report.errors.add("objective " + objective + " is unreachable from the start");
+        }
+        return report;
+    }
+
+    /**
+     * Get a level's number from its file name, e.g. 1 for "level1.csv".
+     *
+     * @param  fileName  level file name
+     * @return           level number, or -1 if the name has none
+     */
+    private static int levelNum(String fileName) {
+        Matcher matcher = LEVEL_NUM.matcher(fileName);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    /**
+     * Get the image file of an obstruction: the level's own obstruction for the game's levels,
+     * otherwise the one named in the file.
+     *
+     * @param  levelNum  level number, or -1 if unknown
+     * @param  name      obstruction's name in the file
+     * @return           image file name, such as "wall"
+     */
+    private static String obstructionFile(int levelNum, String name) {
+        if (levelNum >= 0 && levelNum < ObstructingBlock.OBSTRUCTION_FILE_NAMES.length)
+            return ObstructingBlock.OBSTRUCTION_FILE_NAMES[levelNum];
+        return name.toLowerCase();
+    }
+
+    /**
+     * Breadth-first search over the grid of the player's positions (top-left corners, within
+     * the corners), from the start to every position it can reach.
+     *
+     * @param  cols          grid columns
+     * @param  rows          grid rows
+     * @param  xLeft         x-position of the first column
+     * @param  yTop          y-position of the first row
+     * @param  player        player at its start
+     * @param  obstructions  obstructing blocks
+     * @return               distance of each cell from the start in cells, -1 if not reached
+     */
+    private static int[] searchPaths(int cols, int rows, int xLeft, int yTop, Box player, List<Box> obstructions) {
+        boolean[] blocked = new boolean[cols*rows];
+        for (Box obstruction : obstructions) mark(blocked, cols, rows, xLeft, yTop, obstruction, player);
+        int[] queue = new int[cols*rows], distance = new int[cols*rows];
+        Arrays.fill(distance, -1);
+        int startCol = (int) Math.round((player.x - xLeft) / CELL_SIZE), startRow = (int) Math.round((player.y - yTop) / CELL_SIZE);
+        if (startCol < 0 || startCol >= cols || startRow < 0 || startRow >= rows) return distance;
+        int head = 0, tail = 0, start = startRow*cols + startCol;
+        queue[tail++] = start;
+        distance[start] = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            int col = cell % cols, row = cell / cols;
+            if (col > 0)      tail = visit(cell, cell-1, blocked, distance, queue, tail);
+            if (col < cols-1) tail = visit(cell, cell+1, blocked, distance, queue, tail);
+            if (row > 0)      tail = visit(cell, cell-cols, blocked, distance, queue, tail);
+            if (row < rows-1) tail = visit(cell, cell+cols, blocked, distance, queue, tail);
+        }
+        return distance;
+    }
+
+    /**
+     * Get the length of the shortest path from the start to a goal.
+     *
+     * @param  distance  distance of each cell from the start, -1 if not reached
+     * @param  goal      goal cells
+     * @return           length of the shortest path in pixels, or -1 if the goal is unreachable
+     */
+    private static int pathLength(int[] distance, boolean[] goal) {
+        int shortest = -1;
+        for (int cell = 0; cell < goal.length; cell++)
+            if (goal[cell] && distance[cell] >= 0 && (shortest < 0 || distance[cell] < shortest)) shortest = distance[cell];
+        return (shortest < 0) ? -1 : shortest * CELL_SIZE;
+    }
+
+    /**
+     * Whether any cell of a grid is marked.
+     *
+     * @param  cells  grid
+     * @return        true if a cell is marked
+     */
+    private static boolean contains(boolean[] cells) {
+        for (boolean cell : cells)
+            if (cell) return true;
+        return false;
+    }
+
+    /**
+     * Mark the player's positions within a region to reach.
+     *
+     * @param cells      grid to mark
+     * @param cols       grid columns
+     * @param rows       grid rows
+     * @param xLeft      x-position of the first column
+     * @param yTop       y-position of the first row
+     * @param objective  REACH objective
+     */
+    private static void markRegion(boolean[] cells, int cols, int rows, int xLeft, int yTop,
+                                   LevelLayout.Objective objective) {
+        int colMin = Math.max(0, (int) Math.ceil((double) (objective.getX() - xLeft) / CELL_SIZE));
+        int colMax = Math.min(cols-1, Math.floorDiv(objective.getX() + objective.getWidth() - xLeft, CELL_SIZE));
+        int rowMin = Math.max(0, (int) Math.ceil((double) (objective.getY() - yTop) / CELL_SIZE));
+        int rowMax = Math.min(rows-1, Math.floorDiv(objective.getY() + objective.getHeight() - yTop, CELL_SIZE));
+        for (int row = rowMin; row <= rowMax; row++)
+            for (int col = colMin; col <= colMax; col++)
+                cells[row*cols + col] = true;
+    }
+
+    /**
+     * Mark the player's positions at which it would overlap a box.
+     *
+     * @param cells   grid to mark
+     * @param cols    grid columns
+     * @param rows    grid rows
+     * @param xLeft   x-position of the first column
+     * @param yTop    y-position of the first row
+     * @param box     box to overlap
+     * @param player  player, whose size is used
+     */
+    private static void mark(boolean[] cells, int cols, int rows, int xLeft, int yTop, Box box, Box player) {
+        int colMin = Math.max(0, (int) Math.floor((box.x - player.width - xLeft) / CELL_SIZE) + 1);
+        int colMax = Math.min(cols-1, (int) Math.ceil((box.x + box.width - xLeft) / CELL_SIZE) - 1);
+        int rowMin = Math.max(0, (int) Math.floor((box.y - player.height - yTop) / CELL_SIZE) + 1);
+        int rowMax = Math.min(rows-1, (int) Math.ceil((box.y + box.height - yTop) / CELL_SIZE) - 1);
+        for (int row = rowMin; row <= rowMax; row++)
+            for (int col = colMin; col <= colMax; col++)
+                cells[row*cols + col] = true;
+    }
+
+    /**
+     * Visit a neighbouring cell during the search, queueing it if it is free and not yet reached.
+     *
+     * @param  from      cell it is reached from
+     * @param  cell      neighbouring cell
+     * @param  blocked   blocked cells
+     * @param  distance  distance of each reached cell, -1 if not reached
+     * @param  queue     search queue
+     * @param  tail      queue's tail
+     * @return           the new tail
+     */
+    private static int visit(int from, int cell, boolean[] blocked, int[] distance, int[] queue, int tail) {
+        if (blocked[cell] || distance[cell] >= 0) return tail;
+        distance[cell] = distance[from] + 1;
+        queue[tail] = cell;
+        return tail + 1;
+    }
+
+    /**
+     * List the CSV files to validate: the given files, and the CSV files under the given
+     * directories, except the enemies' data file.
+     *
+     * @param  paths  files and directories
+     * @return        level file names
+     * @throws IOException if a directory cannot be read
+     */
+    private static List<String> listFiles(List<String> paths) throws IOException {
+        List<String> files = new ArrayList<>();
+        String dataFile = new File(EnemyType.FILE_NAME).getName();
+        for (String path : paths) {
+            if (!new File(path).isDirectory()) {
+                files.add(path);
+                continue;
+            }
+            try (Stream<Path> walk = Files.walk(Paths.get(path))) {
+                files.addAll(walk.filter(Files::isRegularFile)
+                                 .map(file -> file.toString().replace(File.separatorChar, '/'))
+                                 .filter(file -> file.endsWith(".csv") && !file.endsWith("/" + dataFile))
+                                 .sorted()
+                                 .collect(Collectors.toList()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * The entry point for the level validator.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        boolean isQuiet = args.length > 0 && args[0].equals("-q");
+        List<String> paths = new ArrayList<>(List.of(args).subList(isQuiet ? 1 : 0, args.length));
+        if (paths.isEmpty()) paths.add(AssetWatcher.RES_DIR);
+        List<String> files;
+        try {
+            files = listFiles(paths);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            System.exit(2);
+            return;
+        }
+        Sprites.setHeadless(true);
+
+        ExecutorService pool = Executors.newWorkStealingPool();
+        List<Future<Report>> reports = new ArrayList<>();
+        long start = System.nanoTime();
+        for (String file : files) reports.add(pool.submit(() -> validate(file)));
+
+        int invalid = 0, warned = 0;
+        try {
+            for (Future<Report> future : reports) {
+                Report report = future.get();
+                if (!report.errors.isEmpty()) invalid++;
+                else if (!report.warnings.isEmpty()) warned++;
+                if (isQuiet && report.errors.isEmpty() && report.warnings.isEmpty()) continue;
+                System.out.println((report.errors.isEmpty() ? "OK      " : "INVALID ") + report.fileName +
+                                   ((report.pathLength >= 0) ? " (path " + report.pathLength + " px)" : ""));
+                for (String error : report.errors) System.out.println("  error: " + error);
+                for (String warning : report.warnings) System.out.println("  warning: " + warning);
+            }
+        }
+        catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d levels in %.2f s: %d invalid, %d with warnings%n", files.size(), seconds, invalid, warned);
+        if (invalid > 0) System.exit(1);
+    }
+}
@@ -15,29 +15,29 @@ public abstract class LiveObject {
     public static final double TO_FRAME = 60.0/1000;
     // invincible time, converted to frames
     private static final double INVINCIBLE_TIME = 3000;
-    private static final double INVINCIBLE_FRAMES = INVINCIBLE_TIME*TO_FRAME;
+    private static final long INVINCIBLE_FRAMES = Math.round(INVINCIBLE_TIME*TO_FRAME);
     // health and health colors
     private static final int HEALTH_SAFE = 65;
     private static final int HEALTH_CAUTIOUS = 35;
     private static final Colour HEALTH_SAFE_COLOR = new Colour(0, 0.8, 0.2);
     private static final Colour HEALTH_CAUTIOUS_COLOR = new Colour(0.9, 0.6, 0);
     private static final Colour HEALTH_DANGER_COLOR = new Colour(1, 0, 0);
+    // whether damage logs are printed (disabled by headless tools running many players)
+    private static boolean isLogging = true;
 
     /**
      * Properties
      */
-    // object's name, naming in files
-    private final String name;
-    private final String filename;
-    // object's image and Rectangle block
-    private Image objectImg;
+    // object's sprite path, its size, and Rectangle block
+    private String imagePath;
+    private double width, height;
     private final Rectangle block;
-    // object's health and damage
+    // object's health
     private double health;
-    private final double maxHealth;
     private int healthDisplay = 100;
-    private final double damage;
-    private double invincibleFrame = 0;
+    // timers of the level the object is in, and end of the invincible state
+    private TimingWheel timers = null;
+    private final TimingWheel.Timer invincibleTimer = new TimingWheel.Timer(this::endInvincible);
     // alive status
     private boolean isKilled = false;
     // object's position
@@ -46,25 +46,31 @@ public abstract class LiveObject {
     // object's direction
     private char direction;
     private String dirLR = null;
+    // random source, used when facing up or down without a previous left/right direction
+    private final Random rand;
 
     /**
-     * Live object's constructor.
+     * Live object's constructor. Object's name, stats and health are left to the
+     * child classes, which set the initial health.
      *
-     * @param objectImg  object's image, which is used to initialize object's
-     *                   Rectangle block
-     * @param name       object's name
-     * @param filename   object's name stored in the files
-     * @param damage     object's damage point
-     * @param maxHealth  object's maximum health
+     * @param imagePath  object's sprite path, whose size is used to initialize
+     *                   object's Rectangle block
      */
-    public LiveObject(Image objectImg, String name, String filename, double damage, double maxHealth) {
-        this.name = name;
-        this.filename = filename;
-        this.objectImg = objectImg;
-        this.block = new Rectangle(0, 0, objectImg.getWidth(), objectImg.getHeight());
-        this.damage = damage;
-        this.maxHealth = maxHealth;
-        this.health = maxHealth;
+    public LiveObject(String imagePath) {
+        this(imagePath, new Random());
+    }
+
+    /**
+     * Live object's constructor with a given random source, seeded by the caller for
+     * reproducible runs.
+     *
+     * @param imagePath  object's sprite path
+     * @param rand       random source
+     */
+    public LiveObject(String imagePath, Random rand) {
+        this.rand = rand;
+        setImage(imagePath);
+        this.block = new Rectangle(0, 0, width, height);
     }
 
     /**
@@ -73,9 +79,7 @@ public abstract class LiveObject {
      *
      * @return name of object
      */
-    public String getName() {
-        return name;
-    }
+    public abstract String getName();
 
     /**
      * Get object's naming in the files; used when concatenating strings
@@ -83,19 +87,33 @@ public abstract class LiveObject {
      *
      * @return file name of object.
      */
-    public String getFilename() {
-        return filename;
+    public abstract String getFilename();
+
+    /**
+     * Get object's current sprite path.
+     *
+     * @return sprite path
+     */
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    /**
+     * Get width of object's current sprite.
+     *
+     * @return width in pixels
+     */
+    public double getWidth() {
+        return width;
     }
 
     /**
-     * Get object's image; object's image may change as a result
-     * of object's updated direction or state (attack/invincible/etc.).
+     * Get height of object's current sprite.
      *
-     * @return object's image
-     * @see    Image
+     * @return height in pixels
      */
-    public Image getImage() {
-        return objectImg;
+    public double getHeight() {
+        return height;
     }
 
     /**
@@ -110,6 +128,55 @@ public abstract class LiveObject {
         return block;
     }
 
+    /**
+     * Get the collision mask of object's current sprite.
+     *
+     * @return collision mask, or null if the object collides on its whole block
+     * @see    CollisionMask
+     */
+    public CollisionMask getMask() {
+        return Sprites.getMask(imagePath);
+    }
+
+    /**
+     * Whether the object collides with a block: their Rectangle blocks intersect, and so
+     * do the opaque pixels of their sprites.
+     *
+     * @param  block  obstructing block or sinkhole
+     * @return        true if they collide
+     * @see    InanimateObject
+     */
+    public boolean collides(InanimateObject block) {
+        return getRectangle().intersects(block.getRectangle()) &&
+               overlaps(block.getMask(), block.getPosition().x, block.getPosition().y);
+    }
+
+    /**
+     * Whether the object collides with another live object: their Rectangle blocks intersect,
+     * and so do the opaque pixels of their sprites.
+     *
+     * @param  other  Player / Enemy
+     * @return        true if they collide
+     */
+    public boolean collides(LiveObject other) {
+        return getRectangle().intersects(other.getRectangle()) && overlaps(other.getMask(), other.getX(), other.getY());
+    }
+
+    /**
+     * Whether the opaque pixels of object's sprite overlap a collision mask; the narrow phase
+     * of a collision test, once bounding boxes intersect.
+     *
+     * @param  mask  collision mask, or null for a whole bounding box
+     * @param  x     mask's x-position
+     * @param  y     mask's y-position
+     * @return       true if they overlap, or if either has no mask
+     * @see    CollisionMask
+     */
+    public boolean overlaps(CollisionMask mask, double x, double y) {
+        CollisionMask own = getMask();
+        return own == null || mask == null || CollisionMask.intersects(own, getX(), getY(), mask, x, y);
+    }
+
     /**
      * Get live object's current health. Object's health is initialized
      * to the maximum health, and the lowest (killed threshold) is 0.
@@ -125,9 +192,7 @@ public abstract class LiveObject {
      *
      * @return object's maximum health.
      */
-    public double getMaxHealth() {
-        return maxHealth;
-    }
+    public abstract double getMaxHealth();
 
     /**
      * Get object's health display.
@@ -156,9 +221,7 @@ public abstract class LiveObject {
      *
      * @return object's damage
      */
-    public double getDamage() {
-        return damage;
-    }
+    public abstract double getDamage();
 
     /**
      * Get object's current x position.
@@ -233,15 +296,41 @@ public abstract class LiveObject {
      * @return how many frames left object is in its invincible state
      */
     public double getInvincibleFrame() {
-        return invincibleFrame;
+        return invincibleTimer.getRemaining();
+    }
+
+    /**
+     * Get the timers of the level the object is in, with which its timed states are
+     * registered.
+     *
+     * @return timing wheel, or null if the object is in no level yet
+     * @see    TimingWheel
+     */
+    protected TimingWheel getTimers() {
+        return timers;
+    }
+
+    /**
+     * Set the timers of the level the object is in; called by the level. Timed states
+     * still running, e.g. when moving on to the next level, keep their remaining frames.
+     *
+     * @param timers  the level's timing wheel
+     * @see   TimingWheel
+     */
+    protected void setTimers(TimingWheel timers) {
+        this.timers = timers;
+        timers.adopt(invincibleTimer);
     }
 
     /**
      * Setting live object's image.
-     * @param objectImg object's updated image.
+     * @param imagePath object's updated sprite path.
      */
-    protected void setImage(Image objectImg) {
-        this.objectImg = objectImg;
+    protected void setImage(String imagePath) {
+        if (imagePath.equals(this.imagePath)) return;
+        this.imagePath = imagePath;
+        width = Sprites.getWidth(imagePath);
+        height = Sprites.getHeight(imagePath);
     }
 
     /**
@@ -263,8 +352,8 @@ public abstract class LiveObject {
         this.x = x;
         this.y = y;
         block.moveTo(new Point(x, y));
-        xCenter = x + objectImg.getWidth()/2;
-        yCenter = y + objectImg.getHeight()/2;
+        xCenter = x + width/2;
+        yCenter = y + height/2;
     }
 
     /**
@@ -275,7 +364,7 @@ public abstract class LiveObject {
      */
     protected void setHealth(double health) {
         this.health = Math.max(health, 0);
-        healthDisplay = (int) Math.round(health/maxHealth * 100);
+        healthDisplay = (int) Math.round(health/getMaxHealth() * 100);
         if (health <= 0) isKilled = true;
     }
 
@@ -289,7 +378,7 @@ public abstract class LiveObject {
         this.direction = direction;
         if (direction == 'l') dirLR = "Left";
         else if (direction == 'r') dirLR = "Right";
-        if (dirLR == null) dirLR = (new Random().nextInt(2) != 0) ? "Left" : "Right";
+        if (dirLR == null) dirLR = (rand.nextInt(2) != 0) ? "Left" : "Right";
         resetImage();
     }
 
@@ -298,15 +387,32 @@ public abstract class LiveObject {
      * value); used immediately after getting attacked by an opposition.
      */
     protected void beginInvincible() {
-        invincibleFrame = INVINCIBLE_FRAMES;
+        timers.schedule(invincibleTimer, INVINCIBLE_FRAMES);
+    }
+
+    /**
+     * Called once object's invincibility frames have run out, when it becomes vulnerable
+     * again; does nothing unless overridden.
+     */
+    protected void endInvincible() {
     }
 
     /**
-     * Counts down object's invincibility frames. If it already reaches 0, then
-     * it will not do anything. If not, it will decrement by 1 frame.
+     * Set whether damage logs are printed.
+     *
+     * @param logging  true to print damage logs
+     */
+    public static void setLogging(boolean logging) {
+        isLogging = logging;
+    }
+
+    /**
+     * Get whether damage logs are printed.
+     *
+     * @return true if damage logs are printed
      */
-    protected void invincibleFrameDecrement() {
-        invincibleFrame = (invincibleFrame <= 0) ? 0 : invincibleFrame-1;
+    public static boolean isLogging() {
+        return isLogging;
     }
 
     /**
@@ -316,6 +422,7 @@ public abstract class LiveObject {
      * @see   LiveObject
      */
     public void attackLog(LiveObject attacked) {
+        if (!isLogging) return;
         System.out.println(getName() + " inflicts " + Math.round(getDamage()) + " damage points on " +
                 attacked.getName() + ". " + attacked.getName() + "'s current health: " +
                 Math.round(attacked.getHealth()) + "/" + Math.round(attacked.getMaxHealth()));
@@ -323,15 +430,15 @@ public abstract class LiveObject {
 
     /**
      * Helper method displaying health bar of any live object (player or enemy).
-     * Change color based on the current health of the object.
+     * Change color based on the health displayed.
      *
-     * @param font  font used to display the health
-     * @param xPos  x position of where health bar would be displayed on screen
-     * @param yPos  y position of health bar.
+     * @param font    font used to display the health
+     * @param health  health display, as a percentage
+     * @param xPos    x position of where health bar would be displayed on screen
+     * @param yPos    y position of health bar.
      * @see   Font
      */
-    public void healthColor(Font font, double xPos, double yPos) {
-        int health = getHealthDisplay();
+    public static void drawHealth(Font font, int health, double xPos, double yPos) {
         Colour color = (health >= HEALTH_SAFE) ? HEALTH_SAFE_COLOR :
                        (health >= HEALTH_CAUTIOUS) ? HEALTH_CAUTIOUS_COLOR :
                        HEALTH_DANGER_COLOR;
@@ -0,0 +1,141 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * LoadGenerator class - a headless load test filling a level with scripted bots and a scaled
+ * up number of enemies, then running Level's update as fast as possible. It reports ticks per
+ * second, mean and p99 tick time and heap growth, to find the real scaling limits of a level.
+ * <p>
+ * Usage: LoadGenerator [bots] [enemy scale] [ticks] [seed]
+ */
+
+public class LoadGenerator {
+    // level the layout is scaled up from
+    private static final int LEVEL_NUM = 1;
+    // defaults
+    private static final int DEFAULT_BOTS = 2000;
+    private static final int DEFAULT_ENEMY_SCALE = 20;
+    private static final int DEFAULT_TICKS = 60*60;
+    private static final int WARMUP_TICKS = 60*5;
+    // attempts at finding a free position for a spawned object
+    private static final int SPAWN_ATTEMPTS = 20;
+    private static final double BYTES_PER_MB = 1024*1024;
+
+    /**
+     * Move a live object to a random position within the level that does not overlap
+     * an obstructing block, if one is found.
+     *
+     * @param object  Player / Enemy
+     * @param level   the level
+     * @param rand    random source
+     * @see   LiveObject
+     */
+    public static void spawn(LiveObject object, Level level, Random rand) {
+        int[] corners = level.getCorners();
+        for (int attempt = 0; attempt < SPAWN_ATTEMPTS; attempt++) {
+            object.setPos(corners[0] + rand.nextDouble()*(corners[2] - corners[0]),
+                          corners[1] + rand.nextDouble()*(corners[3] - corners[1]));
+            boolean isFree = true;
+            for (ObstructingBlock block : level.getObstructions())
+                if (object.getRectangle().intersects(block.getRectangle())) isFree = false;
+            if (isFree) return;
+        }
+    }
+
+    /**
+     * Create a level from the level's layout, with all players spawned at random and every
+     * enemy in the layout multiplied by the given scale.
+     *
+     * @param  levelNum    level number of the layout
+     * @param  players     players in the level
+     * @param  enemyScale  number of enemies spawned for each enemy in the layout
+     * @param  rand        random source
+     * @return             the scaled level
+     * @see    Level
+     */
+    public static Level createScaledLevel(int levelNum, Player[] players, int enemyScale, Random rand) {
+        Level layout = LevelLoader.load(levelNum, players);
+        ArrayList<Enemy> enemyList = new ArrayList<>(Arrays.asList(layout.getEnemies()));
+        for (Enemy enemy : layout.getEnemies()) {
+            for (int i = 1; i < enemyScale; i++) {
+                Enemy copy = new Enemy(enemy.getType(), Balance.DEFAULT, rand);
+                spawn(copy, layout, rand);
+                enemyList.add(copy);
+            }
+        }
+        for (Player player : players) spawn(player, layout, rand);
+        int[] corners = layout.getCorners();
+        Level level = new Level(levelNum, players, corners[0], corners[1], corners[2], corners[3],
+                                enemyList.toArray(new Enemy[0]), layout.getSinkholes(), layout.getObstructions());
+        level.setObjectives(layout.getObjectives().getDeclared());
+        layout.dispose();
+        return level;
+    }
+
+    /**
+     * Get used heap after a garbage collection.
+     *
+     * @param  memory  memory bean
+     * @return         used heap, in bytes
+     */
+    private static long usedHeap(MemoryMXBean memory) {
+        memory.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * The entry point for the load generator.
+     */
+    public static void main(String[] args) {
+        int numBots = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_BOTS;
+        int enemyScale = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ENEMY_SCALE;
+        int ticks = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_TICKS;
+        long seed = (args.length > 3) ? Long.parseLong(args[3]) : 0;
+        Sprites.setHeadless(true);
+        LiveObject.setLogging(false);
+        Random rand = new Random(seed);
+
+        // bots, evenly spread over the patterns
+        Player[] players = new Player[numBots];
+        PlayerInput[] inputs = new PlayerInput[numBots];
+        Bot[] bots = new Bot[numBots];
+        Bot.Pattern[] patterns = Bot.Pattern.values();
+        for (int i = 0; i < numBots; i++) {
+            players[i] = new Player();
+            inputs[i] = new PlayerInput();
+            bots[i] = new Bot(patterns[i % patterns.length], new Random(rand.nextLong()));
+        }
+        Level level = createScaledLevel(LEVEL_NUM, players, enemyScale, rand);
+        System.out.println("Running " + numBots + " bots against " + level.getEnemies().length + " enemies");
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long[] tickNanos = new long[ticks];
+        long heapBefore = 0, start = 0;
+        for (int tick = -WARMUP_TICKS; tick < ticks; tick++) {
+            if (tick == 0) {
+                heapBefore = usedHeap(memory);
+                start = System.nanoTime();
+            }
+            long tickStart = System.nanoTime();
+            for (int i = 0; i < numBots; i++) bots[i].act(players[i], inputs[i]);
+            level.tick(inputs);
+            if (tick >= 0) tickNanos[tick] = System.nanoTime() - tickStart;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long heapAfter = usedHeap(memory);
+
+        int alive = 0;
+        for (Player player : players) if (!player.isKilled()) alive++;
+        System.out.printf("Ticks per second: %.1f%n", ticks / seconds);
+        System.out.printf("Tick time: mean %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                          Arrays.stream(tickNanos).average().orElse(0) / 1e6,
+                          LevelServer.percentile(tickNanos, 99) / 1e6,
+                          Arrays.stream(tickNanos).max().orElse(0) / 1e6);
+        System.out.printf("Heap: %.1f MB -> %.1f MB (growth %.1f MB)%n", heapBefore / BYTES_PER_MB,
+                          heapAfter / BYTES_PER_MB, (heapAfter - heapBefore) / BYTES_PER_MB);
+        System.out.println("Bots alive: " + alive + "/" + numBots);
+    }
+}
@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoopbackHarness class - measures the LevelServer's tick latency and bandwidth as the number
+ * of players grows. For each player count, a server is started on a free localhost port and as
+ * many clients connect to it, each sending random inputs every tick and decoding the states.
+ */
+
+public class LoopbackHarness {
+    // player counts measured, and ticks run for each
+    private static final int[] PLAYER_COUNTS = {1, 25, 50, 100, 200, 400};
+    private static final int TICKS = LevelServer.TICKS_PER_SECOND*10;
+    private static final int LEVEL_NUM = 1;
+    private static final long INPUT_NANOS = 1_000_000_000L / LevelServer.TICKS_PER_SECOND;
+    private static final int INBOX_BYTES = 1 << 16;
+
+    /**
+     * Connect clients to the server.
+     *
+     * @param  port        server's port
+     * @param  numClients  number of clients
+     * @return             connected clients
+     * @throws IOException if connecting fails
+     */
+    private static SocketChannel[] connect(int port, int numClients) throws IOException {
+        SocketChannel[] clients = new SocketChannel[numClients];
+        for (int i = 0; i < numClients; i++) {
+            clients[i] = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            clients[i].socket().setTcpNoDelay(true);
+            clients[i].configureBlocking(false);
+        }
+        return clients;
+    }
+
+    /**
+     * Drive the clients until interrupted: every tick, each client decodes all the states
+     * received, then sends one random input acknowledging the latest of them.
+     *
+     * @param clients  connected clients
+     * @param level    the server's level, to size the clients' snapshots
+     */
+    private static void driveClients(SocketChannel[] clients, Level level) {
+        Random rand = new Random(0);
+        ByteBuffer input = ByteBuffer.allocate(LevelServer.INPUT_BYTES);
+        ByteBuffer[] inboxes = new ByteBuffer[clients.length];
+        Snapshot[][] histories = new Snapshot[clients.length][SnapshotCodec.HISTORY];
+        int[] ackTicks = new int[clients.length];
+        for (int i = 0; i < clients.length; i++) {
+            inboxes[i] = ByteBuffer.allocate(INBOX_BYTES);
+            for (int j = 0; j < SnapshotCodec.HISTORY; j++) histories[i][j] = new Snapshot(level);
+            ackTicks[i] = -1;
+        }
+        try {
+            // skipping the player index each client is welcomed with
+            for (int i = 0; i < clients.length; i++) {
+                while (inboxes[i].position() < Integer.BYTES) clients[i].read(inboxes[i]);
+                inboxes[i].flip().position(Integer.BYTES);
+                inboxes[i].compact();
+            }
+            while (!Thread.currentThread().isInterrupted()) {
+                for (int i = 0; i < clients.length; i++) {
+                    ByteBuffer inbox = inboxes[i];
+                    clients[i].read(inbox);
+                    inbox.flip();
+                    // decoding every complete state frame
+                    while (inbox.remaining() >= Integer.BYTES &&
+                           inbox.remaining() >= Integer.BYTES + inbox.getInt(inbox.position())) {
+                        int length = inbox.getInt();
+                        int end = inbox.position() + length;
+                        ackTicks[i] = SnapshotCodec.decode(inbox, histories[i]).getTick();
+                        inbox.position(end);
+                    }
+                    inbox.compact();
+                    input.clear();
+                    input.put((byte) rand.nextInt(PlayerInput.ATTACK << 1)).putInt(ackTicks[i]).flip();
+                    clients[i].write(input);
+                }
+                LockSupport.parkNanos(INPUT_NANOS);
+            }
+        }
+        catch (IOException e) {
+            // server has closed the connections
+        }
+    }
+
+    /**
+     * Measure the server's tick times with a given number of players, and print them along
+     * with the bytes sent per client and tick.
+     *
+     * @param  numPlayers  number of players
+     * @throws Exception   if the server or a client fails
+     */
+    private static void measure(int numPlayers) throws Exception {
+        LevelServer server = new LevelServer(0, LEVEL_NUM, numPlayers);
+        SocketChannel[][] clients = new SocketChannel[1][];
+        Thread connector = new Thread(() -> {
+            try {
+                clients[0] = connect(server.getPort(), numPlayers);
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        connector.start();
+        server.acceptPlayers();
+        connector.join();
+
+        Thread driver = new Thread(() -> driveClients(clients[0], server.getLevel()));
+        driver.start();
+        long[] tickNanos = server.run(TICKS);
+        driver.interrupt();
+        driver.join();
+        for (SocketChannel client : clients[0]) client.close();
+        server.close();
+
+        double perTick = (double) tickNanos.length*numPlayers;
+        System.out.printf("%7d  %8.3f  %7.3f  %7.3f  %9.1f  %9.1f%n", numPlayers,
+                          Arrays.stream(tickNanos).average().orElse(0) / 1e6,
+                          LevelServer.percentile(tickNanos, 99) / 1e6,
+                          Arrays.stream(tickNanos).max().orElse(0) / 1e6,
+                          server.getBytesSent() / perTick, server.getFullBytes() / perTick);
+    }
+
+    /**
+     * The entry point for the harness; prints tick times and bytes per client and tick
+     * (delta-encoded, and as if encoded in full) for each player count.
+     */
+    public static void main(String[] args) throws Exception {
+        LiveObject.setLogging(false);
+        System.out.println("players  mean(ms)  p99(ms)  max(ms)  delta(B)  full(B)");
+        for (int numPlayers : PLAYER_COUNTS) measure(numPlayers);
+    }
+}
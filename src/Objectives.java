@@ -0,0 +1,175 @@
+import bagel.util.Colour;
+
+import java.util.List;
+
+/**
+ * Objectives class - tracks a level's objectives, as declared in its layout, and whether the
+ * level is completed, i.e. all of them are met. Objectives are never rescanned every tick: they
+ * are only evaluated on the events they depend on. A player's movement is checked against the
+ * regions to reach and items to collect (only while any is left), a killed enemy counts towards
+ * the kills left of its kind, and survival is a timer of the level's timing wheel, expiring
+ * once the duration has been played.
+ *
+ * @see LevelLayout.Objective
+ */
+
+public class Objectives {
+    // size of a collectible item (a square), and its drawing colour
+    public static final double ITEM_SIZE = 16;
+    private static final Colour ITEM_COLOUR = new Colour(1, 0.8, 0.2);
+
+    /**
+     * Properties
+     */
+    // declared objectives, and whether each has been met
+    private final List<LevelLayout.Objective> declared;
+    private final LevelLayout.Objective[] objectives;
+    private final boolean[] isMet;
+    // objectives not yet met, and regions to reach and items to collect not yet met
+    private int remaining;
+    private int movementRemaining = 0;
+    // kills left of each KILL objective, and the timer of each SURVIVE objective
+    private final int[] killsLeft;
+    private final TimingWheel.Timer[] surviveTimers;
+
+    /**
+     * Objectives constructor, none being met yet.
+     *
+     * @param objectives  objectives of the level, in layout order
+     */
+    public Objectives(List<LevelLayout.Objective> objectives) {
+        this.declared = objectives;
+        this.objectives = objectives.toArray(new LevelLayout.Objective[0]);
+        isMet = new boolean[this.objectives.length];
+        remaining = this.objectives.length;
+        killsLeft = new int[this.objectives.length];
+        surviveTimers = new TimingWheel.Timer[this.objectives.length];
+    }
+
+    /**
+     * Start tracking the objectives in a level: counts the enemies to kill, meeting those with
+     * none left, and schedules the survival timers.
+     *
+     * @param enemies  level's enemies
+     * @param timers   level's timing wheel
+     */
+    public void start(Enemy[] enemies, TimingWheel timers) {
+        for (int i = 0; i < objectives.length; i++) {
+            switch (objectives[i].getKind()) {
+                case LevelLayout.Objective.REACH:
+                case LevelLayout.Objective.COLLECT:
+                    movementRemaining++;
+                    break;
+                case LevelLayout.Objective.KILL:
+                    for (Enemy enemy : enemies)
+                        if (!enemy.isKilled() && enemy.getName().equals(objectives[i].getTarget())) killsLeft[i]++;
+                    if (killsLeft[i] == 0) meet(i);
+                    break;
+                case LevelLayout.Objective.SURVIVE:
+                    int objective = i;
+                    surviveTimers[i] = new TimingWheel.Timer(() -> meet(objective));
+                    timers.schedule(surviveTimers[i], Math.round(objectives[i].getSeconds()*1000*LiveObject.TO_FRAME));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Stop tracking the objectives, cancelling the survival timers; used when they are
+     * replaced, e.g. once the level's file is reloaded.
+     *
+     * @param timers  level's timing wheel
+     */
+    public void stop(TimingWheel timers) {
+        for (TimingWheel.Timer timer : surviveTimers)
+            if (timer != null) timers.cancel(timer);
+    }
+
+    /**
+     * Get the objectives as declared.
+     *
+     * @return objectives, in layout order
+     */
+    public List<LevelLayout.Objective> getDeclared() {
+        return declared;
+    }
+
+    /**
+     * Get whether the level is completed: it has objectives, and all of them are met.
+     *
+     * @return true if completed
+     */
+    public boolean isCompleted() {
+        return objectives.length > 0 && remaining == 0;
+    }
+
+    /**
+     * Get whether an objective has been met.
+     *
+     * @param  i  objective index, in layout order
+     * @return    true if met
+     */
+    public boolean isMet(int i) {
+        return isMet[i];
+    }
+
+    /**
+     * Mark an objective as met.
+     *
+     * @param i  objective index
+     */
+    private void meet(int i) {
+        if (isMet[i]) return;
+        isMet[i] = true;
+        remaining--;
+    }
+
+    /**
+     * Movement event: a player has moved, possibly into a region to reach or onto an item.
+     *
+     * @param player  the player, at its new position
+     */
+    public void moved(Player player) {
+        if (movementRemaining == 0) return;
+        double x = player.getX(), y = player.getY();
+        for (int i = 0; i < objectives.length; i++) {
+            if (isMet[i]) continue;
+            LevelLayout.Objective objective = objectives[i];
+            boolean isReached;
+            if (objective.getKind().equals(LevelLayout.Objective.REACH))
+                isReached = x >= objective.getX() && x <= objective.getX() + objective.getWidth() &&
+                            y >= objective.getY() && y <= objective.getY() + objective.getHeight();
+            else if (objective.getKind().equals(LevelLayout.Objective.COLLECT))
+                isReached = x < objective.getX() + ITEM_SIZE && x + player.getWidth() > objective.getX() &&
+                            y < objective.getY() + ITEM_SIZE && y + player.getHeight() > objective.getY();
+            else continue;
+            if (!isReached) continue;
+            meet(i);
+            movementRemaining--;
+        }
+    }
+
+    /**
+     * Combat event: an enemy has been killed.
+     *
+     * @param enemy  the killed enemy
+     */
+    public void killed(Enemy enemy) {
+        for (int i = 0; i < objectives.length; i++) {
+            if (isMet[i] || !objectives[i].getKind().equals(LevelLayout.Objective.KILL)) continue;
+            if (enemy.getName().equals(objectives[i].getTarget()) && --killsLeft[i] == 0) meet(i);
+        }
+    }
+
+    /**
+     * Capture the items not yet collected, to be drawn.
+     *
+     * @param snapshot frame being captured
+     * @see   RenderSnapshot
+     */
+    public void capture(RenderSnapshot snapshot) {
+        for (int i = 0; i < objectives.length; i++)
+            if (!isMet[i] && objectives[i].getKind().equals(LevelLayout.Objective.COLLECT))
+                snapshot.addBox(objectives[i].getX(), objectives[i].getY(), ITEM_SIZE, ITEM_COLOUR);
+    }
+}
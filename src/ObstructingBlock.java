@@ -23,12 +23,14 @@ public class ObstructingBlock extends InanimateObject {
     }
 
     /**
-     * Method that performs state update by simply drawing the blocks.
-     * Method will be called in Level's update method, which will be called
-     * in ShadowDimension to perform continual frame update.
+     * Method that captures the block to be drawn, as obstructing blocks never
+     * disappear. Method will be called in Level's capture method, once every
+     * tick of the simulation.
+     *
+     * @param snapshot frame being captured
      */
     @Override
-    public void update() {
-        super.getBlockImg().drawFromTopLeft(super.getPosition().x, super.getPosition().y);
+    public void capture(RenderSnapshot snapshot) {
+        snapshot.addSprite(getImagePath(), super.getPosition().x, super.getPosition().y, 0);
     }
 }
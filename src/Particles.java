@@ -0,0 +1,186 @@
+import bagel.util.Colour;
+
+/**
+ * Particles class - a pool of short-lived particles for combat effects: sparks when an attack
+ * lands, dust when a sinkhole collapses, and a burst when an enemy is killed. Particles are
+ * purely visual, hence never affect the level, and use their own random source so that a
+ * level plays the same with or without them.
+ * <p>
+ * Particle state is kept as a structure of arrays of a fixed capacity, allocated once: emitting
+ * fills the next free indices, and an expired particle is replaced by the last one, so live
+ * particles always occupy the first indices. Updating is a single loop over these arrays, and
+ * capturing copies them into the render snapshot in bulk.
+ */
+
+public class Particles {
+    // maximum number of live particles; emitting beyond it drops the new particles
+    public static final int CAPACITY = 1 << 15;
+    // effects
+    public static final int HIT = 0;
+    public static final int SINKHOLE = 1;
+    public static final int DEATH = 2;
+    // per effect: particles emitted, speed and lifetime ranges (per tick), size, drag and gravity
+    private static final int[] COUNTS = {24, 60, 120};
+    private static final double[] MIN_SPEEDS = {1, 0.3, 1};
+    private static final double[] MAX_SPEEDS = {3, 1.5, 4};
+    private static final int[] MIN_LIFETIMES = {20, 40, 40};
+    private static final int[] MAX_LIFETIMES = {35, 70, 80};
+    private static final float[] SIZES = {3, 4, 3};
+    private static final float[] DRAGS = {0.9f, 0.95f, 0.93f};
+    private static final float[] GRAVITIES = {0.05f, -0.02f, 0};
+    // per effect: colour at emission {red, green, blue}, faded out over the particle's lifetime
+    private static final double[][] COLOURS = {{1, 0.85, 0.3}, {0.45, 0.35, 0.25}, {0.7, 0.2, 0.9}};
+    // number of fading steps, and colours by effect*FADE_STEPS + step
+    private static final int FADE_STEPS = 8;
+    private static final Colour[] PALETTE = createPalette();
+
+    /**
+     * Properties
+     */
+    // live particles, in the first indices of the arrays
+    private int count = 0;
+    private final float[] xs = new float[CAPACITY];
+    private final float[] ys = new float[CAPACITY];
+    private final float[] vxs = new float[CAPACITY];
+    private final float[] vys = new float[CAPACITY];
+    private final short[] ages = new short[CAPACITY];
+    private final short[] lifetimes = new short[CAPACITY];
+    private final byte[] effects = new byte[CAPACITY];
+    // palette index of each particle, updated as it fades
+    private final byte[] colours = new byte[CAPACITY];
+    // random source (xorshift state)
+    private long seed = System.nanoTime() | 1;
+
+    /**
+     * Create the palette of all effects' colours at every fading step.
+     *
+     * @return colours by effect*FADE_STEPS + step
+     */
+    private static Colour[] createPalette() {
+        Colour[] palette = new Colour[COLOURS.length * FADE_STEPS];
+        for (int effect = 0; effect < COLOURS.length; effect++) {
+            double[] rgb = COLOURS[effect];
+            for (int step = 0; step < FADE_STEPS; step++)
+                palette[effect*FADE_STEPS + step] = new Colour(rgb[0], rgb[1], rgb[2], 1 - (double) step / FADE_STEPS);
+        }
+        return palette;
+    }
+
+    /**
+     * Get a colour of the palette; used to draw captured particles.
+     *
+     * @param  colour  palette index
+     * @return         colour
+     */
+    public static Colour getColour(int colour) {
+        return PALETTE[colour];
+    }
+
+    /**
+     * Get the size of the particles of a palette index, i.e. of its effect.
+     *
+     * @param  colour  palette index
+     * @return         particle size, in pixels
+     */
+    public static float getSize(int colour) {
+        return SIZES[colour / FADE_STEPS];
+    }
+
+    /**
+     * Get the number of live particles.
+     *
+     * @return live particles
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Remove all particles, e.g. when the level is restarted.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Emit an effect's particles from random points within an area, in random directions.
+     *
+     * @param effect  effect, such as HIT
+     * @param x       area's x-position
+     * @param y       area's y-position
+     * @param width   area's width, 0 to emit from a point
+     * @param height  area's height, 0 to emit from a point
+     */
+    public void emit(int effect, double x, double y, double width, double height) {
+        int end = Math.min(CAPACITY, count + COUNTS[effect]);
+        double minSpeed = MIN_SPEEDS[effect], speedRange = MAX_SPEEDS[effect] - minSpeed;
+        int minLifetime = MIN_LIFETIMES[effect], lifetimeRange = MAX_LIFETIMES[effect] - minLifetime;
+        for (int i = count; i < end; i++) {
+            double angle = 2*Math.PI*nextDouble(), speed = minSpeed + speedRange*nextDouble();
+            xs[i] = (float) (x + width*nextDouble());
+            ys[i] = (float) (y + height*nextDouble());
+            vxs[i] = (float) (speed*Math.cos(angle));
+            vys[i] = (float) (speed*Math.sin(angle));
+            ages[i] = 0;
+            lifetimes[i] = (short) (minLifetime + (int) (lifetimeRange*nextDouble()));
+            effects[i] = (byte) effect;
+            colours[i] = (byte) (effect*FADE_STEPS);
+        }
+        count = end;
+    }
+
+    /**
+     * Advance all particles by one tick: moves them, slowing them by drag and pulling them by
+     * gravity, fades them, and removes the expired ones.
+     */
+    public void update() {
+        int i = 0;
+        while (i < count) {
+            int age = ages[i] + 1;
+            if (age >= lifetimes[i]) {
+                // replacing the expired particle by the last one, updated next
+                int last = --count;
+                xs[i] = xs[last];
+                ys[i] = ys[last];
+                vxs[i] = vxs[last];
+                vys[i] = vys[last];
+                ages[i] = ages[last];
+                lifetimes[i] = lifetimes[last];
+                effects[i] = effects[last];
+                colours[i] = colours[last];
+                continue;
+            }
+            int effect = effects[i];
+            float drag = DRAGS[effect];
+            xs[i] += vxs[i];
+            ys[i] += vys[i];
+            vxs[i] *= drag;
+            vys[i] = vys[i]*drag + GRAVITIES[effect];
+            ages[i] = (short) age;
+            colours[i] = (byte) (effect*FADE_STEPS + age*FADE_STEPS/lifetimes[i]);
+            i++;
+        }
+    }
+
+    /**
+     * Capture all live particles to be drawn.
+     *
+     * @param snapshot frame being captured
+     * @see   RenderSnapshot
+     */
+    public void capture(RenderSnapshot snapshot) {
+        snapshot.setParticles(xs, ys, colours, count);
+    }
+
+    /**
+     * Next random number, uniform in [0, 1).
+     *
+     * @return random number
+     */
+    private double nextDouble() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return (seed >>> 11) * 0x1.0p-53;
+    }
+}
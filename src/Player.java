@@ -1,6 +1,4 @@
 import bagel.Image;
-import bagel.Input;
-import bagel.Keys;
 
 /**
  * Player class representing the player in the game;
@@ -19,31 +17,77 @@ public class Player extends LiveObject {
     // attack and cool down
     private static final double MAX_ATTACK_TIME = 1000;
     private static final double MAX_COOLDOWN_TIME = 2000;
-    private static final double MAX_ATTACK_FRAMES = MAX_ATTACK_TIME*TO_FRAME;
-    private static final double MAX_COOLDOWN_FRAMES = MAX_COOLDOWN_TIME*TO_FRAME;
+    private static final long MAX_ATTACK_FRAMES = Math.round(MAX_ATTACK_TIME*TO_FRAME);
+    private static final long MAX_COOLDOWN_FRAMES = Math.round(MAX_COOLDOWN_TIME*TO_FRAME);
+    // projectiles: damage, speed per frame, and delay between 2 shots
+    private static final double SHOT_DAMAGE = 10;
+    private static final double SHOT_SPEED = 6;
+    private static final double SHOT_INTERVAL = 400;
+    private static final long SHOT_FRAMES = Math.round(SHOT_INTERVAL*TO_FRAME);
 
     /**
      * Properties
      */
-    // attack-related
-    private double attackFrames = 0;
-    private double coolDown = 0;
+    // attack-related: end of the attack, and end of the cool down following it
+    private final TimingWheel.Timer attackTimer = new TimingWheel.Timer(this::endAttack);
+    private final TimingWheel.Timer coolDownTimer = new TimingWheel.Timer(null);
+    // end of the delay before the next shot
+    private final TimingWheel.Timer shotTimer = new TimingWheel.Timer(null);
     private String attackString = "";
     // previous position
     private double xPrev, yPrev;
 
     /**
-     * Player constructor: constructing from player's image, getting other
-     * information by calling LiveObject constructor with specified parameters.
-     *
-     * @param image     player's image
-     * @see   Image
+     * Player constructor: constructing from player's default (right-facing) sprite,
+     * getting other information by calling LiveObject constructor with specified
+     * parameters.
      */
-    public Player(Image image) {
-        super(image, PLAYER, PLAYER_FILE_NAME, PLAYER_DAMAGE, MAX_HEALTH);
+    public Player() {
+        super("res/" + PLAYER_FILE_NAME + "/" + PLAYER_FILE_NAME + "Right.png");
+        setDefaultHealth();
         super.setDirection('r');
     }
 
+    /**
+     * Get player's name.
+     *
+     * @return player's name
+     */
+    @Override
+    public String getName() {
+        return PLAYER;
+    }
+
+    /**
+     * Get player's naming in the files.
+     *
+     * @return player's file name
+     */
+    @Override
+    public String getFilename() {
+        return PLAYER_FILE_NAME;
+    }
+
+    /**
+     * Get player's damage point.
+     *
+     * @return player's damage
+     */
+    @Override
+    public double getDamage() {
+        return PLAYER_DAMAGE;
+    }
+
+    /**
+     * Get player's maximum health.
+     *
+     * @return player's maximum health
+     */
+    @Override
+    public double getMaxHealth() {
+        return MAX_HEALTH;
+    }
+
     /**
      * Get player's speed; used when player initiates a movement, where
      * speed determines how much the player moves per frame.
@@ -61,17 +105,18 @@ public class Player extends LiveObject {
      * @return number of frames left player is in Attack state.
      */
     public double getAttackFrames() {
-        return attackFrames;
+        return attackTimer.getRemaining();
     }
 
     /**
      * Cool down frames: if it's 0, player has completely cooled down from
-     * previous (if there's any) attack and can now initiate another attack.
+     * previous (if there's any) attack and can now initiate another attack. The
+     * cool down remains at its maximum value during the attack.
      *
      * @return number of frames left before player can initiate new attack.
      */
     public double getCoolDown() {
-        return coolDown;
+        return Math.min(coolDownTimer.getRemaining(), MAX_COOLDOWN_FRAMES);
     }
 
     /**
@@ -81,8 +126,8 @@ public class Player extends LiveObject {
      */
     @Override
     protected void resetImage() {
-        super.setImage(new Image("res/" + super.getFilename() + "/" + super.getFilename() + attackString +
-                super.getDirectionLR() + ".png"));
+        super.setImage("res/" + getFilename() + "/" + getFilename() + attackString +
+                super.getDirectionLR() + ".png");
     }
 
     /**
@@ -105,43 +150,58 @@ public class Player extends LiveObject {
     }
 
     /**
-     * Set attack frames to maximum value if used immediately after an attack, and
-     * set player's image to attack mode. Otherwise, it continues the attack frame.
+     * Set the timers of the level the player is in, moving the attack and cool down
+     * along with the invincibility.
+     *
+     * @param timers  the level's timing wheel
+     * @see   TimingWheel
      */
-    protected void setAttackFrames() {
-        if (attackFrames == 0) attackFrames = MAX_ATTACK_FRAMES;
-        attackString = "Attack";
-        resetImage();
+    @Override
+    protected void setTimers(TimingWheel timers) {
+        super.setTimers(timers);
+        timers.adopt(attackTimer);
+        timers.adopt(coolDownTimer);
+        timers.adopt(shotTimer);
     }
 
     /**
-     * Decreasing player's attacking frame by 1. If it is 0, cool down continues
-     * (if required), and updates player's image to idle mode (instead of attack).
+     * Begin an attack: sets attack frames to their maximum value, followed by the
+     * cool down, and sets player's image to attack mode.
      */
-    protected void attackFramesDecrement() {
-        if (attackFrames <= 0) {
-            attackFrames = 0;
-            attackString = "";
-            coolDownDecrement();
-            resetImage();
-        }
-        else attackFrames--;
+    protected void beginAttack() {
+        getTimers().schedule(attackTimer, MAX_ATTACK_FRAMES);
+        getTimers().schedule(coolDownTimer, MAX_ATTACK_FRAMES + MAX_COOLDOWN_FRAMES);
+        attackString = "Attack";
+        resetImage();
+        Audio.play(Audio.ATTACK);
     }
 
     /**
-     * Automatically sets player's cool down to its maximum value. Used right
-     * after a player's attack.
+     * End an attack once its frames have run out, updating player's image to idle
+     * mode (instead of attack); the cool down continues.
      */
-    protected void beginCoolDown() {
-        coolDown = MAX_COOLDOWN_FRAMES;
+    private void endAttack() {
+        attackString = "";
+        resetImage();
     }
 
     /**
-     * Reducing cool down frames by 1 for the player. If cool down frame is
-     * already at 0, it won't do anything.
+     * Fire a projectile if requested and the previous shot is not too recent: in the direction
+     * of the movement keys held, or the direction player faces if none is held.
+     *
+     * @param input        player's requested actions
+     * @param projectiles  level's projectiles
+     * @param index        player's index in the level
+     * @see   Projectiles
      */
-    protected void coolDownDecrement() {
-        coolDown = (coolDown <= 0) ? 0 : coolDown-1;
+    protected void fire(PlayerInput input, Projectiles projectiles, int index) {
+        if (!input.isDown(PlayerInput.FIRE) || shotTimer.isScheduled()) return;
+        int dirX = PlayerInput.dirX(input.getBits()), dirY = PlayerInput.dirY(input.getBits());
+        if (dirX == 0 && dirY == 0) dirX = "Left".equals(getDirectionLR()) ? -1 : 1;
+        double speed = (dirX != 0 && dirY != 0) ? SHOT_SPEED / Math.sqrt(2) : SHOT_SPEED;
+        projectiles.fire(Projectiles.PLAYER, index, getXCenter(), getYCenter(), dirX*speed, dirY*speed, SHOT_DAMAGE);
+        getTimers().schedule(shotTimer, SHOT_FRAMES);
+        Audio.play(Audio.SHOT);
     }
 
     /**
@@ -152,6 +212,7 @@ public class Player extends LiveObject {
      * @see   Sinkhole
      */
     public void sinkAttackedLog(Sinkhole sinkhole) {
+        if (!isLogging()) return;
         System.out.println(sinkhole.getName() + " inflicts " + Math.round(sinkhole.getDamagePoints()) +
                            " damage points on " + getName() + ". " + getName() + "'s current health: " +
                            Math.round(getHealth()) + "/" + Math.round(getMaxHealth()));
@@ -162,8 +223,8 @@ public class Player extends LiveObject {
      * block (wall/tree), it will trigger 'move-back' to previous position. If it's a sinkhole,
      * it will be recorded as inactive and disappear, and damage will be inflicted on player.
      * <p>
-     * Since it needs to check for collisions, it will be called in inanimateBlockProcessing
-     * method where each block is thereby visited by the program.
+     * Since it needs to check for collisions, it will be called in Level's movePlayer method
+     * at every sub-step of the player's movement, where each block is visited by the program.
      *
      * @param block       obstructing block (wall/tree)
      * @see   InanimateObject
@@ -171,11 +232,11 @@ public class Player extends LiveObject {
     @Override
     protected void processCollision(InanimateObject block) {
         // if there's no collision
-        if (!getRectangle().intersects(block.getRectangle())) return;
+        if (!collides(block)) return;
         // relevant variables
         double xPlayer = getX(), yPlayer = getY();
         setPos(xPrev, yPlayer);
-        boolean xIntersect = block.getRectangle().intersects(getRectangle());
+        boolean xIntersect = collides(block);
         // if it's a sinkhole collision, hole disappears and damage inflicted
         if (block instanceof Sinkhole) {
             ((Sinkhole) block).setInactive();
@@ -197,7 +258,7 @@ public class Player extends LiveObject {
     @Override
     protected void processAttack(LiveObject enemy) {
         // attack on enemy (iff it's during player's attack and enemy is not in invincible state)
-        if (!(getRectangle().intersects(enemy.getRectangle()) && enemy.getInvincibleFrame() == 0 &&
+        if (!(collides(enemy) && enemy.getInvincibleFrame() == 0 &&
               getAttackFrames() > 0)) return;
         enemy.setHealth(enemy.getHealth() - getDamage());
         enemy.beginInvincible();
@@ -210,29 +271,25 @@ public class Player extends LiveObject {
      * Called in Level's update method to continually update player's input,
      * including usual movement and attacks.
      *
-     * @param input  keyboard input
-     * @see   Input
+     * @param input  player's requested actions
+     * @see   PlayerInput
      */
-    protected void update(Input input) {
+    protected void update(PlayerInput input) {
         // movement input
         double xPlayer = getX(), yPlayer = getY();
-        if (input.isDown(Keys.LEFT)) {
+        if (input.isDown(PlayerInput.LEFT)) {
             setDirection('l');
             xPlayer -= getSpeed();
         }
-        if (input.isDown(Keys.RIGHT)) {
+        if (input.isDown(PlayerInput.RIGHT)) {
             setDirection('r');
             xPlayer += getSpeed();
         }
-        if (input.isDown(Keys.UP)) yPlayer -= getSpeed();
-        if (input.isDown(Keys.DOWN)) yPlayer += getSpeed();
-
-        // attacking frames and input
-        attackFramesDecrement();
-        if ((input.wasPressed(Keys.A) && getCoolDown() == 0) || getAttackFrames() > 0) {
-            setAttackFrames();
-            beginCoolDown();
-        }
+        if (input.isDown(PlayerInput.UP)) yPlayer -= getSpeed();
+        if (input.isDown(PlayerInput.DOWN)) yPlayer += getSpeed();
+
+        // attack input, once cooled down
+        if (input.isDown(PlayerInput.ATTACK) && getCoolDown() == 0) beginAttack();
         setPos(xPlayer, yPlayer);
     }
 }
@@ -0,0 +1,88 @@
+import bagel.Input;
+import bagel.Keys;
+
+/**
+ * PlayerInput class - the actions a player requests in a single frame, packed as bit flags.
+ * It can be read from the keyboard, or set directly from a remote client or a bot, which
+ * allows Level to drive any number of players with the same update.
+ */
+
+public class PlayerInput {
+    // action flags
+    public static final int LEFT = 1;
+    public static final int RIGHT = 1 << 1;
+    public static final int UP = 1 << 2;
+    public static final int DOWN = 1 << 3;
+    public static final int ATTACK = 1 << 4;
+    public static final int FIRE = 1 << 5;
+
+    /**
+     * Properties
+     */
+    // requested actions
+    private int bits = 0;
+
+    /**
+     * Read the player's actions from the keyboard. Movement and fire keys are held down,
+     * while an attack is only requested in the frame its key was pressed.
+     *
+     * @param input keyboard input
+     * @see   Input
+     */
+    public void read(Input input) {
+        bits = (input.isDown(Keys.LEFT) ? LEFT : 0) |
+               (input.isDown(Keys.RIGHT) ? RIGHT : 0) |
+               (input.isDown(Keys.UP) ? UP : 0) |
+               (input.isDown(Keys.DOWN) ? DOWN : 0) |
+               (input.wasPressed(Keys.A) ? ATTACK : 0) |
+               (input.isDown(Keys.S) ? FIRE : 0);
+    }
+
+    /**
+     * Get all requested actions as bit flags.
+     *
+     * @return action flags
+     */
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * Set all requested actions.
+     *
+     * @param bits action flags
+     */
+    public void setBits(int bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Whether an action is requested.
+     *
+     * @param  action  action flag
+     * @return         true if the action is requested in this frame
+     */
+    public boolean isDown(int action) {
+        return (bits & action) != 0;
+    }
+
+    /**
+     * Get the horizontal direction requested by action flags.
+     *
+     * @param  bits  action flags
+     * @return       -1 for left, 1 for right, 0 for neither (or both)
+     */
+    public static int dirX(int bits) {
+        return ((bits & RIGHT) != 0 ? 1 : 0) - ((bits & LEFT) != 0 ? 1 : 0);
+    }
+
+    /**
+     * Get the vertical direction requested by action flags, y increasing downwards.
+     *
+     * @param  bits  action flags
+     * @return       -1 for up, 1 for down, 0 for neither (or both)
+     */
+    public static int dirY(int bits) {
+        return ((bits & DOWN) != 0 ? 1 : 0) - ((bits & UP) != 0 ? 1 : 0);
+    }
+}
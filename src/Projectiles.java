@@ -0,0 +1,273 @@
+import bagel.util.Colour;
+
+/**
+ * Projectiles class - a pool of projectiles fired by players at enemies and by enemies at
+ * players. Like particles, projectile state is kept as a structure of arrays of a fixed
+ * capacity, and a spent projectile is replaced by the last one, so firing never allocates.
+ * <p>
+ * Every tick, each projectile's movement is swept as a segment against the level's obstructions
+ * and its opponents, so that even fast projectiles never pass through a thin wall or an enemy;
+ * the first box it enters along the segment stops it. Only boxes in the grid cells around the
+ * segment are tested: obstructions are bucketed in a grid once per level content, and players
+ * and enemies are bucketed again every tick.
+ */
+
+public class Projectiles {
+    // maximum number of projectiles in flight; firing beyond it has no effect
+    public static final int CAPACITY = 1 << 13;
+    // sides, i.e. who fired a projectile
+    public static final int PLAYER = 0;
+    public static final int ENEMY = 1;
+    // projectile's half size (a projectile is a square), and lifetime in ticks
+    public static final double RADIUS = 3;
+    private static final int LIFETIME = 180;
+    // cell size of the grids, about an object's size
+    private static final double CELL_SIZE = 64;
+    // drawing colour of each side
+    private static final Colour[] COLOURS = {new Colour(0.4, 0.9, 1), new Colour(1, 0.4, 0.1)};
+    // sweep result when no box is entered
+    private static final double NO_HIT = 2;
+
+    /**
+     * Properties
+     */
+    // projectiles in flight, in the first indices of the arrays
+    private int count = 0;
+    private final float[] xs = new float[CAPACITY];
+    private final float[] ys = new float[CAPACITY];
+    private final float[] vxs = new float[CAPACITY];
+    private final float[] vys = new float[CAPACITY];
+    private final float[] damages = new float[CAPACITY];
+    private final short[] ages = new short[CAPACITY];
+    private final byte[] sides = new byte[CAPACITY];
+    // index of the player or enemy that fired each projectile
+    private final int[] owners = new int[CAPACITY];
+    // level's corners, and obstructions bucketed by grid cell
+    private double xLeft, yTop, xRight, yBottom;
+    private InanimateObject[] obstructions = new InanimateObject[0];
+    private SpatialGrid obstructionGrid = new SpatialGrid(0, 0, 1, 1, CELL_SIZE);
+    // players (first) and enemies bucketed by grid cell, rebuilt every tick
+    private SpatialGrid targetGrid = new SpatialGrid(0, 0, 1, 1, CELL_SIZE);
+
+    /**
+     * Get a side's drawing colour.
+     *
+     * @param  side  PLAYER or ENEMY
+     * @return       colour
+     */
+    public static Colour getColour(int side) {
+        return COLOURS[side];
+    }
+
+    /**
+     * Get the number of projectiles in flight.
+     *
+     * @return projectiles in flight
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Set the level's bounds and obstructions, removing all projectiles in flight, whose
+     * owners may no longer exist; used when a level is created and whenever its content changes.
+     *
+     * @param corners       {xLeft, yTop, xRight, yBottom}
+     * @param obstructions  obstructing blocks
+     */
+    public void setLevel(int[] corners, InanimateObject[] obstructions) {
+        xLeft = corners[0];
+        yTop = corners[1];
+        xRight = corners[2];
+        yBottom = corners[3];
+        this.obstructions = obstructions;
+        obstructionGrid = new SpatialGrid(xLeft, yTop, xRight, yBottom, CELL_SIZE);
+        targetGrid = new SpatialGrid(xLeft, yTop, xRight, yBottom, CELL_SIZE);
+        for (int i = 0; i < obstructions.length; i++) {
+            InanimateObject block = obstructions[i];
+            obstructionGrid.insert(i, block.getPosition().x, block.getPosition().y, block.getWidth(), block.getHeight());
+        }
+        count = 0;
+    }
+
+    /**
+     * Fire a projectile from a point, with the given velocity.
+     *
+     * @param side    PLAYER or ENEMY
+     * @param owner   index of the player or enemy firing it
+     * @param x       x-position of its center
+     * @param y       y-position of its center
+     * @param vx      x-velocity, per tick
+     * @param vy      y-velocity, per tick
+     * @param damage  damage inflicted on the opponent it hits
+     */
+    public void fire(int side, int owner, double x, double y, double vx, double vy, double damage) {
+        if (count == CAPACITY) return;
+        int i = count++;
+        xs[i] = (float) x;
+        ys[i] = (float) y;
+        vxs[i] = (float) vx;
+        vys[i] = (float) vy;
+        damages[i] = (float) damage;
+        ages[i] = 0;
+        sides[i] = (byte) side;
+        owners[i] = owner;
+    }
+
+    /**
+     * Advance all projectiles by one tick. A projectile entering an opponent damages it (unless
+     * it is invincible) and is spent, as is one entering an obstruction, leaving the level, or
+     * running out of lifetime.
+     *
+     * @param players     players, indexed as the owners of their projectiles
+     * @param enemies     enemies, indexed as the owners of their projectiles
+     * @param particles   particles emitted on impacts
+     * @param objectives  level's objectives, told of the enemies killed
+     */
+    public void update(Player[] players, Enemy[] enemies, Particles particles, Objectives objectives) {
+        targetGrid.clear();
+        for (int i = 0; i < players.length; i++)
+            if (!players[i].isKilled())
+                targetGrid.insert(i, players[i].getX(), players[i].getY(), players[i].getWidth(), players[i].getHeight());
+        for (int i = 0; i < enemies.length; i++)
+            if (!enemies[i].isKilled())
+                targetGrid.insert(players.length + i, enemies[i].getX(), enemies[i].getY(),
+                                  enemies[i].getWidth(), enemies[i].getHeight());
+
+        int i = 0;
+        while (i < count) {
+            double x = xs[i], y = ys[i], dx = vxs[i], dy = vys[i];
+            double xMin = Math.min(x, x + dx) - RADIUS, xMax = Math.max(x, x + dx) + RADIUS;
+            double yMin = Math.min(y, y + dy) - RADIUS, yMax = Math.max(y, y + dy) + RADIUS;
+
+            // first obstruction entered along the movement
+            double tHit = NO_HIT;
+            int found = obstructionGrid.query(xMin, yMin, xMax, yMax);
+            for (int j = 0; j < found; j++) {
+                InanimateObject block = obstructions[obstructionGrid.getResult(j)];
+                tHit = Math.min(tHit, sweep(x, y, dx, dy, block.getPosition().x, block.getPosition().y,
+                                            block.getWidth(), block.getHeight()));
+            }
+            // first opponent entered before that
+            LiveObject target = null;
+            boolean isPlayerSide = sides[i] == PLAYER;
+            found = targetGrid.query(xMin, yMin, xMax, yMax);
+            for (int j = 0; j < found; j++) {
+                int index = targetGrid.getResult(j);
+                // players' projectiles only hit enemies, and enemies' only hit players
+                if ((index >= players.length) != isPlayerSide) continue;
+                LiveObject object = isPlayerSide ? enemies[index - players.length] : players[index];
+                double t = sweep(x, y, dx, dy, object.getX(), object.getY(), object.getWidth(), object.getHeight());
+                if (t < tHit) {
+                    tHit = t;
+                    target = object;
+                }
+            }
+
+            if (tHit <= 1) {
+                double xHit = x + dx*tHit, yHit = y + dy*tHit;
+                boolean isDamaged = target != null && hit(i, target, isPlayerSide ? players : enemies);
+                boolean isKill = isDamaged && target.isKilled();
+                particles.emit(isKill ? Particles.DEATH : Particles.HIT, xHit, yHit, 0, 0);
+                if (isDamaged) Audio.play(isKill ? Audio.DEATH : Audio.HIT);
+                if (isKill && isPlayerSide) objectives.killed((Enemy) target);
+                remove(i);
+                continue;
+            }
+            x += dx;
+            y += dy;
+            if (++ages[i] >= LIFETIME || x < xLeft || x > xRight || y < yTop || y > yBottom) {
+                remove(i);
+                continue;
+            }
+            xs[i] = (float) x;
+            ys[i] = (float) y;
+            i++;
+        }
+    }
+
+    /**
+     * Damage the opponent hit by a projectile, unless it is invincible.
+     *
+     * @param  i       projectile index
+     * @param  target  opponent hit
+     * @param  owners  players or enemies, whichever side fired the projectile
+     * @return         true if the opponent has been damaged
+     */
+    private boolean hit(int i, LiveObject target, LiveObject[] owners) {
+        if (target.getInvincibleFrame() != 0) return false;
+        target.setHealth(target.getHealth() - damages[i]);
+        target.beginInvincible();
+        if (this.owners[i] < owners.length) owners[this.owners[i]].attackLog(target);
+        return true;
+    }
+
+    /**
+     * Remove a projectile, replacing it by the last one.
+     *
+     * @param i  projectile index
+     */
+    private void remove(int i) {
+        int last = --count;
+        xs[i] = xs[last];
+        ys[i] = ys[last];
+        vxs[i] = vxs[last];
+        vys[i] = vys[last];
+        damages[i] = damages[last];
+        ages[i] = ages[last];
+        sides[i] = sides[last];
+        owners[i] = owners[last];
+    }
+
+    /**
+     * Sweep a projectile's movement against a box, the box being grown by the projectile's
+     * radius so that the projectile can be treated as a point.
+     *
+     * @param  x       projectile's x-position
+     * @param  y       projectile's y-position
+     * @param  dx      x-movement
+     * @param  dy      y-movement
+     * @param  xBox    box's x-position
+     * @param  yBox    box's y-position
+     * @param  width   box's width
+     * @param  height  box's height
+     * @return         fraction of the movement at which the box is entered (0 if already
+     *                 inside), or NO_HIT if it is not entered
+     */
+    private static double sweep(double x, double y, double dx, double dy,
+                                double xBox, double yBox, double width, double height) {
+        double tEnter = 0, tExit = 1;
+        // horizontal slab
+        double min = xBox - RADIUS, max = xBox + width + RADIUS;
+        if (dx == 0) {
+            if (x <= min || x >= max) return NO_HIT;
+        }
+        else {
+            double t1 = (min - x) / dx, t2 = (max - x) / dx;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        // vertical slab
+        min = yBox - RADIUS;
+        max = yBox + height + RADIUS;
+        if (dy == 0) {
+            if (y <= min || y >= max) return NO_HIT;
+        }
+        else {
+            double t1 = (min - y) / dy, t2 = (max - y) / dy;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        return (tEnter < tExit) ? tEnter : NO_HIT;
+    }
+
+    /**
+     * Capture all projectiles in flight to be drawn.
+     *
+     * @param snapshot frame being captured
+     * @see   RenderSnapshot
+     */
+    public void capture(RenderSnapshot snapshot) {
+        snapshot.setProjectiles(xs, ys, sides, count);
+    }
+}
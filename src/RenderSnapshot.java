@@ -0,0 +1,311 @@
+import bagel.DrawOptions;
+import bagel.Drawing;
+import bagel.Window;
+import bagel.util.Colour;
+
+import java.util.Arrays;
+
+/**
+ * RenderSnapshot class - everything needed to draw a level at a given tick, as plain values: the
+ * background, then boxes (position, size, colour) such as collectible items, then sprites (sprite
+ * path, position, rotation) and health labels (health, position, font size) in drawing order,
+ * then projectiles (position, side) and particles (position, palette colour) over them. The
+ * simulation captures the level into a snapshot, and the rendering thread only turns it into draw
+ * calls, never touching the level itself. Snapshots are reused from tick to tick, so capturing
+ * does not allocate once their arrays are large enough.
+ * <p>
+ * The keyboard player's sprite can be late latched: when drawn, it is moved along the keys held
+ * at that moment, by as much of a tick's movement as has elapsed since the capture, so that a
+ * key press shows in the next frame rather than after the next tick.
+ */
+
+public class RenderSnapshot {
+    // initial number of sprites and labels
+    private static final int INITIAL_CAPACITY = 64;
+    // font of health labels
+    private static final String FONT_FILE = "res/frostbite.ttf";
+
+    /**
+     * Properties
+     */
+    // background image path, and level status
+    private String background;
+    private boolean isCompleted, isPlayerKilled;
+    // capture time, and key events latched by the tick
+    private long captureTime;
+    private long latched = 0;
+    // late latched sprite: index (-1 if none), speed, and directions it was stopped in
+    private int latchedIndex = -1;
+    private double latchSpeed;
+    private int blockedDirX, blockedDirY;
+    // sprites and labels in drawing order; a label has no sprite path
+    private int count = 0;
+    private String[] paths = new String[INITIAL_CAPACITY];
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private double[] rotations = new double[INITIAL_CAPACITY];
+    private int[] healths = new int[INITIAL_CAPACITY];
+    private int[] fontSizes = new int[INITIAL_CAPACITY];
+    // boxes drawn under the sprites
+    private int boxCount = 0;
+    private double[] boxXs = new double[INITIAL_CAPACITY];
+    private double[] boxYs = new double[INITIAL_CAPACITY];
+    private double[] boxSizes = new double[INITIAL_CAPACITY];
+    private Colour[] boxColours = new Colour[INITIAL_CAPACITY];
+    // projectiles, copied from the level's projectiles
+    private int projectileCount = 0;
+    private float[] projectileXs = new float[INITIAL_CAPACITY];
+    private float[] projectileYs = new float[INITIAL_CAPACITY];
+    private byte[] projectileSides = new byte[INITIAL_CAPACITY];
+    // particles, copied from the level's particles
+    private int particleCount = 0;
+    private float[] particleXs = new float[INITIAL_CAPACITY];
+    private float[] particleYs = new float[INITIAL_CAPACITY];
+    private byte[] particleColours = new byte[INITIAL_CAPACITY];
+
+    /**
+     * Start capturing a new frame, discarding all sprites and labels.
+     *
+     * @param background      background image path
+     * @param isCompleted     whether the level has been completed
+     * @param isPlayerKilled  whether the player controlled by keyboard has been killed
+     */
+    public void clear(String background, boolean isCompleted, boolean isPlayerKilled) {
+        this.background = background;
+        this.isCompleted = isCompleted;
+        this.isPlayerKilled = isPlayerKilled;
+        captureTime = System.nanoTime();
+        latchedIndex = -1;
+        Arrays.fill(paths, 0, count, null);
+        count = 0;
+        boxCount = 0;
+        projectileCount = 0;
+        particleCount = 0;
+    }
+
+    /**
+     * Add a sprite, drawn from its top left corner.
+     *
+     * @param path      sprite path
+     * @param x         x-position
+     * @param y         y-position
+     * @param rotation  rotation in radians
+     */
+    public void addSprite(String path, double x, double y, double rotation) {
+        int i = next();
+        paths[i] = path;
+        xs[i] = x;
+        ys[i] = y;
+        rotations[i] = rotation;
+    }
+
+    /**
+     * Add a health label.
+     *
+     * @param health    health percentage
+     * @param x         x-position
+     * @param y         y-position
+     * @param fontSize  font size
+     */
+    public void addLabel(int health, double x, double y, int fontSize) {
+        int i = next();
+        xs[i] = x;
+        ys[i] = y;
+        healths[i] = health;
+        fontSizes[i] = fontSize;
+    }
+
+    /**
+     * Add a square box, drawn under all sprites.
+     *
+     * @param x       x-position
+     * @param y       y-position
+     * @param size    width and height
+     * @param colour  fill colour
+     */
+    public void addBox(double x, double y, double size, Colour colour) {
+        if (boxCount == boxXs.length) {
+            int capacity = 2*boxCount;
+            boxXs = Arrays.copyOf(boxXs, capacity);
+            boxYs = Arrays.copyOf(boxYs, capacity);
+            boxSizes = Arrays.copyOf(boxSizes, capacity);
+            boxColours = Arrays.copyOf(boxColours, capacity);
+        }
+        boxXs[boxCount] = x;
+        boxYs[boxCount] = y;
+        boxSizes[boxCount] = size;
+        boxColours[boxCount++] = colour;
+    }
+
+    /**
+     * Set the projectiles to draw, copying the first projectiles of the given arrays.
+     *
+     * @param xs     projectiles' center x-positions
+     * @param ys     projectiles' center y-positions
+     * @param sides  projectiles' sides
+     * @param count  number of projectiles
+     * @see   Projectiles
+     */
+    public void setProjectiles(float[] xs, float[] ys, byte[] sides, int count) {
+        if (count > projectileXs.length) {
+            int capacity = Math.max(count, 2*projectileXs.length);
+            projectileXs = new float[capacity];
+            projectileYs = new float[capacity];
+            projectileSides = new byte[capacity];
+        }
+        System.arraycopy(xs, 0, projectileXs, 0, count);
+        System.arraycopy(ys, 0, projectileYs, 0, count);
+        System.arraycopy(sides, 0, projectileSides, 0, count);
+        projectileCount = count;
+    }
+
+    /**
+     * Set the particles to draw, copying the first particles of the given arrays.
+     *
+     * @param xs       particles' x-positions
+     * @param ys       particles' y-positions
+     * @param colours  particles' palette indices
+     * @param count    number of particles
+     * @see   Particles
+     */
+    public void setParticles(float[] xs, float[] ys, byte[] colours, int count) {
+        if (count > particleXs.length) {
+            int capacity = Math.max(count, 2*particleXs.length);
+            particleXs = new float[capacity];
+            particleYs = new float[capacity];
+            particleColours = new byte[capacity];
+        }
+        System.arraycopy(xs, 0, particleXs, 0, count);
+        System.arraycopy(ys, 0, particleYs, 0, count);
+        System.arraycopy(colours, 0, particleColours, 0, count);
+        particleCount = count;
+    }
+
+    /**
+     * Mark the last added sprite as the keyboard player's, to be late latched when drawn.
+     *
+     * @param speed        player's speed, per tick
+     * @param blockedDirX  horizontal direction the player was stopped in by the tick (-1, 0 or 1)
+     * @param blockedDirY  vertical direction the player was stopped in by the tick (-1, 0 or 1)
+     */
+    public void latchLast(double speed, int blockedDirX, int blockedDirY) {
+        latchedIndex = count - 1;
+        latchSpeed = speed;
+        this.blockedDirX = blockedDirX;
+        this.blockedDirY = blockedDirY;
+    }
+
+    /**
+     * Set the number of key events latched by the captured tick.
+     *
+     * @param latched  sequence number following the last latched key event
+     * @see   KeyEvents
+     */
+    public void setLatched(long latched) {
+        this.latched = latched;
+    }
+
+    /**
+     * Get the number of key events latched by the captured tick.
+     *
+     * @return sequence number following the last latched key event
+     */
+    public long getLatched() {
+        return latched;
+    }
+
+    /**
+     * Take the next sprite or label index, growing the arrays if full.
+     *
+     * @return index
+     */
+    private int next() {
+        if (count == paths.length) {
+            int capacity = 2*count;
+            paths = Arrays.copyOf(paths, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            rotations = Arrays.copyOf(rotations, capacity);
+            healths = Arrays.copyOf(healths, capacity);
+            fontSizes = Arrays.copyOf(fontSizes, capacity);
+        }
+        return count++;
+    }
+
+    /**
+     * Get whether the level has been completed.
+     *
+     * @return true if completed
+     */
+    public boolean isCompleted() {
+        return isCompleted;
+    }
+
+    /**
+     * Get whether the player controlled by keyboard has been killed.
+     *
+     * @return true if killed
+     */
+    public boolean isPlayerKilled() {
+        return isPlayerKilled;
+    }
+
+    /**
+     * Draw the snapshot as captured; rendering thread only.
+     */
+    public void draw() {
+        draw(0, 0);
+    }
+
+    /**
+     * Draw the snapshot with the keyboard player's sprite late latched to the keys held right
+     * now; rendering thread only. The sprite is moved by at most one tick's movement, and never
+     * in a direction the player was stopped in, e.g. by a wall.
+     *
+     * @param held  action flags of the keys held right now
+     * @see   PlayerInput
+     */
+    public void draw(int held) {
+        double elapsed = Math.min(1, Math.max(0, (System.nanoTime() - captureTime) / (double) Simulation.TICK_NANOS));
+        int dirX = PlayerInput.dirX(held), dirY = PlayerInput.dirY(held);
+        if (dirX == blockedDirX) dirX = 0;
+        if (dirY == blockedDirY) dirY = 0;
+        draw(dirX*latchSpeed*elapsed, dirY*latchSpeed*elapsed);
+    }
+
+    /**
+     * Draw the snapshot, moving the late latched sprite by an offset.
+     *
+     * @param latchX  x-offset of the late latched sprite
+     * @param latchY  y-offset of the late latched sprite
+     */
+    private void draw(double latchX, double latchY) {
+        if (background == null) return;
+        Sprites.getImage(background).draw(Window.getWidth() / 2.0, Window.getHeight() / 2.0);
+        for (int i = 0; i < boxCount; i++)
+            Drawing.drawRectangle(boxXs[i], boxYs[i], boxSizes[i], boxSizes[i], boxColours[i]);
+        for (int i = 0; i < count; i++) {
+            if (paths[i] == null) {
+                LiveObject.drawHealth(Sprites.getFont(FONT_FILE, fontSizes[i]), healths[i], xs[i], ys[i]);
+            }
+            else if (i == latchedIndex) {
+                Sprites.getImage(paths[i]).drawFromTopLeft(xs[i] + latchX, ys[i] + latchY);
+            }
+            else if (rotations[i] == 0) {
+                Sprites.getImage(paths[i]).drawFromTopLeft(xs[i], ys[i]);
+            }
+            else {
+                Sprites.getImage(paths[i]).drawFromTopLeft(xs[i], ys[i], new DrawOptions().setRotation(rotations[i]));
+            }
+        }
+        double size = 2*Projectiles.RADIUS;
+        for (int i = 0; i < projectileCount; i++)
+            Drawing.drawRectangle(projectileXs[i] - Projectiles.RADIUS, projectileYs[i] - Projectiles.RADIUS, size, size,
+                                  Projectiles.getColour(projectileSides[i]));
+        for (int i = 0; i < particleCount; i++) {
+            int colour = particleColours[i];
+            size = Particles.getSize(colour);
+            Drawing.drawRectangle(particleXs[i] - size/2, particleYs[i] - size/2, size, size, Particles.getColour(colour));
+        }
+    }
+}
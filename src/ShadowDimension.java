@@ -1,9 +1,12 @@
 import bagel.*;
 import bagel.Image;
 import bagel.Window;
+import org.lwjgl.glfw.GLFW;
 
-import java.io.*;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 
 /**
  * Based on skeleton code for SWEN20003 Project, Semester 2, 2022, The University of Melbourne.
@@ -14,9 +17,6 @@ import java.util.ArrayList;
  */
 
 public class ShadowDimension extends AbstractGame {
-    // block names in csv files
-    private static final String TOP_LEFT = "TopLeft";
-    private static final String BOTTOM_RIGHT = "BottomRight";
     // for window, title and background displays
     private final static int WINDOW_WIDTH = 1024;
     private final static int WINDOW_HEIGHT = 768;
@@ -39,7 +39,7 @@ public class ShadowDimension extends AbstractGame {
     // level-complete instructions message position
     private static final int X_LVL_TOP_MSG = 350;
     private static final int Y_LVL_TOP_MSG = 350;
-    private static final int X_LVL_MID_MSG = X_LVL_TOP_MSG+21;
+    private static final int X_LVL_MID_MSG = X_LVL_TOP_MSG-40;
     private static final int Y_LVL_MID_MSG = Y_LVL_TOP_MSG+60;
     private static final int X_LVL_BOTTOM_MSG = X_LVL_TOP_MSG+13;
     private static final int Y_LVL_BOTTOM_MSG = Y_LVL_MID_MSG+60;
@@ -51,43 +51,95 @@ public class ShadowDimension extends AbstractGame {
     public static final double TO_FRAME = 60.0/1000;
     // time-related
     public static final double LEVEL_COMPLETE_TIME = 3*1000;
-    public static final double LEVEL_COMPLETE_WAIT = LEVEL_COMPLETE_TIME*TO_FRAME;
+    public static final long LEVEL_COMPLETE_WAIT = Math.round(LEVEL_COMPLETE_TIME*TO_FRAME);
+    // hot reloading of changed level files and sprites, enabled with -Dshadow.hotReload=true
+    private static final boolean HOT_RELOAD = Boolean.getBoolean("shadow.hotReload");
+    // asset pack read instead of loose files if present, unless hot reloading: the one in the
+    // working directory, else the one written by the build
+    private static final String PACK_FILE = System.getProperty("shadow.pack",
+            new File(AssetPack.DEFAULT_FILE).exists() ? AssetPack.DEFAULT_FILE : AssetPack.BUILD_FILE);
+    // longest wait for input on static screens, in seconds
+    private static final double IDLE_TIMEOUT = 0.5;
+    // late latching of the keyboard player's sprite, disabled with -Dshadow.lateLatch=false,
+    // and periodic input-to-present latency reports, enabled with -Dshadow.latency=true
+    private static final boolean LATE_LATCH = Boolean.parseBoolean(System.getProperty("shadow.lateLatch", "true"));
+    private static final boolean LATENCY_REPORT = Boolean.getBoolean("shadow.latency");
+    // music streamed while playing, if present
+    private static final String MUSIC_FILE = "res/music.ogg";
+    // frames after which the game exits, e.g. for a class-data-sharing training run; 0 for none
+    private static final long FRAME_LIMIT = Long.getLong("shadow.frameLimit", 0);
+    // trace file every tick is recorded to, enabled with -Dshadow.trace=<file>
+    private static final String TRACE_FILE = System.getProperty("shadow.trace");
 
     /**
      * Properties
      */
     // player
     private final Player player;
-    // current level number initialized to 0, and level
+    // current level number initialized to 0, level, and its simulation
     private int levelNum = 0;
     private Level level;
+    private Simulation simulation;
+    // recorder of every tick's state, null if not recording
+    private TraceRecorder recorder = null;
+    // key events of the keyboard player
+    private final KeyEvents keyEvents;
     // font and coloring
     private final Font titleDisplay, instructions;
     // initialRun will be set to false once the level is started
     private boolean initialRun = true;
-    // wait frame after level completion (except level with final boss)
-    private double levelCompleteWait = LEVEL_COMPLETE_WAIT;
+    // timers counted in frames, and the wait after level completion (except level with final boss)
+    private final TimingWheel frameTimers = new TimingWheel();
+    private final TimingWheel.Timer levelCompleteTimer = new TimingWheel.Timer(this::nextLevel);
+    // watcher of changed resource files, null if hot reloading is disabled
+    private AssetWatcher assetWatcher = null;
+    // preloader of all images, uploading them over the first frames
+    private final AssetPreloader preloader;
+    // whether the previous frame only displayed a static screen, and whether a frame was drawn
+    private boolean wasStatic = false;
+    private boolean isFirstFrame = true;
 
     /**
      * Program constructor: initializing images, players, message fonts and some
      * important positions in the game.
      *
-     * @see Image
      * @see Player
      * @see Font
      */
     public ShadowDimension() {
         // window initialization
         super(WINDOW_WIDTH, WINDOW_HEIGHT, GAME_TITLE);
+        // reading all resources in parallel, while the rest is initialized
+        preloader = new AssetPreloader(AssetWatcher.RES_DIR);
+        // keyboard player's key events, taken from the window
+        keyEvents = new KeyEvents(GLFW.glfwGetCurrentContext(), LATENCY_REPORT);
         // player initialization
-        Image playerImg = new Image("res/" +
-                Player.PLAYER_FILE_NAME + "/" + Player.PLAYER_FILE_NAME + "Right.png");
-        player = new Player(playerImg);
+        player = new Player();
+        // trace recording, if enabled
+        if (TRACE_FILE != null) {
+            try {
+                recorder = new TraceRecorder(TRACE_FILE);
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
         // CSV data scanning + level 0 initialization
         readCSV();
         // for message displays
-        titleDisplay = new Font("res/frostbite.ttf", TITLE_FONT_SIZE);
-        instructions = new Font("res/frostbite.ttf", INSTRUCTION_FONT_SIZE);
+        titleDisplay = Sprites.getFont("res/frostbite.ttf", TITLE_FONT_SIZE);
+        instructions = Sprites.getFont("res/frostbite.ttf", INSTRUCTION_FONT_SIZE);
+        // exiting after a number of frames, if limited
+        if (FRAME_LIMIT > 0) frameTimers.schedule(new TimingWheel.Timer(Window::close), FRAME_LIMIT);
+        // resource watching for hot reloading
+        if (HOT_RELOAD) {
+            try {
+                assetWatcher = new AssetWatcher(AssetWatcher.RES_DIR);
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     /**
@@ -98,79 +150,34 @@ public class ShadowDimension extends AbstractGame {
      * 'refreshing' data for a new level; hence will only be called once for each level in:
      * (1) constructor to initialize level 0, and
      * (2) update method once previous level is completed and transitioning to the next.
+     *
+     * @see LevelLoader
      */
     public void readCSV() {
         // starting/refreshing level
         initialRun = true;
-        player.setDefaultHealth();
-        int xLeft = 0, yTop = 0, xRight = 100, yBottom = 100;
-        // enemy list
-        ArrayList<Enemy> enemyList = new ArrayList<>();
-        // block lists
-        ArrayList<Sinkhole> sinkList = new ArrayList<>();
-        ArrayList<ObstructingBlock> obstructList = new ArrayList<>();
-
-        try {
-            // (re-)reading the csv file
-            String line; String[] tempArr;
-            String csvFileName = "res/level" + levelNum + ".csv";
-            BufferedReader csvReader = new BufferedReader(new FileReader(csvFileName));
-            int xPos, yPos;
-            // reading each line of csv file
-            while ((line = csvReader.readLine()) != null) {
-                tempArr = line.split(",");
-                xPos = Integer.parseInt(tempArr[1]);
-                yPos = Integer.parseInt(tempArr[2]);
-                switch (tempArr[0]) {
-                    // data on top left position
-                    case TOP_LEFT:
-                        xLeft = xPos;
-                        yTop = yPos;
-                        break;
-                    // data on bottom right position
-                    case BOTTOM_RIGHT:
-                        xRight = xPos;
-                        yBottom = yPos;
-                        break;
-                    // data on player's position
-                    case Player.PLAYER:
-                        player.setPos(xPos, yPos);
-                        break;
-                    // data on obstructing blocks
-                    case ObstructingBlock.WALL_NAME:
-                    case ObstructingBlock.TREE_NAME:
-                        obstructList.add(new ObstructingBlock(ObstructingBlock.OBSTRUCTION_FILE_NAMES[levelNum],
-                                         ObstructingBlock.OBSTRUCTION_NAMES[levelNum], xPos, yPos));
-                        break;
-                    // data on blocks -> counting
-                    case Sinkhole.SINK_NAME:
-                        sinkList.add(new Sinkhole(xPos, yPos));
-                        break;
-                    // data on enemy's position: initialize and add to enemy list
-                    case Demon.DEMON_NAME:
-                    case Navec.NAVEC_NAME:
-                        boolean isNavec = (tempArr[0].equals(Navec.NAVEC_NAME));
-                        Enemy enemy = (isNavec) ? new Navec() : new Demon();
-                        enemy.setPos(xPos, yPos);
-                        enemyList.add(enemy);
-                }
-            }
-            csvReader.close();
+        // previous level's assets are released before loading the next, so they can be reused
+        if (level != null) {
+            simulation.stop();
+            level.dispose();
         }
-        catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        // converting object and enemy lists to arrays
-        Sinkhole[] sinkArr = new Sinkhole[sinkList.size()];
-        sinkArr = sinkList.toArray(sinkArr);
-        ObstructingBlock[] obstructArr = new ObstructingBlock[obstructList.size()];
-        obstructArr = obstructList.toArray(obstructArr);
-        Enemy[] enemyArr = new Enemy[enemyList.size()];
-        enemyArr = enemyList.toArray(enemyArr);
+        level = LevelLoader.load(levelNum, new Player[] {player});
+        simulation = new Simulation(level, keyEvents, recorder);
+        System.out.println(Sprites.report());
+    }
 
-        // initialize current level
-        level = new Level(levelNum, player, xLeft, yTop, xRight, yBottom, enemyArr, sinkArr, obstructArr);
+    /**
+     * Apply resource files changed since the last frame: the current level's CSV file is
+     * reloaded incrementally on the simulation thread, and changed images are swapped in place.
+     *
+     * @see AssetWatcher
+     */
+    public void processAssetChanges() {
+        if (assetWatcher == null) return;
+        for (String path : assetWatcher.poll()) {
+            if (path.equals(LevelLoader.getFileName(levelNum))) simulation.post(() -> LevelLoader.reload(level));
+            else if (path.toLowerCase().endsWith(".png")) Sprites.reload(path);
+        }
     }
 
     /**
@@ -188,7 +195,7 @@ public class ShadowDimension extends AbstractGame {
      */
     public void drawInstruction() {
         instructions.drawString("PRESS SPACE TO START", X_LVL_TOP_MSG, Y_LVL_TOP_MSG);
-        instructions.drawString("PRESS A TO ATTACK", X_LVL_MID_MSG, Y_LVL_MID_MSG);
+        instructions.drawString("A TO ATTACK, S TO SHOOT", X_LVL_MID_MSG, Y_LVL_MID_MSG);
         instructions.drawString("DEFEAT NAVEC TO WIN", X_LVL_BOTTOM_MSG, Y_LVL_BOTTOM_MSG);
     }
 
@@ -202,67 +209,135 @@ public class ShadowDimension extends AbstractGame {
     /**
      * Detect whether it is a usual level completion or game completion;
      * Used in update once player wins a certain level or the entire game.
+     *
+     * @return true if the game is completed, i.e. the screen is static
      */
-    public void processWinning() {
+    public boolean processWinning() {
         // winning
         if (levelNum >= Level.NUM_LEVELS-1) {
             titleDisplay.drawString("CONGRATULATIONS!", X_START_TITLE, Y_STATUS_MSG);
-            return;
-        }
-        // normal level completion
-        if (levelCompleteWait > 0) {
-            titleDisplay.drawString("LEVEL COMPLETE!", X_LVL_COMPLETE_MSG, Y_LVL_COMPLETE_MSG);
-            levelCompleteWait--;
-            return;
+            return true;
         }
-        levelCompleteWait = LEVEL_COMPLETE_WAIT;
-        // resetting initialRun, timescale, and move to next level
+        // normal level completion, moving to next level once the wait is over
+        if (!levelCompleteTimer.isScheduled()) frameTimers.schedule(levelCompleteTimer, LEVEL_COMPLETE_WAIT);
+        titleDisplay.drawString("LEVEL COMPLETE!", X_LVL_COMPLETE_MSG, Y_LVL_COMPLETE_MSG);
+        return false;
+    }
+
+    /**
+     * Move to next level, resetting initialRun and timescale; called once the wait
+     * after level completion is over.
+     */
+    private void nextLevel() {
         levelNum++;
         readCSV();
     }
 
     /**
-     * Performs a state update. As mentioned, the method will be executed
-     * 60 times in 1 second, each time performing an update of the frame.
+     * Draw the current screen: one of the menu screens, or the running level.
      *
-     * @param input keyboard input
-     * @see   Input
+     * @param  input  keyboard input
+     * @return        true if the screen is static, i.e. the same until a key is pressed
+     * @see    Input
      */
-    @Override
-    protected void update(Input input) {
-        // exit
-        if (input.wasPressed(Keys.ESCAPE)) Window.close();
+    private boolean drawScreen(Input input) {
+        // level state of the latest tick
+        RenderSnapshot snapshot = simulation.getSnapshot();
         // game over
-        if (player.isKilled()) {
+        if (snapshot.isPlayerKilled()) {
             drawGameOver();
-            return;
+            return true;
         }
         // instruction screen
         if (initialRun && !input.isDown(Keys.SPACE)) {
             // title screen (before level 0)
             if (levelNum == 0) {
                 drawTitleScreen();
-                return;
+                return true;
             }
             // other level screens
             drawInstruction();
-            return;
+            return true;
         }
         // current level completed
-        if (level.isCompleted()) {
-            processWinning();
-            return;
-        }
-        // running the level
+        if (snapshot.isCompleted()) return processWinning();
+        // running the level on the simulation thread, drawing its latest state
         initialRun = false;
-        level.update(input);
+        simulation.start();
+        simulation.submit(input);
+        if (LATE_LATCH) {
+            snapshot.draw(keyEvents.getHeld());
+            keyEvents.frameDrawn(keyEvents.getWritten());
+        }
+        else {
+            snapshot.draw();
+            keyEvents.frameDrawn(snapshot.getLatched());
+        }
+        return false;
+    }
+
+    /**
+     * Performs a state update. As mentioned, the method will be executed
+     * 60 times in 1 second, each time performing an update of the frame.
+     * <p>
+     * Static screens are idle: once displayed, every following frame waits for an input
+     * event (or a timeout) before being presented, so that menus take almost no CPU or GPU
+     * time. The first frame of a static screen is never delayed, and neither is any frame when
+     * the number of frames is limited, so that a limited run always takes the same time.
+     *
+     * @param input keyboard input
+     * @see   Input
+     */
+    @Override
+    protected void update(Input input) {
+        // exit
+        if (input.wasPressed(Keys.ESCAPE)) Window.close();
+        // the previous frame has been presented by now
+        keyEvents.framePresented();
+        // frame timers, such as the wait after level completion
+        frameTimers.advance();
+        // hot reloading and preloading
+        processAssetChanges();
+        if (!preloader.isDone()) preloader.uploadNext();
+        boolean isStatic = drawScreen(input);
+        if (isFirstFrame) logFirstFrame();
+        // idling on static screens, once all images are preloaded
+        if (isStatic && wasStatic && preloader.isDone() && FRAME_LIMIT == 0) GLFW.glfwWaitEventsTimeout(IDLE_TIMEOUT);
+        wasStatic = isStatic;
+    }
+
+    /**
+     * Print how long the first frame took to be drawn since the program started, including
+     * JVM startup and class loading, to compare cold starts.
+     */
+    private void logFirstFrame() {
+        isFirstFrame = false;
+        ProcessHandle.current().info().startInstant().ifPresent(start ->
+            System.out.println("First frame drawn " + Duration.between(start, Instant.now()).toMillis() +
+                               " ms after start"));
+    }
+
+    /**
+     * Stop the simulation and write the rest of the trace, if recording; used once the
+     * window is closed.
+     */
+    public void stopRecording() {
+        if (recorder == null) return;
+        simulation.stop();
+        recorder.close();
+        recorder = null;
     }
 
     /**
      * The entry point for the program.
      */
     public static void main(String[] args) {
+        if (!HOT_RELOAD) AssetPack.mount(PACK_FILE);
+        Audio.start();
+        Audio.playMusic(MUSIC_FILE);
         ShadowDimension game = new ShadowDimension();
         game.run();
+        game.stopRecording();
+        Audio.stop();
     }
 }
@@ -0,0 +1,180 @@
+import bagel.Input;
+import bagel.Keys;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulation class - runs a level on its own thread at a fixed rate of 60 ticks per second, so
+ * that a slow tick does not delay drawing, and drawing does not delay the simulation. After every
+ * tick the level is captured into a render snapshot, published through a triple buffer; the
+ * rendering thread only draws the latest snapshot. The keyboard player's keys are latched from
+ * key events right before every tick; other keyboard input is read on the rendering thread and
+ * handed over as plain values, and any other change to the level (such as a reload) is posted
+ * as a task, run on the simulation thread between 2 ticks.
+ */
+
+public class Simulation {
+    // duration of a tick
+    public static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+    // ticks the simulation may fall behind before skipping them instead of catching up
+    private static final int MAX_LAG_TICKS = 5;
+
+    /**
+     * Properties
+     */
+    // the simulated level, only accessed on the simulation thread once started
+    private final Level level;
+    private final PlayerInput[] inputs;
+    // render snapshots
+    private final TripleBuffer<RenderSnapshot> snapshots = new TripleBuffer<>(RenderSnapshot::new);
+    // keyboard player's keys, and timescale steps handed over by the rendering thread not
+    // yet applied
+    private final KeyEvents keys;
+    private final AtomicInteger timescaleSteps = new AtomicInteger();
+    // recorder of every tick's state, null if not recording
+    private final TraceRecorder recorder;
+    // tasks to run on the simulation thread
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // simulation thread, null until started
+    private Thread thread = null;
+    private volatile boolean isRunning = false;
+
+    /**
+     * Simulation constructor: captures the level's initial state, so that it can be drawn
+     * before the simulation is started.
+     *
+     * @param level     the level to simulate
+     * @param keys      key events of the keyboard player
+     * @param recorder  recorder of every tick's state, or null
+     * @see   Level
+     * @see   KeyEvents
+     * @see   TraceRecorder
+     */
+    public Simulation(Level level, KeyEvents keys, TraceRecorder recorder) {
+        this.level = level;
+        this.keys = keys;
+        this.recorder = recorder;
+        this.inputs = new PlayerInput[level.getPlayers().length];
+        for (int i = 0; i < inputs.length; i++) inputs[i] = new PlayerInput();
+        level.capture(snapshots.getBack());
+        snapshots.publish();
+    }
+
+    /**
+     * Start the simulation thread; has no effect if already started.
+     */
+    public void start() {
+        if (thread != null) return;
+        keys.clearPressed();
+        isRunning = true;
+        thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the simulation thread, waiting for its current tick to end.
+     */
+    public void stop() {
+        if (thread == null) return;
+        isRunning = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        runTasks();
+    }
+
+    /**
+     * Hand over the latest keyboard input other than the player's keys; rendering thread only,
+     * once per frame. Timescale changes are kept until applied by a tick.
+     *
+     * @param input keyboard input
+     * @see   Input
+     */
+    public void submit(Input input) {
+        if (input.wasPressed(Keys.L)) timescaleSteps.incrementAndGet();
+        else if (input.wasPressed(Keys.K)) timescaleSteps.decrementAndGet();
+    }
+
+    /**
+     * Run a task on the simulation thread before its next tick, or straight away if the
+     * simulation is not running.
+     *
+     * @param task task changing the level
+     */
+    public void post(Runnable task) {
+        if (!isRunning) {
+            task.run();
+            return;
+        }
+        tasks.add(task);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Get the latest render snapshot; rendering thread only.
+     *
+     * @return latest snapshot
+     * @see    RenderSnapshot
+     */
+    public RenderSnapshot getSnapshot() {
+        return snapshots.getFront();
+    }
+
+    /**
+     * Run all posted tasks.
+     *
+     * @return true if any task was run
+     */
+    private boolean runTasks() {
+        boolean ran = false;
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+            ran = true;
+        }
+        return ran;
+    }
+
+    /**
+     * Simulation loop: ticks the level until it is completed or its keyboard player is killed,
+     * publishing a snapshot after each tick. Once the level is over, the thread sleeps until a
+     * task is posted or it is stopped, publishing a snapshot after every task.
+     */
+    private void run() {
+        long nextTick = System.nanoTime();
+        boolean wasOver = false;
+        while (isRunning) {
+            boolean ranTasks = runTasks();
+            boolean isOver = level.isCompleted() || level.getPlayers()[0].isKilled();
+            if (isOver && wasOver && !ranTasks) {
+                LockSupport.park(this);
+                nextTick = System.nanoTime();
+                continue;
+            }
+            wasOver = isOver;
+            if (!isOver) {
+                level.changeTimescale(timescaleSteps.getAndSet(0));
+                inputs[0].setBits(keys.latch());
+                level.tick(inputs);
+                if (recorder != null) recorder.record(level);
+            }
+            level.capture(snapshots.getBack());
+            snapshots.getBack().setLatched(keys.getLatched());
+            snapshots.publish();
+
+            // waiting for the next tick, skipping ticks if too far behind
+            nextTick += TICK_NANOS;
+            long wait = nextTick - System.nanoTime();
+            if (wait < -MAX_LAG_TICKS * TICK_NANOS) nextTick = System.nanoTime();
+            else if (wait > 0) LockSupport.parkNanos(this, wait);
+        }
+    }
+}
@@ -7,7 +7,8 @@
 public class Sinkhole extends InanimateObject {
     public static final String SINK_NAME = "Sinkhole";
     private final static String filename = "sinkhole";
-    private final static int DAMAGE_POINTS = 30;
+    public final static int DAMAGE_POINTS = 30;
+    private final int damagePoints;
     private boolean isActive = true;
 
     /**
@@ -17,7 +18,19 @@ public class Sinkhole extends InanimateObject {
      * @param yPos y-position for sinkhole
      */
     public Sinkhole(double xPos, double yPos) {
+        this(xPos, yPos, DAMAGE_POINTS);
+    }
+
+    /**
+     * Sinkhole constructor with the given damage point.
+     *
+     * @param xPos          x-position for sinkhole
+     * @param yPos          y-position for sinkhole
+     * @param damagePoints  sinkhole's damage point on player
+     */
+    public Sinkhole(double xPos, double yPos, int damagePoints) {
         super(filename, SINK_NAME, xPos, yPos);
+        this.damagePoints = damagePoints;
     }
 
     /**
@@ -25,7 +38,7 @@ public class Sinkhole extends InanimateObject {
      * @return sinkhole's damage point
      */
     public int getDamagePoints(){
-        return DAMAGE_POINTS;
+        return damagePoints;
     }
 
     /**
@@ -47,12 +60,14 @@ public class Sinkhole extends InanimateObject {
     }
 
     /**
-     * Method that performs state update. Similar to ObstructingBlock's update,
-     * it will be called in the same methods.
+     * Method that captures the sinkhole to be drawn, if still active. Similar to
+     * ObstructingBlock's capture, it will be called in the same methods.
+     *
+     * @param snapshot frame being captured
      */
     @Override
-    public void update() {
+    public void capture(RenderSnapshot snapshot) {
         if (isActive)
-            super.getBlockImg().drawFromTopLeft(super.getPosition().x, super.getPosition().y);
+            snapshot.addSprite(getImagePath(), super.getPosition().x, super.getPosition().y, 0);
     }
 }
\ No newline at end of file
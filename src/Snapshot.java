@@ -0,0 +1,220 @@
+/**
+ * Snapshot class - the state of a level at a single tick, stored in preallocated primitive
+ * arrays so that it can be captured, copied and decoded every tick without any allocation.
+ * Positions are quantized to 1/POSITION_SCALE of a pixel; timers are stored in whole frames.
+ */
+
+public class Snapshot {
+    // quantization of positions (1/8 of a pixel)
+    public static final int POSITION_SCALE = 8;
+    // fields of every live object, in encoding order
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int HEALTH = 2;
+    public static final int DIRECTION = 3;
+    public static final int INVINCIBLE = 4;
+    public static final int ATTACK = 5;
+    public static final int COOL_DOWN = 6;
+    public static final int NUM_FIELDS = 7;
+
+    /**
+     * Properties
+     */
+    // tick the snapshot was captured at, -1 if it holds no state
+    private int tick = -1;
+    // number of live objects (players first, then enemies) and sinkholes
+    private final int numObjects, numSinkholes;
+    // fields of every live object, indexed [field][object]
+    private final int[][] fields;
+    // sinkhole activity, 1 bit per sinkhole
+    private final long[] sinkholeBits;
+
+    /**
+     * Snapshot constructor.
+     *
+     * @param numObjects    number of live objects (players and enemies)
+     * @param numSinkholes  number of sinkholes
+     */
+    public Snapshot(int numObjects, int numSinkholes) {
+        this.numObjects = numObjects;
+        this.numSinkholes = numSinkholes;
+        fields = new int[NUM_FIELDS][numObjects];
+        sinkholeBits = new long[(numSinkholes + Long.SIZE-1) / Long.SIZE];
+    }
+
+    /**
+     * Snapshot constructor, sized for a level.
+     *
+     * @param level the level to be captured
+     * @see   Level
+     */
+    public Snapshot(Level level) {
+        this(level.getPlayers().length + level.getEnemies().length, level.getSinkholes().length);
+    }
+
+    /**
+     * Get tick the snapshot was captured at.
+     *
+     * @return tick, or -1 if the snapshot holds no state
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * Set tick the snapshot was captured at.
+     *
+     * @param tick tick number
+     */
+    public void setTick(int tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Get number of live objects.
+     *
+     * @return number of live objects
+     */
+    public int getNumObjects() {
+        return numObjects;
+    }
+
+    /**
+     * Get number of sinkholes.
+     *
+     * @return number of sinkholes
+     */
+    public int getNumSinkholes() {
+        return numSinkholes;
+    }
+
+    /**
+     * Get a field of a live object.
+     *
+     * @param  field   field index
+     * @param  object  live object index
+     * @return         value of the field
+     */
+    public int get(int field, int object) {
+        return fields[field][object];
+    }
+
+    /**
+     * Set a field of a live object.
+     *
+     * @param field   field index
+     * @param object  live object index
+     * @param value   value of the field
+     */
+    public void set(int field, int object, int value) {
+        fields[field][object] = value;
+    }
+
+    /**
+     * Get the sinkhole activity bits.
+     *
+     * @return sinkhole bits, 64 sinkholes per word
+     */
+    public long[] getSinkholeBits() {
+        return sinkholeBits;
+    }
+
+    /**
+     * Whether a sinkhole is active.
+     *
+     * @param  sinkhole  sinkhole index
+     * @return           true if the sinkhole is active
+     */
+    public boolean isSinkholeActive(int sinkhole) {
+        return (sinkholeBits[sinkhole / Long.SIZE] & (1L << sinkhole)) != 0;
+    }
+
+    /**
+     * Get a live object's x-position.
+     *
+     * @param  object  live object index
+     * @return         x-position, in pixels
+     */
+    public double getX(int object) {
+        return (double) fields[X][object] / POSITION_SCALE;
+    }
+
+    /**
+     * Get a live object's y-position.
+     *
+     * @param  object  live object index
+     * @return         y-position, in pixels
+     */
+    public double getY(int object) {
+        return (double) fields[Y][object] / POSITION_SCALE;
+    }
+
+    /**
+     * Capture the level's current state.
+     *
+     * @param level  the level, sized the same as the snapshot
+     * @param tick   current tick
+     * @see   Level
+     */
+    public void capture(Level level, int tick) {
+        this.tick = tick;
+        int object = 0;
+        for (Player player : level.getPlayers()) {
+            captureObject(player, object);
+            fields[ATTACK][object] = (int) Math.ceil(player.getAttackFrames());
+            fields[COOL_DOWN][object] = (int) Math.ceil(player.getCoolDown());
+            object++;
+        }
+        for (Enemy enemy : level.getEnemies()) {
+            captureObject(enemy, object);
+            fields[ATTACK][object] = 0;
+            fields[COOL_DOWN][object] = 0;
+            object++;
+        }
+        Sinkhole[] sinkholes = level.getSinkholes();
+        for (int i = 0; i < sinkholeBits.length; i++) sinkholeBits[i] = 0;
+        for (int i = 0; i < sinkholes.length; i++)
+            if (sinkholes[i].isActive()) sinkholeBits[i / Long.SIZE] |= 1L << i;
+    }
+
+    /**
+     * Capture the fields shared by all live objects.
+     *
+     * @param object  Player / Enemy
+     * @param index   live object index
+     * @see   LiveObject
+     */
+    private void captureObject(LiveObject object, int index) {
+        fields[X][index] = (int) Math.round(object.getX()*POSITION_SCALE);
+        fields[Y][index] = (int) Math.round(object.getY()*POSITION_SCALE);
+        fields[HEALTH][index] = object.getHealthDisplay();
+        fields[DIRECTION][index] = object.getDirection();
+        fields[INVINCIBLE][index] = (int) Math.ceil(object.getInvincibleFrame());
+    }
+
+    /**
+     * Copy the state of another snapshot of the same size.
+     *
+     * @param other snapshot to copy from
+     */
+    public void copyFrom(Snapshot other) {
+        tick = other.tick;
+        for (int field = 0; field < NUM_FIELDS; field++)
+            System.arraycopy(other.fields[field], 0, fields[field], 0, numObjects);
+        System.arraycopy(other.sinkholeBits, 0, sinkholeBits, 0, sinkholeBits.length);
+    }
+
+    /**
+     * Find the snapshot of a tick in a history ring, where the snapshot of tick t is stored
+     * at index t modulo the ring's length.
+     *
+     * @param  history  ring of snapshots
+     * @param  tick     tick to find
+     * @return          the snapshot, or null if it is no longer (or not yet) in the ring
+     */
+    public static Snapshot find(Snapshot[] history, int tick) {
+        if (tick < 0) return null;
+        Snapshot snapshot = history[tick % history.length];
+        return (snapshot.tick == tick) ? snapshot : null;
+    }
+}
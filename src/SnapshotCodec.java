@@ -0,0 +1,189 @@
+import java.nio.ByteBuffer;
+
+/**
+ * SnapshotCodec class - encodes snapshots into a compact binary format, delta-encoded against
+ * a baseline snapshot the receiver has acknowledged. Only live objects with a changed field are
+ * written (flagged in a packed bitset), each with a bit mask of its changed fields followed by
+ * the zig-zag varint deltas of those fields; sinkholes are written as packed changed bits.
+ * Encoding and decoding work directly on reusable buffers and snapshots, without allocation.
+ */
+
+public class SnapshotCodec {
+    // number of snapshots kept by both ends, baselines older than that are not used
+    public static final int HISTORY = 8;
+    // longest varint of a 32-bit value
+    private static final int MAX_VARINT_BYTES = 5;
+
+    /**
+     * SnapshotCodec is a static-only class.
+     */
+    private SnapshotCodec() {}
+
+    /**
+     * Get the largest number of bytes a snapshot of the given size can be encoded into.
+     *
+     * @param  numObjects    number of live objects
+     * @param  numSinkholes  number of sinkholes
+     * @return               maximum encoded size, in bytes
+     */
+    public static int maxEncodedBytes(int numObjects, int numSinkholes) {
+        return MAX_VARINT_BYTES*2 + (numObjects + 7) / 8 +
+               numObjects*(1 + Snapshot.NUM_FIELDS*MAX_VARINT_BYTES) + 1 + (numSinkholes + 7) / 8;
+    }
+
+    /**
+     * Encode a snapshot, delta-encoded against a baseline.
+     *
+     * @param current   snapshot to encode
+     * @param baseline  acknowledged snapshot of the same size, or null to encode in full
+     * @param out       buffer to write to, with at least maxEncodedBytes remaining
+     * @see   Snapshot
+     */
+    public static void encode(Snapshot current, Snapshot baseline, ByteBuffer out) {
+        int numObjects = current.getNumObjects();
+        putVarint(out, current.getTick());
+        putVarint(out, (baseline == null) ? 0 : baseline.getTick()+1);
+
+        // reserve the bitset of changed objects, filled in while writing the objects
+        int bitsetStart = out.position();
+        int bitsetBytes = (numObjects + 7) / 8;
+        for (int i = 0; i < bitsetBytes; i++) out.put((byte) 0);
+        for (int object = 0; object < numObjects; object++) {
+            int mask = 0;
+            for (int field = 0; field < Snapshot.NUM_FIELDS; field++)
+                if (current.get(field, object) != base(baseline, field, object)) mask |= 1 << field;
+            if (mask == 0) continue;
+            int bitsetIndex = bitsetStart + object / 8;
+            out.put(bitsetIndex, (byte) (out.get(bitsetIndex) | (1 << (object % 8))));
+            out.put((byte) mask);
+            for (int field = 0; field < Snapshot.NUM_FIELDS; field++)
+                if ((mask & (1 << field)) != 0)
+                    putVarint(out, zigZag(current.get(field, object) - base(baseline, field, object)));
+        }
+
+        // sinkholes: flag whether any has changed, then the packed changed bits
+        long[] bits = current.getSinkholeBits();
+        boolean changed = false;
+        for (int i = 0; i < bits.length; i++)
+            if ((bits[i] ^ baseBits(baseline, i)) != 0) changed = true;
+        out.put((byte) (changed ? 1 : 0));
+        if (!changed) return;
+        for (int i = 0; i < (current.getNumSinkholes() + 7) / 8; i++)
+            out.put((byte) ((bits[i / 8] ^ baseBits(baseline, i / 8)) >>> (8*(i % 8))));
+    }
+
+    /**
+     * Decode a snapshot. The decoded snapshot is stored in the history ring at its tick's index,
+     * and its baseline is looked up from the same ring.
+     *
+     * @param  in       buffer to read from
+     * @param  history  ring of previously decoded snapshots
+     * @return          the decoded snapshot
+     * @throws IllegalStateException if the snapshot's baseline is not in the history
+     * @see    Snapshot
+     */
+    public static Snapshot decode(ByteBuffer in, Snapshot[] history) {
+        int tick = getVarint(in);
+        int baselineTick = getVarint(in) - 1;
+        Snapshot baseline = Snapshot.find(history, baselineTick);
+        if (baselineTick >= 0 && baseline == null)
+            throw new IllegalStateException("Missing baseline " + baselineTick + " for snapshot " + tick);
+        Snapshot out = history[tick % history.length];
+        int numObjects = out.getNumObjects();
+
+        int bitsetStart = in.position();
+        in.position(bitsetStart + (numObjects + 7) / 8);
+        for (int object = 0; object < numObjects; object++) {
+            boolean isChanged = (in.get(bitsetStart + object / 8) & (1 << (object % 8))) != 0;
+            int mask = isChanged ? in.get() : 0;
+            for (int field = 0; field < Snapshot.NUM_FIELDS; field++) {
+                int value = base(baseline, field, object);
+                if ((mask & (1 << field)) != 0) value += unZigZag(getVarint(in));
+                out.set(field, object, value);
+            }
+        }
+
+        long[] bits = out.getSinkholeBits();
+        for (int i = 0; i < bits.length; i++) bits[i] = baseBits(baseline, i);
+        if (in.get() != 0) {
+            for (int i = 0; i < (out.getNumSinkholes() + 7) / 8; i++)
+                bits[i / 8] ^= (in.get() & 0xFFL) << (8*(i % 8));
+        }
+        out.setTick(tick);
+        return out;
+    }
+
+    /**
+     * Get a field's value in the baseline, which is 0 when there is no baseline.
+     *
+     * @param  baseline  baseline snapshot, or null
+     * @param  field     field index
+     * @param  object    live object index
+     * @return           baseline value
+     */
+    private static int base(Snapshot baseline, int field, int object) {
+        return (baseline == null) ? 0 : baseline.get(field, object);
+    }
+
+    /**
+     * Get a word of sinkhole bits in the baseline, which is 0 when there is no baseline.
+     *
+     * @param  baseline  baseline snapshot, or null
+     * @param  word      word index
+     * @return           baseline bits
+     */
+    private static long baseBits(Snapshot baseline, int word) {
+        return (baseline == null) ? 0 : baseline.getSinkholeBits()[word];
+    }
+
+    /**
+     * Map a signed value to an unsigned one, so that small negative deltas stay small.
+     *
+     * @param  value  signed value
+     * @return        zig-zag encoded value
+     */
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Reverse the zig-zag encoding.
+     *
+     * @param  value  zig-zag encoded value
+     * @return        signed value
+     */
+    static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Write an unsigned variable-length integer, 7 bits per byte.
+     *
+     * @param out    buffer to write to
+     * @param value  value, treated as unsigned
+     */
+    static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Read an unsigned variable-length integer.
+     *
+     * @param  in  buffer to read from
+     * @return     value
+     */
+    static int getVarint(ByteBuffer in) {
+        int value = 0, shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,261 @@
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * SoakTest class - a headless long-running test cycling through levels, deaths and restarts
+ * as fast as possible, the way a long session would: every level is loaded, played by a seeking
+ * bot and captured for drawing each tick, then disposed. Heap after collection, GC time,
+ * allocation rate and live asset counts are sampled at a fixed interval; sustained growth of the
+ * heap or of the asset counts is flagged, and the test then exits with a non-zero status.
+ * <p>
+ * Usage: SoakTest [minutes] [sample seconds] [seed]
+ */
+
+public class SoakTest {
+    // defaults
+    private static final double DEFAULT_MINUTES = 60;
+    private static final double DEFAULT_SAMPLE_SECONDS = 10;
+    // longest a level is played before moving on, in ticks
+    private static final int MAX_LEVEL_TICKS = 60*120;
+    // samples ignored while the JVM warms up
+    private static final int WARMUP_SAMPLES = 3;
+    // live heap growth flagged as a leak, in MB per hour
+    private static final double MAX_HEAP_GROWTH = 8;
+    private static final double BYTES_PER_MB = 1024*1024;
+
+    /**
+     * Sample class - the measures taken at one point of the test.
+     */
+    private static class Sample {
+        // time since start, in minutes
+        private final double minutes;
+        // heap after collection, in bytes
+        private final long heap;
+        // live and loaded assets
+        private final int liveImages, liveFonts;
+
+        /**
+         * Sample constructor.
+         *
+         * @param minutes     time since start, in minutes
+         * @param heap        heap after collection, in bytes
+         * @param liveImages  live image count
+         * @param liveFonts   live font count
+         */
+        private Sample(double minutes, long heap, int liveImages, int liveFonts) {
+            this.minutes = minutes;
+            this.heap = heap;
+            this.liveImages = liveImages;
+            this.liveFonts = liveFonts;
+        }
+    }
+
+    /**
+     * Properties
+     */
+    // random source, and the running level with its player and bot
+    private final Random rand;
+    private int levelNum = 0;
+    private Player player;
+    private Level level;
+    private FlowField field;
+    private Bot bot;
+    private final PlayerInput[] inputs = {new PlayerInput()};
+    private final RenderSnapshot snapshot = new RenderSnapshot();
+    private int levelTicks = 0;
+    // counts of levels played, deaths and ticks
+    private long levelsPlayed = 0, deaths = 0, ticks = 0;
+
+    /**
+     * Soak test constructor: starts from level 0 with a new player.
+     *
+     * @param seed  seed of the random source
+     */
+    public SoakTest(long seed) {
+        rand = new Random(seed);
+        player = new Player();
+        loadLevel();
+    }
+
+    /**
+     * Dispose the running level, if any, and load the current level number.
+     */
+    private void loadLevel() {
+        if (level != null) level.dispose();
+        level = LevelLoader.load(levelNum, new Player[] {player}, Balance.DEFAULT, new Random(rand.nextLong()));
+        field = Bot.createSeekField(level, player);
+        bot = new Bot(Bot.Pattern.SEEK, new Random(rand.nextLong()));
+        bot.seek(field, level.getEnemies());
+        levelTicks = 0;
+        levelsPlayed++;
+    }
+
+    /**
+     * Play a single tick, moving on to the next level once the level is completed or has
+     * lasted too long, and restarting from level 0 with a new player once the player is killed.
+     */
+    private void tick() {
+        field.update(level.getEnemies());
+        bot.act(player, inputs[0]);
+        level.tick(inputs);
+        level.capture(snapshot);
+        levelTicks++;
+        ticks++;
+
+        if (player.isKilled()) {
+            deaths++;
+            player = new Player();
+            levelNum = 0;
+            loadLevel();
+        }
+        else if (level.isCompleted() || levelTicks >= MAX_LEVEL_TICKS) {
+            levelNum = (levelNum + 1) % Level.NUM_LEVELS;
+            loadLevel();
+        }
+    }
+
+    /**
+     * Get used heap after a garbage collection.
+     *
+     * @param  memory  memory bean
+     * @return         used heap, in bytes
+     */
+    private static long usedHeap(MemoryMXBean memory) {
+        memory.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Get total time spent in garbage collection so far.
+     *
+     * @return GC time, in milliseconds
+     */
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            millis += Math.max(0, gc.getCollectionTime());
+        return millis;
+    }
+
+    /**
+     * Get bytes allocated so far by the current thread, if the JVM can tell.
+     *
+     * @return allocated bytes, or -1 if unknown
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof ThreadMXBean)) return -1;
+        return ((ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Least-squares slope of the heap over time.
+     *
+     * @param  samples  samples after warm-up
+     * @return          heap growth, in MB per hour
+     */
+    private static double heapSlope(List<Sample> samples) {
+        double n = samples.size(), sumX = 0, sumY = 0, sumXY = 0, sumXX = 0;
+        for (Sample sample : samples) {
+            double x = sample.minutes / 60, y = sample.heap / BYTES_PER_MB;
+            sumX += x;
+            sumY += y;
+            sumXY += x*y;
+            sumXX += x*x;
+        }
+        double denominator = n*sumXX - sumX*sumX;
+        return (denominator == 0) ? 0 : (n*sumXY - sumX*sumY) / denominator;
+    }
+
+    /**
+     * Whether a count keeps growing: its maximum over the second half of the samples exceeds
+     * its maximum over the first half.
+     *
+     * @param  samples  samples after warm-up
+     * @param  images   true to check live images, false to check live fonts
+     * @return          true if the count has grown
+     */
+    private static boolean isGrowing(List<Sample> samples, boolean images) {
+        int half = samples.size() / 2, firstMax = 0, secondMax = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            int count = images ? samples.get(i).liveImages : samples.get(i).liveFonts;
+            if (i < half) firstMax = Math.max(firstMax, count);
+            else secondMax = Math.max(secondMax, count);
+        }
+        return secondMax > firstMax;
+    }
+
+    /**
+     * The entry point for the soak test.
+     */
+    public static void main(String[] args) {
+        double minutes = (args.length > 0) ? Double.parseDouble(args[0]) : DEFAULT_MINUTES;
+        double sampleSeconds = (args.length > 1) ? Double.parseDouble(args[1]) : DEFAULT_SAMPLE_SECONDS;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 0;
+        Sprites.setHeadless(true);
+        LiveObject.setLogging(false);
+        SoakTest test = new SoakTest(seed);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        List<Sample> samples = new ArrayList<>();
+        long start = System.nanoTime(), end = start + (long) (minutes * 60e9);
+        long sampleNanos = (long) (sampleSeconds * 1e9), nextSample = start + sampleNanos;
+        long prevGc = gcMillis(), prevAllocated = allocatedBytes(), prevTime = start, prevTicks = 0;
+        System.out.println(" minutes   heap MB  GC ms/s  alloc MB/s  ticks/s  images  fonts  levels  deaths");
+        while (System.nanoTime() < end) {
+            test.tick();
+            long now = System.nanoTime();
+            if (now < nextSample) continue;
+            nextSample += sampleNanos;
+
+            // sampling: GC time and allocation are measured before the collection of the sample
+            double seconds = (now - prevTime) / 1e9;
+            long gc = gcMillis(), allocated = allocatedBytes();
+            double allocRate = (prevAllocated < 0) ? Double.NaN : (allocated - prevAllocated) / BYTES_PER_MB / seconds;
+            Sample sample = new Sample((now - start) / 60e9, usedHeap(memory),
+                                       Sprites.getLiveImages(), Sprites.getLiveFonts());
+            samples.add(sample);
+            System.out.printf("%8.1f %9.1f %8.1f %11.1f %8.0f %7d %6d %7d %7d%n", sample.minutes,
+                              sample.heap / BYTES_PER_MB, (gc - prevGc) / seconds, allocRate,
+                              (test.ticks - prevTicks) / seconds, sample.liveImages, sample.liveFonts,
+                              test.levelsPlayed, test.deaths);
+            // the forced collection is left out of the next sample's GC time
+            prevGc = gcMillis();
+            prevAllocated = allocatedBytes();
+            prevTicks = test.ticks;
+            prevTime = System.nanoTime();
+        }
+
+        // flagging sustained growth
+        System.out.printf("Played %d ticks (%.1f game hours), %d levels, %d deaths%n",
+                          test.ticks, test.ticks / 60.0 / 3600, test.levelsPlayed, test.deaths);
+        if (samples.size() <= WARMUP_SAMPLES + 1) {
+            System.out.println("Too few samples to detect growth");
+            return;
+        }
+        List<Sample> steady = samples.subList(WARMUP_SAMPLES, samples.size());
+        double slope = heapSlope(steady);
+        boolean isLeaking = false;
+        System.out.printf("Heap growth: %.2f MB/hour%n", slope);
+        if (slope > MAX_HEAP_GROWTH) {
+            System.out.println("FLAGGED: sustained heap growth");
+            isLeaking = true;
+        }
+        if (isGrowing(steady, true)) {
+            System.out.println("FLAGGED: live image count keeps growing");
+            isLeaking = true;
+        }
+        if (isGrowing(steady, false)) {
+            System.out.println("FLAGGED: live font count keeps growing");
+            isLeaking = true;
+        }
+        if (isLeaking) System.exit(1);
+        System.out.println("No sustained growth");
+    }
+}
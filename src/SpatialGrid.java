@@ -0,0 +1,145 @@
+import java.util.Arrays;
+
+/**
+ * SpatialGrid class - a uniform grid over a level, bucketing boxes by the cells they overlap,
+ * so that finding what a small area may touch only visits a few cells instead of every object.
+ * Objects are referred to by index (e.g. in a level's array of blocks), and each cell holds a
+ * linked list of entries kept in primitive arrays; rebuilding the grid every tick therefore does
+ * not allocate once its arrays are large enough.
+ */
+
+public class SpatialGrid {
+    // initial number of entries (an object overlapping several cells has one entry per cell)
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * Properties
+     */
+    // grid origin, cell size, and number of cells
+    private final double xLeft, yTop, cellSize;
+    private final int cols, rows;
+    // first entry of each cell (-1 if empty), and per entry: object index and next entry
+    private final int[] heads;
+    private int count = 0;
+    private int[] objects = new int[INITIAL_CAPACITY];
+    private int[] nexts = new int[INITIAL_CAPACITY];
+    // query results, and query stamp of each object, so that an object is only found once
+    private int[] results = new int[INITIAL_CAPACITY];
+    private int[] stamps = new int[INITIAL_CAPACITY];
+    private int stamp = 0;
+
+    /**
+     * Spatial grid constructor, covering the given bounds; boxes outside of them are bucketed
+     * in the nearest border cells.
+     *
+     * @param xLeft     leftmost x-position
+     * @param yTop      topmost y-position
+     * @param xRight    rightmost x-position
+     * @param yBottom   bottommost y-position
+     * @param cellSize  width and height of a cell
+     */
+    public SpatialGrid(double xLeft, double yTop, double xRight, double yBottom, double cellSize) {
+        this.xLeft = xLeft;
+        this.yTop = yTop;
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil((xRight - xLeft) / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil((yBottom - yTop) / cellSize));
+        heads = new int[cols*rows];
+        Arrays.fill(heads, -1);
+    }
+
+    /**
+     * Remove all objects.
+     */
+    public void clear() {
+        Arrays.fill(heads, -1);
+        count = 0;
+    }
+
+    /**
+     * Insert an object's box in every cell it overlaps.
+     *
+     * @param object  object index, at least 0
+     * @param x       box's x-position
+     * @param y       box's y-position
+     * @param width   box's width
+     * @param height  box's height
+     */
+    public void insert(int object, double x, double y, double width, double height) {
+        if (object >= stamps.length) stamps = Arrays.copyOf(stamps, Math.max(object + 1, 2*stamps.length));
+        int colMin = col(x), colMax = col(x + width), rowMin = row(y), rowMax = row(y + height);
+        for (int row = rowMin; row <= rowMax; row++) {
+            for (int col = colMin; col <= colMax; col++) {
+                if (count == objects.length) {
+                    objects = Arrays.copyOf(objects, 2*count);
+                    nexts = Arrays.copyOf(nexts, 2*count);
+                }
+                int cell = row*cols + col;
+                objects[count] = object;
+                nexts[count] = heads[cell];
+                heads[cell] = count++;
+            }
+        }
+    }
+
+    /**
+     * Find the objects whose cells overlap an area, each once; they may not overlap the area
+     * itself, which is left to the caller's exact test.
+     *
+     * @param  xMin  area's leftmost x-position
+     * @param  yMin  area's topmost y-position
+     * @param  xMax  area's rightmost x-position
+     * @param  yMax  area's bottommost y-position
+     * @return       number of objects found, listed by getResult
+     */
+    public int query(double xMin, double yMin, double xMax, double yMax) {
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        int found = 0;
+        int colMin = col(xMin), colMax = col(xMax), rowMin = row(yMin), rowMax = row(yMax);
+        for (int row = rowMin; row <= rowMax; row++) {
+            for (int col = colMin; col <= colMax; col++) {
+                for (int entry = heads[row*cols + col]; entry >= 0; entry = nexts[entry]) {
+                    int object = objects[entry];
+                    if (stamps[object] == stamp) continue;
+                    stamps[object] = stamp;
+                    if (found == results.length) results = Arrays.copyOf(results, 2*found);
+                    results[found++] = object;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Get an object found by the latest query.
+     *
+     * @param  i  result index, below the number of objects found
+     * @return    object index
+     */
+    public int getResult(int i) {
+        return results[i];
+    }
+
+    /**
+     * Get the column of an x-position, clamped to the grid.
+     *
+     * @param  x  x-position
+     * @return    column
+     */
+    private int col(double x) {
+        return Math.min(cols-1, Math.max(0, (int) Math.floor((x - xLeft) / cellSize)));
+    }
+
+    /**
+     * Get the row of a y-position, clamped to the grid.
+     *
+     * @param  y  y-position
+     * @return    row
+     */
+    private int row(double y) {
+        return Math.min(rows-1, Math.max(0, (int) Math.floor((y - yTop) / cellSize)));
+    }
+}
@@ -0,0 +1,369 @@
+import bagel.Font;
+import bagel.Image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sprites class - the single point of access to the game's images and fonts. Live objects and
+ * blocks only refer to their sprites by path; images are loaded (once per path) when they are
+ * first drawn, while sprite sizes are read from the PNG headers (and collision masks decoded
+ * from the PNG files), so that the simulation can run headless without any window or graphics
+ * context.
+ * <p>
+ * Owners of assets (such as a Level) acquire them and release them once discarded, so that live
+ * textures and fonts are reference counted. As bagel cannot free a texture, an asset that is no
+ * longer referenced is kept idle and reused when acquired again, rather than loaded once more;
+ * hence there is never more than one texture per file, however many levels are loaded.
+ */
+
+public class Sprites {
+    // whether the game runs without a window (images and fonts are then unavailable)
+    private static boolean headless = false;
+    // loaded images (by requested path, and by file) and fonts, only accessed from the rendering thread
+    private static final Map<String, Image> images = new HashMap<>();
+    private static final Map<String, Image> files = new HashMap<>();
+    private static final Map<String, Font> fonts = new HashMap<>();
+    // sprite sizes {width, height}, shared by all simulations
+    private static final Map<String, double[]> sizes = new ConcurrentHashMap<>();
+    // sprite collision masks (by path, then quarter turns), shared by all simulations
+    private static final Map<String, CollisionMask[]> masks = new ConcurrentHashMap<>();
+    // reference counts of acquired images (by file) and fonts
+    private static final Map<String, Integer> imageRefs = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> fontRefs = new ConcurrentHashMap<>();
+    // bytes per texture pixel (RGBA)
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /**
+     * Sprites is a static-only class.
+     */
+    private Sprites() {}
+
+    /**
+     * Set whether the game runs headless. Must be set before any level is loaded.
+     *
+     * @param isHeadless  true if there is no window to draw to
+     */
+    public static void setHeadless(boolean isHeadless) {
+        headless = isHeadless;
+    }
+
+    /**
+     * Get whether the game runs headless.
+     *
+     * @return true if there is no window to draw to
+     */
+    public static boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * Resolve a sprite path to the file that exists, in the asset pack or on disk. Some sprites
+     * are stored with an upper-case extension (.PNG), which matters on case-sensitive file systems.
+     *
+     * @param  path  sprite path
+     * @return       path of the existing file, or the given path if none is found
+     */
+    public static String resolve(String path) {
+        if (AssetPack.exists(path)) return path;
+        int dot = path.lastIndexOf('.');
+        if (dot < 0) return path;
+        String upper = path.substring(0, dot) + path.substring(dot).toUpperCase();
+        return AssetPack.exists(upper) ? upper : path;
+    }
+
+    /**
+     * Get the image of a sprite, loading it on first use. Paths resolving to the same file
+     * share a single image.
+     *
+     * @param  path  sprite path
+     * @return       sprite's image
+     * @see    Image
+     */
+    public static Image getImage(String path) {
+        if (headless) throw new IllegalStateException("Cannot load image " + path + " when headless");
+        Image image = images.get(path);
+        if (image == null) {
+            image = files.computeIfAbsent(resolve(path), file -> new Image(AssetPack.toFile(file)));
+            images.put(path, image);
+        }
+        return image;
+    }
+
+    /**
+     * Get a font of the given size, loading it on first use.
+     *
+     * @param  path  font path
+     * @param  size  font size
+     * @return       font
+     * @see    Font
+     */
+    public static Font getFont(String path, int size) {
+        if (headless) throw new IllegalStateException("Cannot load font " + path + " when headless");
+        return fonts.computeIfAbsent(fontKey(path, size), p -> new Font(AssetPack.toFile(path), size));
+    }
+
+    /**
+     * Get the key of a font of a given size.
+     *
+     * @param  path  font path
+     * @param  size  font size
+     * @return       font key
+     */
+    private static String fontKey(String path, int size) {
+        return path + "@" + size;
+    }
+
+    /**
+     * Acquire an image, counting a reference to its file until released. The image itself is
+     * only loaded when first drawn, hence images may be acquired from any thread.
+     *
+     * @param path sprite path
+     */
+    public static void acquireImage(String path) {
+        imageRefs.merge(resolve(path), 1, Integer::sum);
+    }
+
+    /**
+     * Release a previously acquired image.
+     *
+     * @param path sprite path
+     */
+    public static void releaseImage(String path) {
+        imageRefs.computeIfPresent(resolve(path), (file, refs) -> (refs > 1) ? refs-1 : null);
+    }
+
+    /**
+     * Acquire a font, counting a reference to it until released. The font itself is only
+     * loaded when first drawn.
+     *
+     * @param  path  font path
+     * @param  size  font size
+     */
+    public static void acquireFont(String path, int size) {
+        fontRefs.merge(fontKey(path, size), 1, Integer::sum);
+    }
+
+    /**
+     * Release a previously acquired font.
+     *
+     * @param path  font path
+     * @param size  font size
+     */
+    public static void releaseFont(String path, int size) {
+        fontRefs.computeIfPresent(fontKey(path, size), (key, refs) -> (refs > 1) ? refs-1 : null);
+    }
+
+    /**
+     * Get number of live images, i.e. images acquired and not yet released.
+     *
+     * @return live image count
+     */
+    public static int getLiveImages() {
+        return imageRefs.size();
+    }
+
+    /**
+     * Get texture memory taken by live images.
+     *
+     * @return live texture bytes
+     */
+    public static long getLiveImageBytes() {
+        long bytes = 0;
+        for (String file : imageRefs.keySet()) bytes += textureBytes(file);
+        return bytes;
+    }
+
+    /**
+     * Get number of loaded textures, whether live or idle.
+     *
+     * @return loaded texture count
+     */
+    public static int getLoadedImages() {
+        return files.size();
+    }
+
+    /**
+     * Get texture memory taken by all loaded textures, whether live or idle.
+     *
+     * @return loaded texture bytes
+     */
+    public static long getLoadedImageBytes() {
+        long bytes = 0;
+        for (String file : files.keySet()) bytes += textureBytes(file);
+        return bytes;
+    }
+
+    /**
+     * Get number of live fonts.
+     *
+     * @return live font count
+     */
+    public static int getLiveFonts() {
+        return fontRefs.size();
+    }
+
+    /**
+     * Get number of loaded fonts, whether live or idle.
+     *
+     * @return loaded font count
+     */
+    public static int getLoadedFonts() {
+        return fonts.size();
+    }
+
+    /**
+     * Get texture memory taken by an image.
+     *
+     * @param  path  sprite path
+     * @return       texture bytes
+     */
+    private static long textureBytes(String path) {
+        return (long) getWidth(path) * (long) getHeight(path) * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Report of the assets in use, for logs.
+     *
+     * @return live and loaded images (with texture memory) and fonts
+     */
+    public static String report() {
+        return String.format("Textures: %d live (%.1f KB), %d loaded (%.1f KB); Fonts: %d live, %d loaded",
+                             getLiveImages(), getLiveImageBytes() / 1024.0,
+                             getLoadedImages(), getLoadedImageBytes() / 1024.0,
+                             getLiveFonts(), getLoadedFonts());
+    }
+
+    /**
+     * Reload a sprite whose file has changed: its image, if loaded, is replaced in place so that
+     * every object drawn with it shows the new one, and its size is read again.
+     *
+     * @param path path of the changed file
+     */
+    public static void reload(String path) {
+        for (String loaded : sizes.keySet())
+            if (resolve(loaded).equals(path)) sizes.remove(loaded);
+        for (String loaded : masks.keySet())
+            if (resolve(loaded).equals(path)) masks.remove(loaded);
+        if (headless || !files.containsKey(path)) return;
+        Image reloaded = new Image(path);
+        files.put(path, reloaded);
+        for (Map.Entry<String, Image> image : images.entrySet())
+            if (resolve(image.getKey()).equals(path)) image.setValue(reloaded);
+        System.out.println("Reloaded " + path);
+    }
+
+    /**
+     * Get a sprite's width.
+     *
+     * @param  path  sprite path
+     * @return       width in pixels
+     */
+    public static double getWidth(String path) {
+        return getSize(path)[0];
+    }
+
+    /**
+     * Get a sprite's height.
+     *
+     * @param  path  sprite path
+     * @return       height in pixels
+     */
+    public static double getHeight(String path) {
+        return getSize(path)[1];
+    }
+
+    /**
+     * Get a sprite's size, reading only the image header on first use.
+     *
+     * @param  path  sprite path
+     * @return       {width, height} of the sprite
+     */
+    private static double[] getSize(String path) {
+        return sizes.computeIfAbsent(path, Sprites::readSize);
+    }
+
+    /**
+     * Read a sprite's size from its image header, without decoding the pixels; only the header
+     * is read, and cached in memory rather than in a temporary file.
+     *
+     * @param  path  sprite path
+     * @return       {width, height} of the sprite, or {0, 0} if it cannot be read
+     */
+    private static double[] readSize(String path) {
+        try (InputStream in = AssetPack.open(resolve(path));
+             ImageInputStream stream = new MemoryCacheImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (stream != null && readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(stream);
+                    return new double[] {reader.getWidth(0), reader.getHeight(0)};
+                }
+                finally {
+                    reader.dispose();
+                }
+            }
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+        System.out.println("Unable to read sprite size: " + path);
+        return new double[] {0, 0};
+    }
+
+    /**
+     * Get a sprite's collision mask, decoding its image on first use.
+     *
+     * @param  path  sprite path
+     * @return       collision mask, or null if the image cannot be read
+     * @see    CollisionMask
+     */
+    public static CollisionMask getMask(String path) {
+        return getMask(path, 0);
+    }
+
+    /**
+     * Get the collision mask of a sprite drawn rotated by a number of quarter turns.
+     *
+     * @param  path          sprite path
+     * @param  quarterTurns  clockwise quarter turns
+     * @return               collision mask, or null if the image cannot be read (the sprite
+     *                       then collides on its whole bounding box)
+     * @see    CollisionMask
+     */
+    public static CollisionMask getMask(String path, int quarterTurns) {
+        return masks.computeIfAbsent(path, Sprites::readMasks)[Math.floorMod(quarterTurns, 4)];
+    }
+
+    /**
+     * Decode a sprite's image to build its collision masks, in every quarter turn.
+     *
+     * @param  path  sprite path
+     * @return       collision masks by quarter turns, all null if the image cannot be read
+     */
+    private static CollisionMask[] readMasks(String path) {
+        CollisionMask[] rotations = new CollisionMask[4];
+        try (InputStream in = AssetPack.open(resolve(path))) {
+            BufferedImage image = ImageIO.read(in);
+            if (image != null) {
+                CollisionMask mask = CollisionMask.fromImage(image);
+                for (int turns = 0; turns < rotations.length; turns++) rotations[turns] = mask.rotate(turns);
+                return rotations;
+            }
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+        System.out.println("Unable to read sprite mask: " + path);
+        return rotations;
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * TimingWheel class - a hierarchical timing wheel counting ticks, with which timers register
+ * their expiration instead of being counted down every tick. Each level is a ring of slots,
+ * each slot a list of timers; the first level holds timers expiring within 64 ticks, one slot
+ * per tick, and each further level covers 64 times the ticks of the previous one. Whenever a
+ * lower level wraps around, the matching slot of the next level is spread back into the lower
+ * levels. Advancing a tick therefore only touches the timers expiring on that tick (and, once
+ * every 64 ticks, those moved down a level), however many timers are registered.
+ * <p>
+ * Timers are owned by the objects they belong to and reused, so scheduling does not allocate.
+ */
+
+public class TimingWheel {
+    // slots per level, and levels, covering 64^4 ticks (about 77 hours at 60 ticks per second)
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    // longest delay, in ticks; longer delays are shortened to it
+    public static final long MAX_DELAY = (1L << (SLOT_BITS*LEVELS)) - 1;
+
+    /**
+     * Timer class - an expiration registered with a timing wheel, running its action once
+     * expired. A timer is scheduled on at most one wheel at a time; scheduling it again
+     * replaces its previous expiration.
+     */
+    public static class Timer {
+        // run once expired, may be null for timers only read through their remaining ticks
+        private final Runnable action;
+        // wheel it is scheduled on (or was last scheduled on), and its expiration tick
+        private TimingWheel wheel = null;
+        private long expiry;
+        // position in its slot's list, slot index being -1 while not scheduled
+        private Timer prev, next;
+        private int slot = -1;
+
+        /**
+         * Timer constructor.
+         *
+         * @param action  run on the wheel's thread once the timer expires, or null
+         */
+        public Timer(Runnable action) {
+            this.action = action;
+        }
+
+        /**
+         * Get whether the timer is scheduled and not yet expired.
+         *
+         * @return true if scheduled
+         */
+        public boolean isScheduled() {
+            return slot >= 0;
+        }
+
+        /**
+         * Get the ticks left before the timer expires.
+         *
+         * @return remaining ticks, or 0 if not scheduled
+         */
+        public long getRemaining() {
+            return isScheduled() ? Math.max(0, expiry - wheel.tick) : 0;
+        }
+    }
+
+    /**
+     * Properties
+     */
+    // current tick
+    private long tick = 0;
+    // first timer of each slot of each level, by level*SLOTS + slot
+    private final Timer[] heads = new Timer[LEVELS*SLOTS];
+    // number of scheduled timers
+    private int size = 0;
+
+    /**
+     * Get the current tick, i.e. the number of ticks advanced so far.
+     *
+     * @return current tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Get the number of scheduled timers.
+     *
+     * @return scheduled timers
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedule a timer to expire after the given number of ticks, cancelling its previous
+     * expiration on this or any other wheel.
+     *
+     * @param timer  timer to schedule
+     * @param delay  ticks before expiring, at least 1
+     */
+    public void schedule(Timer timer, long delay) {
+        if (timer.wheel != null) timer.wheel.cancel(timer);
+        timer.wheel = this;
+        timer.expiry = tick + Math.min(Math.max(delay, 1), MAX_DELAY);
+        insert(timer);
+        size++;
+    }
+
+    /**
+     * Cancel a timer; has no effect if it is not scheduled on this wheel.
+     *
+     * @param timer  timer to cancel
+     */
+    public void cancel(Timer timer) {
+        if (timer.wheel != this || !timer.isScheduled()) return;
+        unlink(timer);
+        size--;
+    }
+
+    /**
+     * Move a timer scheduled on another wheel to this one, keeping its remaining ticks, e.g.
+     * when an object is moved to another level. A timer that is not scheduled is only bound to
+     * this wheel.
+     *
+     * @param timer  timer to move
+     */
+    public void adopt(Timer timer) {
+        if (timer.wheel == this) return;
+        if (timer.isScheduled()) schedule(timer, timer.getRemaining());
+        else timer.wheel = this;
+    }
+
+    /**
+     * Advance by one tick, running the actions of all timers expiring on the new tick, in no
+     * particular order. An action may schedule timers, including its own.
+     */
+    public void advance() {
+        tick++;
+        // spreading the slots of the levels that wrapped around into the lower levels, the
+        // highest first, so that its timers are spread again by the levels below
+        int top = 0;
+        while (top < LEVELS-1 && (tick & ((1L << (SLOT_BITS*(top+1))) - 1)) == 0) top++;
+        for (int level = top; level > 0; level--) {
+            int slot = level*SLOTS + slotOf(tick, level);
+            Timer timer;
+            while ((timer = heads[slot]) != null) {
+                unlink(timer);
+                insert(timer);
+            }
+        }
+        // expiring the current slot of the first level, which actions never schedule into
+        int slot = slotOf(tick, 0);
+        Timer timer;
+        while ((timer = heads[slot]) != null) {
+            unlink(timer);
+            size--;
+            if (timer.action != null) timer.action.run();
+        }
+    }
+
+    /**
+     * Get the slot of a tick in a level.
+     *
+     * @param  tick   tick
+     * @param  level  level of the wheel
+     * @return        slot index within the level
+     */
+    private static int slotOf(long tick, int level) {
+        return (int) (tick >>> (SLOT_BITS*level)) & SLOT_MASK;
+    }
+
+    /**
+     * Insert a timer in the slot of its expiration, in the lowest level covering it.
+     *
+     * @param timer  timer whose expiration is at least the current tick
+     */
+    private void insert(Timer timer) {
+        long delay = timer.expiry - tick;
+        int level = 0;
+        while (level < LEVELS-1 && delay >= (1L << (SLOT_BITS*(level+1)))) level++;
+        int slot = level*SLOTS + slotOf(timer.expiry, level);
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = heads[slot];
+        if (heads[slot] != null) heads[slot].prev = timer;
+        heads[slot] = timer;
+    }
+
+    /**
+     * Remove a timer from its slot.
+     *
+     * @param timer  scheduled timer
+     */
+    private void unlink(Timer timer) {
+        if (timer.prev != null) timer.prev.next = timer.next;
+        else heads[timer.slot] = timer.next;
+        if (timer.next != null) timer.next.prev = timer.prev;
+        timer.prev = timer.next = null;
+        timer.slot = -1;
+    }
+}
@@ -0,0 +1,284 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * TraceReader class - reads a trace file written by a trace recorder, one block of consecutive
+ * ticks at a time. The file is mapped, and every block is inflated and decoded into reusable
+ * column arrays, so that even hour-long traces load quickly and in little memory.
+ * <p>
+ * Run on its own, it prints a summary of a trace, and can write a heatmap of the players'
+ * positions: {@code TraceReader <trace file> [heatmap csv]}.
+ *
+ * @see TraceRecorder
+ */
+
+public class TraceReader {
+    // heatmap cell size, in pixels
+    private static final int HEATMAP_CELL = 32;
+
+    /**
+     * Properties
+     */
+    // mapped trace file
+    private final ByteBuffer data;
+    // current block, decoded by next
+    private int levelNum, numTicks = 0, numPlayers, numObjects;
+    private long firstTick;
+    private final byte[] timescales = new byte[TraceRecorder.BLOCK_TICKS];
+    // fields indexed [field][object*BLOCK_TICKS + tick within the block]
+    private final int[][] columns = new int[Snapshot.NUM_FIELDS][0];
+    // inflated block
+    private ByteBuffer raw = ByteBuffer.allocate(0);
+    private final Inflater inflater = new Inflater();
+
+    /**
+     * Trace reader constructor: maps the trace file and checks its header.
+     *
+     * @param  fileName  trace file name
+     * @throws IOException if the file cannot be read or is not a trace
+     */
+    public TraceReader(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (data.limit() < 8 || data.getInt() != TraceRecorder.MAGIC || data.getInt() != TraceRecorder.VERSION)
+            throw new IOException("Not a version " + TraceRecorder.VERSION + " trace: " + fileName);
+    }
+
+    /**
+     * Read and decode the next block.
+     *
+     * @return true if a block has been read, false at the end of the trace
+     * @throws IOException if the block is truncated or corrupt
+     */
+    public boolean next() throws IOException {
+        if (data.remaining() < TraceRecorder.BLOCK_HEADER_BYTES) {
+            // a trace whose recording was cut short may end with a partial block
+            numTicks = 0;
+            return false;
+        }
+        levelNum = data.getInt();
+        firstTick = data.getLong();
+        numTicks = data.getInt();
+        numPlayers = data.getInt();
+        numObjects = data.getInt();
+        int rawLength = data.getInt(), compressedLength = data.getInt();
+        if (numTicks < 0 || numTicks > TraceRecorder.BLOCK_TICKS || compressedLength > data.remaining())
+            throw new IOException("Truncated block at tick " + firstTick);
+
+        // inflating the block
+        ByteBuffer compressed = data.slice();
+        compressed.limit(compressedLength);
+        data.position(data.position() + compressedLength);
+        if (raw.capacity() < rawLength) raw = ByteBuffer.allocate(rawLength);
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished())
+                length += inflater.inflate(raw.array(), length, rawLength - length);
+            if (length != rawLength) throw new IOException("Corrupt block at tick " + firstTick);
+        }
+        catch (DataFormatException e) {
+            throw new IOException("Corrupt block at tick " + firstTick, e);
+        }
+
+        // decoding the timescales, then every column of deltas
+        raw.clear().limit(rawLength);
+        raw.get(timescales, 0, numTicks);
+        if (columns[0].length < numObjects*TraceRecorder.BLOCK_TICKS)
+            for (int field = 0; field < Snapshot.NUM_FIELDS; field++)
+                columns[field] = new int[numObjects*TraceRecorder.BLOCK_TICKS];
+        for (int field = 0; field < Snapshot.NUM_FIELDS; field++) {
+            int[] column = columns[field];
+            for (int object = 0; object < numObjects; object++) {
+                int value = 0;
+                for (int i = object*TraceRecorder.BLOCK_TICKS, last = i + numTicks; i < last; i++) {
+                    value += SnapshotCodec.unZigZag(SnapshotCodec.getVarint(raw));
+                    column[i] = value;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the current block's level number.
+     *
+     * @return level number
+     */
+    public int getLevelNum() {
+        return levelNum;
+    }
+
+    /**
+     * Get the current block's first tick.
+     *
+     * @return first tick
+     */
+    public long getFirstTick() {
+        return firstTick;
+    }
+
+    /**
+     * Get the number of ticks in the current block.
+     *
+     * @return number of ticks
+     */
+    public int getNumTicks() {
+        return numTicks;
+    }
+
+    /**
+     * Get the number of players in the current block, the first objects.
+     *
+     * @return number of players
+     */
+    public int getNumPlayers() {
+        return numPlayers;
+    }
+
+    /**
+     * Get the number of live objects in the current block.
+     *
+     * @return number of live objects
+     */
+    public int getNumObjects() {
+        return numObjects;
+    }
+
+    /**
+     * Get the timescale at a tick of the current block.
+     *
+     * @param  t  tick within the block, below the number of ticks
+     * @return    timescale
+     */
+    public int getTimescale(int t) {
+        return timescales[t];
+    }
+
+    /**
+     * Get a field of a live object at a tick of the current block.
+     *
+     * @param  field   field index, as in a snapshot
+     * @param  object  live object index
+     * @param  t       tick within the block, below the number of ticks
+     * @return         value of the field
+     * @see    Snapshot
+     */
+    public int get(int field, int object, int t) {
+        return columns[field][object*TraceRecorder.BLOCK_TICKS + t];
+    }
+
+    /**
+     * Get a live object's x-position at a tick of the current block.
+     *
+     * @param  object  live object index
+     * @param  t       tick within the block
+     * @return         x-position, in pixels
+     */
+    public double getX(int object, int t) {
+        return (double) get(Snapshot.X, object, t) / Snapshot.POSITION_SCALE;
+    }
+
+    /**
+     * Get a live object's y-position at a tick of the current block.
+     *
+     * @param  object  live object index
+     * @param  t       tick within the block
+     * @return         y-position, in pixels
+     */
+    public double getY(int object, int t) {
+        return (double) get(Snapshot.Y, object, t) / Snapshot.POSITION_SCALE;
+    }
+
+    /**
+     * Print a summary of a trace, and write a heatmap of the players' positions if requested:
+     * the number of ticks spent in every cell of every level.
+     *
+     * @param args  trace file name, and optional heatmap file name
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: TraceReader <trace file> [heatmap csv]");
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            TraceReader reader = new TraceReader(args[0]);
+            int[][][] heatmaps = new int[Level.NUM_LEVELS][][];
+            long ticks = 0;
+            int blocks = 0, maxObjects = 0;
+            while (reader.next()) {
+                blocks++;
+                ticks += reader.getNumTicks();
+                maxObjects = Math.max(maxObjects, reader.getNumObjects());
+                int levelNum = reader.getLevelNum();
+                if (levelNum < 0 || levelNum >= heatmaps.length) continue;
+                if (heatmaps[levelNum] == null) heatmaps[levelNum] = new int[1][1];
+                for (int player = 0; player < reader.getNumPlayers(); player++) {
+                    for (int t = 0; t < reader.getNumTicks(); t++) {
+                        int col = (int) reader.getX(player, t) / HEATMAP_CELL;
+                        int row = (int) reader.getY(player, t) / HEATMAP_CELL;
+                        if (col < 0 || row < 0) continue;
+                        heatmaps[levelNum] = grow(heatmaps[levelNum], row + 1, col + 1);
+                        heatmaps[levelNum][row][col]++;
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d ticks (%.1f min of play) in %d blocks, up to %d objects, read in %.3f s%n",
+                              ticks, ticks / 60.0 / 60, blocks, maxObjects, seconds);
+            if (args.length > 1) writeHeatmaps(heatmaps, args[1]);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Grow a heatmap to at least the given number of rows and columns.
+     *
+     * @param  heatmap  tick counts, indexed [row][col]
+     * @param  rows     rows needed
+     * @param  cols     columns needed
+     * @return          the heatmap, or a larger copy of it
+     */
+    private static int[][] grow(int[][] heatmap, int rows, int cols) {
+        if (heatmap.length >= rows && heatmap[0].length >= cols) return heatmap;
+        int[][] grown = new int[Math.max(rows, heatmap.length)][Math.max(cols, heatmap[0].length)];
+        for (int row = 0; row < heatmap.length; row++)
+            System.arraycopy(heatmap[row], 0, grown[row], 0, heatmap[row].length);
+        return grown;
+    }
+
+    /**
+     * Write heatmaps as CSV lines: level number, cell's x and y-positions, and tick count,
+     * for every cell a player has been in.
+     *
+     * @param heatmaps  tick counts of each level, indexed [row][col], or null if not played
+     * @param fileName  heatmap file name
+     */
+    private static void writeHeatmaps(int[][][] heatmaps, String fileName) {
+        try (PrintWriter out = new PrintWriter(fileName)) {
+            for (int levelNum = 0; levelNum < heatmaps.length; levelNum++) {
+                if (heatmaps[levelNum] == null) continue;
+                for (int row = 0; row < heatmaps[levelNum].length; row++)
+                    for (int col = 0; col < heatmaps[levelNum][row].length; col++)
+                        if (heatmaps[levelNum][row][col] > 0)
+                            out.println(levelNum + "," + col*HEATMAP_CELL + "," + row*HEATMAP_CELL + "," +
+                                        heatmaps[levelNum][row][col]);
+            }
+            System.out.println("Heatmap written to " + fileName);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
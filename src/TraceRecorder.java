@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * TraceRecorder class - records the state of every live object at every tick to a trace file,
+ * for offline analysis such as position heatmaps and balance statistics. The same fields as a
+ * snapshot are recorded (with the enemies' attacks as 0 or 1), along with the level's timescale.
+ * <p>
+ * Ticks are gathered into blocks of up to BLOCK_TICKS consecutive ticks of one level. Within a
+ * block each field of each object is a column of one value per tick, written as the zig-zag
+ * varint deltas between consecutive ticks, so that an object standing still is a run of zeros;
+ * the block is then compressed with Deflate. Recording a tick only copies values into the
+ * current block's arrays; full blocks are encoded, compressed and written by a background thread
+ * through a file channel, and handed back to be reused.
+ *
+ * @see TraceReader
+ */
+
+public class TraceRecorder {
+    // file header
+    public static final int MAGIC = 0x53445452;
+    public static final int VERSION = 1;
+    // ticks per block (10 seconds)
+    public static final int BLOCK_TICKS = 600;
+    // block header: level number, first tick, ticks, players, objects, raw and compressed lengths
+    public static final int BLOCK_HEADER_BYTES = 4 + 8 + 4*5;
+    // longest varint of a 32-bit value
+    private static final int MAX_VARINT_BYTES = 5;
+
+    /**
+     * Block class - the recorded state of consecutive ticks of one level, by column.
+     */
+    private static class Block {
+        private int levelNum;
+        private long firstTick;
+        private int numTicks = 0;
+        private int numPlayers, numObjects;
+        // timescale of every tick
+        private final byte[] timescales = new byte[BLOCK_TICKS];
+        // fields indexed [field][object*BLOCK_TICKS + tick within the block]
+        private final int[][] columns = new int[Snapshot.NUM_FIELDS][];
+
+        /**
+         * Start the block at a tick, making room for the given number of objects.
+         *
+         * @param levelNum    level number
+         * @param firstTick   first tick of the block
+         * @param numPlayers  number of players, the first objects
+         * @param numObjects  number of live objects (players and enemies)
+         */
+        private void start(int levelNum, long firstTick, int numPlayers, int numObjects) {
+            this.levelNum = levelNum;
+            this.firstTick = firstTick;
+            this.numPlayers = numPlayers;
+            this.numObjects = numObjects;
+            numTicks = 0;
+            if (columns[0] == null || columns[0].length < numObjects*BLOCK_TICKS)
+                for (int field = 0; field < Snapshot.NUM_FIELDS; field++)
+                    columns[field] = new int[numObjects*BLOCK_TICKS];
+        }
+    }
+
+    /**
+     * Properties
+     */
+    // trace file
+    private final String fileName;
+    private final FileChannel channel;
+    // block being filled by the simulation thread
+    private Block block = new Block();
+    // full blocks waiting to be written, and written blocks to be reused
+    private final LinkedBlockingQueue<Block> fullBlocks = new LinkedBlockingQueue<>();
+    private final ConcurrentLinkedQueue<Block> freeBlocks = new ConcurrentLinkedQueue<>();
+    // empty block marking the end of the trace
+    private final Block end = new Block();
+    // writer thread, and totals written by it
+    private final Thread writer;
+    private long ticksWritten = 0, bytesWritten = 0;
+
+    /**
+     * Trace recorder constructor: creates the trace file, replacing any previous one, and
+     * starts the writer thread.
+     *
+     * @param  fileName  trace file name
+     * @throws IOException if the file cannot be created
+     */
+    public TraceRecorder(String fileName) throws IOException {
+        this.fileName = fileName;
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                                   StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) channel.write(header);
+        bytesWritten = 8;
+        writer = new Thread(this::write, "trace writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Record the level's state after a tick; simulation thread only. A tick that does not
+     * follow the previous one (e.g. of another level) starts a new block.
+     *
+     * @param level the level, just ticked
+     * @see   Level
+     */
+    public void record(Level level) {
+        Player[] players = level.getPlayers();
+        Enemy[] enemies = level.getEnemies();
+        int numObjects = players.length + enemies.length;
+        long tick = level.getTick();
+        if (block.numTicks > 0 && (level.getLevelNum() != block.levelNum || numObjects != block.numObjects ||
+                                   tick != block.firstTick + block.numTicks))
+            flush();
+        if (block.numTicks == 0) block.start(level.getLevelNum(), tick, players.length, numObjects);
+
+        int t = block.numTicks;
+        int[][] columns = block.columns;
+        int object = 0;
+        for (Player player : players) {
+            int i = object++ * BLOCK_TICKS + t;
+            recordObject(player, i);
+            columns[Snapshot.ATTACK][i] = (int) Math.ceil(player.getAttackFrames());
+            columns[Snapshot.COOL_DOWN][i] = (int) Math.ceil(player.getCoolDown());
+        }
+        for (Enemy enemy : enemies) {
+            int i = object++ * BLOCK_TICKS + t;
+            recordObject(enemy, i);
+            columns[Snapshot.ATTACK][i] = enemy.isAttacking() ? 1 : 0;
+            columns[Snapshot.COOL_DOWN][i] = 0;
+        }
+        block.timescales[t] = (byte) level.getTimescale();
+        if (++block.numTicks == BLOCK_TICKS) flush();
+    }
+
+    /**
+     * Record the fields shared by all live objects, quantized as in a snapshot.
+     *
+     * @param object  Player / Enemy
+     * @param i       index in the columns
+     * @see   Snapshot
+     */
+    private void recordObject(LiveObject object, int i) {
+        int[][] columns = block.columns;
+        columns[Snapshot.X][i] = (int) Math.round(object.getX()*Snapshot.POSITION_SCALE);
+        columns[Snapshot.Y][i] = (int) Math.round(object.getY()*Snapshot.POSITION_SCALE);
+        columns[Snapshot.HEALTH][i] = object.getHealthDisplay();
+        columns[Snapshot.DIRECTION][i] = object.getDirection();
+        columns[Snapshot.INVINCIBLE][i] = (int) Math.ceil(object.getInvincibleFrame());
+    }
+
+    /**
+     * Hand the current block over to the writer thread, if it holds any tick, and continue
+     * with a reused (or new) empty block.
+     */
+    private void flush() {
+        if (block.numTicks == 0) return;
+        fullBlocks.add(block);
+        Block free = freeBlocks.poll();
+        block = (free != null) ? free : new Block();
+        block.numTicks = 0;
+    }
+
+    /**
+     * Write the last block, wait for all blocks to be written, and close the trace file.
+     */
+    public void close() {
+        flush();
+        fullBlocks.add(end);
+        try {
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+        System.out.println("Recorded " + ticksWritten + " ticks to " + fileName + " (" + bytesWritten/1024 + " KiB)");
+    }
+
+    /**
+     * Writer loop: encodes, compresses and writes every full block until the end of the trace.
+     * Once the file cannot be written, the remaining blocks are dropped.
+     */
+    private void write() {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteBuffer raw = ByteBuffer.allocate(0), compressed = ByteBuffer.allocate(0);
+        boolean isFailed = false;
+        while (true) {
+            Block full;
+            try {
+                full = fullBlocks.take();
+            }
+            catch (InterruptedException e) {
+                break;
+            }
+            if (full == end) break;
+            if (!isFailed) {
+                // encoding the timescales, then every column of deltas
+                int maxLength = full.numTicks*(1 + full.numObjects*Snapshot.NUM_FIELDS*MAX_VARINT_BYTES);
+                if (raw.capacity() < maxLength) raw = ByteBuffer.allocate(maxLength);
+                raw.clear();
+                raw.put(full.timescales, 0, full.numTicks);
+                for (int field = 0; field < Snapshot.NUM_FIELDS; field++) {
+                    int[] column = full.columns[field];
+                    for (int object = 0; object < full.numObjects; object++) {
+                        int previous = 0;
+                        for (int i = object*BLOCK_TICKS, last = i + full.numTicks; i < last; i++) {
+                            SnapshotCodec.putVarint(raw, SnapshotCodec.zigZag(column[i] - previous));
+                            previous = column[i];
+                        }
+                    }
+                }
+                int rawLength = raw.position();
+
+                // compressing after the block header
+                int maxCompressed = BLOCK_HEADER_BYTES + rawLength + rawLength/1000 + 64;
+                if (compressed.capacity() < maxCompressed) compressed = ByteBuffer.allocate(maxCompressed);
+                deflater.reset();
+                deflater.setInput(raw.array(), 0, rawLength);
+                deflater.finish();
+                int compressedLength = 0;
+                while (!deflater.finished())
+                    compressedLength += deflater.deflate(compressed.array(), BLOCK_HEADER_BYTES + compressedLength,
+                                                         compressed.capacity() - BLOCK_HEADER_BYTES - compressedLength);
+                compressed.clear();
+                compressed.putInt(full.levelNum).putLong(full.firstTick).putInt(full.numTicks)
+                          .putInt(full.numPlayers).putInt(full.numObjects).putInt(rawLength).putInt(compressedLength);
+                compressed.limit(BLOCK_HEADER_BYTES + compressedLength).position(0);
+                try {
+                    while (compressed.hasRemaining()) channel.write(compressed);
+                    ticksWritten += full.numTicks;
+                    bytesWritten += BLOCK_HEADER_BYTES + compressedLength;
+                }
+                catch (IOException e) {
+                    e.printStackTrace();
+                    isFailed = true;
+                }
+            }
+            freeBlocks.add(full);
+        }
+        deflater.end();
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * TripleBuffer class - hands the latest of a stream of values from one writer thread to one
+ * reader thread without locking. The writer fills the back slot and publishes it, swapping it
+ * with the middle slot; the reader takes the middle slot whenever a fresh one has been published.
+ * Neither thread ever waits for the other, and the reader always sees a completely written value.
+ *
+ * @param <T> type of the buffered values, reused rather than reallocated
+ */
+
+public class TripleBuffer<T> {
+    // flag of the middle slot index, set when the slot has been published and not yet taken
+    private static final int FRESH = 1 << 2;
+
+    /**
+     * Properties
+     */
+    // the 3 slots
+    private final Object[] slots = new Object[3];
+    // middle slot index, swapped atomically by both threads
+    private final AtomicInteger middle = new AtomicInteger(1);
+    // slot indices owned by the writer and the reader
+    private int back = 2;
+    private int front = 0;
+
+    /**
+     * Triple buffer constructor.
+     *
+     * @param factory  creates each of the 3 slots' values
+     */
+    public TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < slots.length; i++) slots[i] = factory.get();
+    }
+
+    /**
+     * Get the value to be written; writer thread only.
+     *
+     * @return back slot's value
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+        return (T) slots[back];
+    }
+
+    /**
+     * Publish the written back slot, and take the previous middle slot as the new back slot;
+     * writer thread only.
+     */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & ~FRESH;
+    }
+
+    /**
+     * Get the latest published value; reader thread only. The value remains valid until the
+     * next call, even if newer ones are published in between.
+     *
+     * @return front slot's value
+     */
+    @SuppressWarnings("unchecked")
+    public T getFront() {
+        if ((middle.get() & FRESH) != 0) front = middle.getAndSet(front) & ~FRESH;
+        return (T) slots[front];
+    }
+}